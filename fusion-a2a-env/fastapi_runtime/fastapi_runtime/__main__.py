@@ -17,6 +17,7 @@ RUNTIME_PORT = int(os.environ.get("RUNTIME_SERVICE_PORT", "8888"))
 def main():
     app = FuncApp()
     app.add_api_route(path='/specialize', endpoint=app.load, methods=["POST"])
+    app.add_api_route(path='/reset', endpoint=app.reset, methods=["POST"])
     app.add_api_route(path='/health', endpoint=app.health, methods=["GET"])
     app.add_api_route(path='/', endpoint=app.dispatch, methods=["POST"])
     app.add_api_route(path='/{path_name:path}', endpoint=app.dispatch, methods=["GET", "POST", "PUT", "HEAD", "OPTIONS", "DELETE"])
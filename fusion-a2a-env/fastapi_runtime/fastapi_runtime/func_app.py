@@ -98,6 +98,9 @@ class FuncApp(FastAPI):
         )
         self.logger.addHandler(self.ch)
         self._mutex = asyncio.Lock()
+        # sys.path before any specialization, and folders of loaded user code
+        self._base_sys_path = list(sys.path)
+        self._loaded_paths: list[str] = []
 
     def build_json_rpc_app(self, executor_factory: Callable[[], AgentExecutor], file_root: str) -> JSONRPCApplication:
         agent_executor = None
@@ -136,6 +139,7 @@ class FuncApp(FastAPI):
 
         try:
             fn = self._load(handler, filepath)
+            self._loaded_paths.append(os.path.abspath(filepath))
             async with self._mutex:
                 if request.appType is AppType.AgentApp:
                     self._agent_app = self.build_json_rpc_app(fn, filepath)
@@ -145,6 +149,36 @@ class FuncApp(FastAPI):
             self.logger.error(f"Specialization failed: %s", e)
             raise HTTPException(status_code=500, detail=str(e))
 
+    async def reset(self):
+        """Unload user app, so that the pod can be specialized again with another build."""
+        async with self._mutex:
+            self._agent_app = None
+            self._web_app = None
+            self._unload_modules()
+            sys.path[:] = self._base_sys_path
+            importlib.invalidate_caches()
+        self.logger.info("Runtime is reset")
+        return Response(status_code=200)
+
+    def _unload_modules(self):
+        # only modules loaded from user code are removed, so that runtime and its dependencies stay imported
+        for name, mod in list(sys.modules.items()):
+            mod_file = getattr(mod, "__file__", None)
+            if mod_file and any(self._is_within(mod_file, path) for path in self._loaded_paths):
+                self.logger.debug('unload module "{}"'.format(name))
+                del sys.modules[name]
+        self._loaded_paths.clear()
+
+    @staticmethod
+    def _is_within(file, root):
+        # compared by path components, so that modules of /x/build-10 are not taken as ones of /x/build-1
+        file, root = os.path.abspath(file), os.path.abspath(root)
+        try:
+            return os.path.commonpath([file, root]) == root
+        except ValueError:
+            # paths on different drives
+            return False
+
     async def health(self):
         return Response(status_code=200)
 
@@ -168,7 +202,8 @@ class FuncApp(FastAPI):
                 else:
                     return self._web_app(request)
             else:
-                return Response(status_code=400, content="No agent or web app configured")
+                # 503 with this header tells executor that the request is not processed, so it's retried on another pod
+                return Response(status_code=503, content="No agent or web app configured", headers={"X-Fusion-Unspecialized": "true"})
 
     async def agent_card_call(self, request: Request):
         if self._agent_app is None:
@@ -3,10 +3,15 @@ package ai.tuna.fusion.executor;
 import ai.tuna.fusion.executor.driver.podpool.FunctionPodManager;
 import ai.tuna.fusion.executor.driver.podpool.impl.DefaultFunctionPodManager;
 import ai.tuna.fusion.executor.driver.podpool.impl.DefaultPodPoolConnectorFactory;
+import ai.tuna.fusion.executor.driver.podpool.impl.ExecutorMembership;
+import ai.tuna.fusion.executor.driver.podpool.impl.PodDisposer;
+import ai.tuna.fusion.executor.driver.podpool.impl.PodRunLedger;
+import ai.tuna.fusion.executor.driver.podpool.impl.PodTopology;
 import ai.tuna.fusion.metadata.informer.PodPoolResources;
 import ai.tuna.fusion.metadata.informer.impl.DefaultAgentResources;
 import ai.tuna.fusion.metadata.informer.impl.DefaultPodPoolResources;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -21,8 +26,28 @@ public class ExecutorConfiguration {
     private ExecutorProperties properties;
 
     @Bean
-    public FunctionPodManager functionPodManager(PodPoolResources podPoolResources) {
-        return new DefaultFunctionPodManager(new DefaultPodPoolConnectorFactory(podPoolResources), podPoolResources);
+    public FunctionPodManager functionPodManager(DefaultPodPoolConnectorFactory podPoolConnectorFactory, PodPoolResources podPoolResources, PodDisposer podDisposer, PodTopology podTopology) {
+        return new DefaultFunctionPodManager(podPoolConnectorFactory, podPoolResources, podPoolConnectorFactory.getPodEventDispatcher(), podDisposer, new PodRunLedger(podPoolResources, properties.getIdentity(), properties.getAccounting()), properties.getAdmission(), properties.getBalancer(), properties.getOutlierDetection(), properties.getLifecycle(), podTopology);
+    }
+
+    @Bean(destroyMethod = "close")
+    public PodDisposer podDisposer(DefaultPodPoolConnectorFactory podPoolConnectorFactory) {
+        return new PodDisposer(podPoolConnectorFactory, properties.getDisposer());
+    }
+
+    @Bean(destroyMethod = "close")
+    public DefaultPodPoolConnectorFactory podPoolConnectorFactory(PodPoolResources podPoolResources, MeterRegistry meterRegistry, ExecutorMembership executorMembership, PodTopology podTopology) {
+        return new DefaultPodPoolConnectorFactory(podPoolResources, properties, meterRegistry, executorMembership, podTopology);
+    }
+
+    @Bean(initMethod = "start")
+    public PodTopology podTopology(KubernetesClient kubernetesClient) {
+        return new PodTopology(kubernetesClient, properties.getTopology());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    public ExecutorMembership executorMembership(KubernetesClient kubernetesClient) {
+        return new ExecutorMembership(kubernetesClient, properties);
     }
 
     @Bean(initMethod = "start", destroyMethod = "stop")
@@ -4,6 +4,13 @@ import ai.tuna.fusion.metadata.informer.impl.InformerProperties;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
 /**
  * @author robinqu
  */
@@ -11,4 +18,333 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 @Data
 public class ExecutorProperties {
     private InformerProperties informers;
+
+    /**
+     * Identity of this executor instance, which defaults to the name of executor pod.
+     */
+    private String identity = Optional.ofNullable(System.getenv("POD_NAME"))
+            .orElse("executor-" + ProcessHandle.current().pid());
+
+    @Data
+    public static class Connector {
+        /**
+         * Interval of topping up generic pods reserved by this executor.
+         */
+        private Duration reserveRefillInterval = Duration.ofSeconds(5);
+
+        /**
+         * Reservations are renewed by its owner within this period. Reservations that are not renewed in twice of this period are released by other executors.
+         */
+        private Duration reservationTtl = Duration.ofMinutes(10);
+
+        /**
+         * Maximum concurrent pod claims and specializations of each PodPool.
+         */
+        private int maxConcurrentSpecializations = 4;
+
+        /**
+         * Maximum callers waiting for a specialization permit of each PodPool. Callers beyond this are rejected.
+         */
+        private int maxQueuedSpecializations = 64;
+    }
+    private Connector connector = new Connector();
+
+    @Data
+    public static class Disposer {
+        /**
+         * Pods that cannot be queued are left to the periodic cleanup.
+         */
+        private int queueCapacity = 1024;
+
+        private int workers = 2;
+
+        /**
+         * Maximum rate of pod deletions sent to API server.
+         */
+        private double deletionsPerSecond = 10;
+
+        private int maxAttempts = 5;
+
+        private Duration initialBackoff = Duration.ofSeconds(1);
+
+        private Duration maxBackoff = Duration.ofSeconds(30);
+    }
+    private Disposer disposer = new Disposer();
+
+    @Data
+    public static class Accounting {
+        /**
+         * Runs of a specialized pod granted to an executor in one API server write. A pod is shared by more executors with smaller grants,
+         * at the cost of more writes. Each executor takes all runs of a pod at once if 0.
+         */
+        private int runsPerGrant = 5;
+
+        /**
+         * Releases of pods are collected for this long and written together, so that pods retired at once, e.g. by a cutover or drain, don't
+         * flood API server. Releases of the same pod within a batch are written once.
+         */
+        private Duration releaseBatchInterval = Duration.ofMillis(200);
+
+        /**
+         * Maximum release writes of a batch in flight at once.
+         */
+        private int releaseConcurrency = 4;
+    }
+    private Accounting accounting = new Accounting();
+
+    @Data
+    public static class Admission {
+        /**
+         * Maximum requesters of each function build waiting for saturated pods. Requesters beyond this are rejected with 429 at once.
+         */
+        private int maxQueuedRequests = 100;
+
+        /**
+         * Requesters that wait longer than this for saturated pods are rejected with 429.
+         */
+        private Duration queueTimeout = Duration.ofSeconds(10);
+
+        /**
+         * Value of Retry-After header in 429 responses.
+         */
+        private Duration retryAfter = Duration.ofSeconds(1);
+    }
+    private Admission admission = new Admission();
+
+    @Data
+    public static class Activator {
+        /**
+         * If enabled, requests are buffered while a PodPool has no ready generic pods, e.g. as it's scaled from zero, and executors signal
+         * demand in annotations of the PodPool so that the operator scales it up.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum requests of each PodPool buffered for a ready generic pod. Requests beyond this are rejected with 429 at once.
+         */
+        private int maxBufferedRequests = 100;
+
+        /**
+         * Buffered requests that wait longer than this for a ready generic pod are rejected with 429.
+         */
+        private Duration timeout = Duration.ofSeconds(60);
+
+        /**
+         * Minimum interval between demand signals of each PodPool, which are written to API server.
+         */
+        private Duration demandSignalInterval = Duration.ofSeconds(5);
+    }
+    private Activator activator = new Activator();
+
+    @Data
+    public static class Lifecycle {
+        /**
+         * Routing of a function is switched to its new effective build after this period, even if the new build has fewer warm pods than
+         * the previous one.
+         */
+        private Duration cutoverTimeout = Duration.ofMinutes(2);
+
+        /**
+         * Retired pods are deleted once their in-flight runs are done, or after this period anyway, e.g. if some run is never closed.
+         */
+        private Duration drainTimeout = Duration.ofMinutes(5);
+    }
+    private Lifecycle lifecycle = new Lifecycle();
+
+    @Data
+    public static class Balancer {
+        /**
+         * Weight of a latency sample drops to 1/e after this period. Shorter periods react faster to slow pods, at the cost of more noise.
+         */
+        private Duration latencyDecay = Duration.ofSeconds(10);
+    }
+    private Balancer balancer = new Balancer();
+
+    @Data
+    public static class Affinity {
+        /**
+         * If enabled, A2A requests of a context or task are routed to the pod that served it before, while the pod is alive.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Bindings from context and task IDs to pods are dropped if not accessed in this period.
+         */
+        private Duration ttl = Duration.ofMinutes(30);
+
+        private long maxEntries = 100_000;
+
+        /**
+         * Only leading bytes of each response are inspected for context and task IDs.
+         */
+        private int maxInspectedBytes = 64 * 1024;
+    }
+    private Affinity affinity = new Affinity();
+
+    @Data
+    public static class Proxy {
+        /**
+         * Request bodies of known size up to this limit are buffered, so that they can be replayed on another pod. Larger or chunked bodies
+         * are streamed, and never retried or hedged. Bodies with neither Content-Length nor Transfer-Encoding, e.g. of HTTP/2 requests, are
+         * buffered as well, and rejected with 413 if they are larger.
+         */
+        private int maxBufferedBodyBytes = 256 * 1024;
+
+        /**
+         * Retries on another pod if a request fails before it's processed, i.e. connection to the pod is refused, or the pod replies 503 as
+         * it's draining or not specialized.
+         */
+        private int maxRetries = 2;
+
+        /**
+         * If enabled, safe requests, i.e. GET and HEAD of WebApp functions and A2A {@code tasks/get} calls, are also sent to a second pod if
+         * the first pod doesn't reply within the hedge delay. The first reply wins, and the other request is cancelled.
+         */
+        private boolean hedgingEnabled = false;
+
+        /**
+         * Hedge delay is this percentile of recent latencies of the function, so that only the slowest requests are hedged.
+         */
+        private double hedgePercentile = 0.95;
+
+        private Duration minHedgeDelay = Duration.ofMillis(50);
+
+        /**
+         * Requests are not hedged until this number of latencies of the function are recorded.
+         */
+        private int minHedgeSamples = 20;
+
+        /**
+         * Number of recent latencies kept for each function.
+         */
+        private int hedgeWindow = 256;
+
+        /**
+         * Default deadline of unary requests, from arrival at executor until the response is complete.
+         */
+        private Duration requestTimeout = Duration.ofSeconds(60);
+
+        /**
+         * Default deadlines of unary A2A methods, which take precedence over {@code requestTimeout}.
+         */
+        private Map<String, Duration> methodTimeouts = new HashMap<>(Map.of(
+                "message/send", Duration.ofSeconds(60),
+                "tasks/get", Duration.ofSeconds(10),
+                "tasks/cancel", Duration.ofSeconds(10)
+        ));
+
+        /**
+         * Default timeout of streaming responses between chunks. Streams have no deadline unless the client sets one.
+         */
+        private Duration streamIdleTimeout = Duration.ofMinutes(5);
+
+        /**
+         * A2A methods replying SSE streams. Responses of other requests are also streams if their content type is {@code text/event-stream}.
+         */
+        private Set<String> streamingMethods = new HashSet<>(Set.of("message/stream", "tasks/resubscribe"));
+
+        /**
+         * If enabled, tasks of A2A streaming calls are cancelled on the pod once their client goes away, so that abandoned runs don't keep
+         * consuming the pod and LLM budget.
+         */
+        private boolean cancelAbandonedTasks = true;
+    }
+    private Proxy proxy = new Proxy();
+
+    @Data
+    public static class Topology {
+        /**
+         * If enabled, generic pods are claimed and runs are routed in the zone of this executor first, and in other zones only if
+         * no pod of this zone is available.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Zone of this executor, which is resolved from its node if not set.
+         */
+        private String zone = System.getenv("NODE_ZONE");
+
+        /**
+         * Node of this executor, which is given by downward API.
+         */
+        private String nodeName = System.getenv("NODE_NAME");
+
+        private String zoneLabel = "topology.kubernetes.io/zone";
+
+        /**
+         * Nodes whose zone is unknown, e.g. as they cannot be read or have no zone label, are looked up again after this.
+         */
+        private Duration unknownZoneTtl = Duration.ofMinutes(1);
+    }
+    private Topology topology = new Topology();
+
+    @Data
+    public static class OutlierDetection {
+        /**
+         * Failures in a row that eject a pod from routing, e.g. 5xx responses, connection failures and resets.
+         */
+        private int consecutiveFailures = 5;
+
+        /**
+         * Ejection window, which is multiplied by number of ejections of the pod.
+         */
+        private Duration baseEjectionTime = Duration.ofSeconds(30);
+
+        /**
+         * Pods ejected this many times are disposed.
+         */
+        private int maxEjections = 3;
+
+        /**
+         * Pods whose average latency exceeds this multiple of the median of their build are ejected.
+         */
+        private double latencyOutlierFactor = 3.0;
+
+        /**
+         * Pods faster than this are never taken as latency outliers.
+         */
+        private Duration minOutlierLatency = Duration.ofSeconds(1);
+
+        /**
+         * Latency outliers are only detected among at least this many pods of a build.
+         */
+        private int minPodsForLatencyOutliers = 3;
+    }
+    private OutlierDetection outlierDetection = new OutlierDetection();
+
+    @Data
+    public static class Sharding {
+        /**
+         * If enabled, executor replicas own disjoint sets of generic pods by consistent hashing, and claim pods of others only if they own none.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Namespace of Lease objects which are used as membership list of executor replicas.
+         */
+        private String namespace = Optional.ofNullable(System.getenv("POD_NAMESPACE")).orElse("default");
+
+        /**
+         * Members whose Lease is not renewed in this period are taken as gone.
+         */
+        private Duration leaseDuration = Duration.ofSeconds(30);
+
+        private Duration renewInterval = Duration.ofSeconds(10);
+
+        /**
+         * Points of each member on the hash ring.
+         */
+        private int virtualNodes = 64;
+    }
+    private Sharding sharding = new Sharding();
+
+    @Data
+    public static class Admin {
+        /**
+         * Bearer token required by admin endpoints under {@code /admin/}, e.g. warming and draining pods of a function. Admin endpoints are
+         * disabled if not set.
+         */
+        private String token;
+    }
+    private Admin admin = new Admin();
 }
@@ -1,10 +1,15 @@
 package ai.tuna.fusion.executor.driver.podpool;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AccessLevel;
+import lombok.Builder;
 import lombok.Getter;
+import lombok.NonNull;
 import lombok.ToString;
 import lombok.experimental.SuperBuilder;
 
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -12,15 +17,149 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 @Getter
 @SuperBuilder(toBuilder = true)
-@ToString(exclude = "functionPodManager")
-public class CountedPodAccess implements AutoCloseable {
+@ToString(exclude = {"functionPodManager", "latency"})
+public class CountedPodAccess {
     private final AtomicInteger usageCount;
     private final int maxUsageCount;
     @JsonIgnore
     private final FunctionPodManager functionPodManager;
     private final PodAccess podAccess;
-    @Override
-    public void close() throws Exception {
+
+    /**
+     * Number of runs granted to this executor by cluster-wide run accounting. Runs are reserved up to the lesser of this and {@code maxUsageCount}.
+     */
+    @Getter(AccessLevel.NONE)
+    private final AtomicInteger allowance;
+
+    /**
+     * Maximum number of runs in flight at the same time. Concurrency is not limited if 0.
+     */
+    @Builder.Default
+    private final int maxConcurrency = 0;
+
+    /**
+     * Number of runs that are reserved and not closed yet.
+     */
+    @Getter(AccessLevel.NONE)
+    @Builder.Default
+    private final AtomicInteger inFlightCount = new AtomicInteger(0);
+
+    /**
+     * Response latency of the pod, which is used by load-aware balancing.
+     */
+    @Getter(AccessLevel.NONE)
+    @Builder.Default
+    private final LatencyEwma latency = new LatencyEwma(Duration.ofSeconds(10));
+
+    /**
+     * Circuit breaker of the pod. Ejected pods take no runs until the ejection window is over. It's required, so that thresholds are always
+     * the ones configured for the executor.
+     */
+    @NonNull
+    private final PodHealth health;
+
+    /**
+     * A draining access takes no more runs, and its pod is deleted once in-flight runs are done.
+     */
+    @Getter(AccessLevel.NONE)
+    @Builder.Default
+    private final AtomicBoolean draining = new AtomicBoolean(false);
+
+    /**
+     * Reserve one run of this access. Counter is updated with CAS so that it never overshoots {@code maxUsageCount} or allowance.
+     * In-flight count is increased before checking draining state, so that a drainer either sees this run or this run sees draining state.
+     * It's also the permit of concurrency, which is given back if {@code maxConcurrency} is exceeded.
+     * @return true if a run is reserved
+     */
+    public boolean tryReserve() {
+        var inFlight = inFlightCount.incrementAndGet();
+        if (draining.get() || (maxConcurrency > 0 && inFlight > maxConcurrency)) {
+            inFlightCount.decrementAndGet();
+            return false;
+        }
+        int current;
+        do {
+            current = usageCount.get();
+            if (current >= runLimit()) {
+                inFlightCount.decrementAndGet();
+                return false;
+            }
+        } while (!usageCount.compareAndSet(current, current + 1));
+        return true;
+    }
+
+    private int runLimit() {
+        return Math.min(maxUsageCount, allowance.get());
+    }
+
+    public int getAllowance() {
+        return allowance.get();
+    }
+
+    /**
+     * Add runs granted by cluster-wide run accounting.
+     */
+    public void grant(int runs) {
+        allowance.addAndGet(runs);
+    }
+
+    /**
+     * @return number of runs that can be reserved without further grants
+     */
+    public int getRemaining() {
+        return Math.max(0, runLimit() - usageCount.get());
+    }
+
+    /**
+     * @return true if this call switches access to draining state
+     */
+    public boolean markDraining() {
+        return draining.compareAndSet(false, true);
+    }
+
+    public boolean isDraining() {
+        return draining.get();
+    }
+
+    public int getInFlight() {
+        return inFlightCount.get();
+    }
+
+    /**
+     * @return true if no more run can be reserved until some in-flight run is closed
+     */
+    public boolean isSaturated() {
+        return maxConcurrency > 0 && inFlightCount.get() >= maxConcurrency;
+    }
+
+    public void recordLatency(Duration elapsed) {
+        latency.record(elapsed);
+    }
+
+    public double getLatencyMillis() {
+        return latency.getMillis();
+    }
+
+    /**
+     * Estimated cost of sending one more run to the pod, i.e. runs in flight including the new one, weighted by average latency.
+     * Pods without latency samples are compared by in-flight runs only.
+     */
+    public double getLoad() {
+        return (inFlightCount.get() + 1) * (latency.getMillis() + 1);
+    }
+
+    /**
+     * Handle of a run just reserved by {@link #tryReserve()}, which is to be closed once the run is done. Each reservation is wrapped once.
+     */
+    public PodRun toRun() {
+        return new PodRun(this);
+    }
+
+    /**
+     * Finish a run reserved by {@link #tryReserve()}, which is called once per run by {@link PodRun#close()}.
+     */
+    void finishRun() throws FunctionPodDisposalException {
+        inFlightCount.decrementAndGet();
         functionPodManager.disposeAccess(this);
     }
 
@@ -2,6 +2,7 @@ package ai.tuna.fusion.executor.driver.podpool;
 
 import ai.tuna.fusion.metadata.crd.podpool.PodFunction;
 import ai.tuna.fusion.metadata.crd.podpool.PodPool;
+import reactor.core.publisher.Mono;
 
 import java.util.List;
 
@@ -10,9 +11,45 @@ import java.util.List;
  */
 public interface FunctionPodManager {
 
-    CountedPodAccess requestAccess(PodFunction function, PodPool podPool) throws FunctionPodAccessException;
-    
+    /**
+     * Reserve a run of a pod of the function. The run is to be closed once it's done.
+     */
+    PodRun requestAccess(PodFunction function, PodPool podPool) throws FunctionPodAccessException;
+
+    /**
+     * Non-blocking variant of {@link #requestAccess(PodFunction, PodPool)}. Pod claiming and specialization never block the subscribing thread,
+     * so it's safe to be called from reactive handlers. Errors are signaled as {@link FunctionPodAccessException}.
+     */
+    Mono<PodRun> requestAccessAsync(PodFunction function, PodPool podPool);
+
+    /**
+     * Reserve a run of the given pod if it's still held by this executor and can take more runs, e.g. the pod holding state of a session.
+     * Otherwise, access is requested as {@link #requestAccessAsync(PodFunction, PodPool)} does.
+     */
+    Mono<PodRun> requestAccessAsync(PodFunction function, PodPool podPool, String preferredPodName);
+
+    /**
+     * Reserve a run of a warm pod other than the excluded one if some pod can take it right away, e.g. for a hedged request. It never waits
+     * for capacity or specializes pods, and completes empty if no such pod is found.
+     */
+    Mono<PodRun> tryLeaseWarm(PodFunction function, PodPool podPool, String excludedPodName);
+
+    /**
+     * Called once a run of the access is closed.
+     */
     void disposeAccess(CountedPodAccess countedPodAccess) throws FunctionPodDisposalException;
 
     List<CountedPodAccess> listAccess(PodFunction function, PodPool podPool);
+
+    /**
+     * Specialize pods for the build that requests of the function are routed to, until given number of pods are warm, i.e. specialized and able to take more runs.
+     * @return the number of warm pods after warming
+     */
+    Mono<Integer> warm(PodFunction function, PodPool podPool, int count);
+
+    /**
+     * Dispose all specialized pods of the build that requests of the function are routed to.
+     * @return the number of disposed pods
+     */
+    Mono<Integer> drain(PodFunction function, PodPool podPool);
 }
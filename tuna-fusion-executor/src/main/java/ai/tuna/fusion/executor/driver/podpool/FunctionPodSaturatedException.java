@@ -0,0 +1,23 @@
+package ai.tuna.fusion.executor.driver.podpool;
+
+import ai.tuna.fusion.metadata.crd.podpool.PodFunction;
+import ai.tuna.fusion.metadata.crd.podpool.PodPool;
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * All pods of a function are running as many runs as they allow, and the request cannot be queued any longer. Callers should retry after
+ * {@link #getRetryAfter()}.
+ *
+ * @author robinqu
+ */
+public class FunctionPodSaturatedException extends FunctionPodAccessException {
+    @Getter
+    private final Duration retryAfter;
+
+    public FunctionPodSaturatedException(String message, Duration retryAfter, PodPool podPool, PodFunction podFunction) {
+        super(message, podPool, podFunction);
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,43 @@
+package ai.tuna.fusion.executor.driver.podpool;
+
+import java.time.Duration;
+
+/**
+ * Exponentially weighted moving average of latency, decayed by time rather than by number of samples, so that a pod that served few
+ * requests recently is still judged by its recent latency.
+ *
+ * @author robinqu
+ */
+public class LatencyEwma {
+    private final double decayNanos;
+    private double value;
+    private long lastSampleNanos;
+    private boolean sampled;
+
+    /**
+     * @param decay weight of a sample drops to {@code 1/e} after this period
+     */
+    public LatencyEwma(Duration decay) {
+        this.decayNanos = Math.max(1, decay.toNanos());
+    }
+
+    public synchronized void record(Duration latency) {
+        var now = System.nanoTime();
+        var sample = (double) latency.toNanos();
+        if (!sampled) {
+            value = sample;
+            sampled = true;
+        } else {
+            var weight = Math.exp(-(now - lastSampleNanos) / decayNanos);
+            value = value * weight + sample * (1 - weight);
+        }
+        lastSampleNanos = now;
+    }
+
+    /**
+     * @return average latency in milliseconds, or 0 if nothing is recorded
+     */
+    public synchronized double getMillis() {
+        return value / 1_000_000;
+    }
+}
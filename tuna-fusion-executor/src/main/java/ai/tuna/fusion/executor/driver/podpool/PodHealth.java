@@ -0,0 +1,115 @@
+package ai.tuna.fusion.executor.driver.podpool;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Passive health of a specialized pod, judged from responses of proxied runs, i.e. a circuit breaker of the pod.
+ * <p>
+ * A pod is ejected from routing for a backoff window after {@code consecutiveFailures} failures in a row, e.g. 5xx responses or connection
+ * resets, or once it's found to be a latency outlier among pods of its build. The window grows with each ejection. After the window, the pod
+ * is on probation, and a single failure ejects it again until a run succeeds. A pod ejected {@code maxEjections} times is unhealthy and
+ * should be disposed.
+ *
+ * @author robinqu
+ */
+public class PodHealth {
+    public enum State {
+        HEALTHY,
+        EJECTED,
+        PROBATION,
+        UNHEALTHY
+    }
+
+    private final int maxConsecutiveFailures;
+    private final Duration baseEjectionTime;
+    private final int maxEjections;
+    private int consecutiveFailures;
+    private int ejections;
+    private Instant ejectedUntil;
+    private boolean probation;
+    private String lastFailure;
+
+    /**
+     * @param maxConsecutiveFailures failures in a row that eject the pod
+     * @param baseEjectionTime ejection window, which is multiplied by number of ejections
+     * @param maxEjections ejections that make the pod unhealthy
+     */
+    public PodHealth(int maxConsecutiveFailures, Duration baseEjectionTime, int maxEjections) {
+        this.maxConsecutiveFailures = maxConsecutiveFailures;
+        this.baseEjectionTime = baseEjectionTime;
+        this.maxEjections = maxEjections;
+        this.ejectedUntil = Instant.EPOCH;
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        probation = false;
+    }
+
+    /**
+     * @return true if the pod is ejected by this failure
+     */
+    public synchronized boolean recordFailure(String reason) {
+        lastFailure = reason;
+        consecutiveFailures++;
+        if (isEjected()) {
+            return false;
+        }
+        if (probation || consecutiveFailures >= maxConsecutiveFailures) {
+            eject(reason);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Eject the pod for a window of {@code baseEjectionTime} multiplied by number of ejections.
+     */
+    public synchronized void eject(String reason) {
+        lastFailure = reason;
+        ejections++;
+        consecutiveFailures = 0;
+        probation = true;
+        ejectedUntil = Instant.now().plus(baseEjectionTime.multipliedBy(ejections));
+    }
+
+    public synchronized boolean isEjected() {
+        return Instant.now().isBefore(ejectedUntil);
+    }
+
+    public synchronized boolean isUnhealthy() {
+        return ejections >= maxEjections;
+    }
+
+    public synchronized State getState() {
+        if (isUnhealthy()) {
+            return State.UNHEALTHY;
+        }
+        if (isEjected()) {
+            return State.EJECTED;
+        }
+        return probation ? State.PROBATION : State.HEALTHY;
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+
+    public synchronized int getEjections() {
+        return ejections;
+    }
+
+    public synchronized Instant getEjectedUntil() {
+        return ejectedUntil;
+    }
+
+    public synchronized String getLastFailure() {
+        return lastFailure;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "PodHealth(state=%s, consecutiveFailures=%s, ejections=%s)".formatted(getState(), consecutiveFailures, ejections);
+    }
+}
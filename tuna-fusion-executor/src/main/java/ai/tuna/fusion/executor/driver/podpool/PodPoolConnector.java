@@ -1,14 +1,38 @@
 package ai.tuna.fusion.executor.driver.podpool;
 
 import ai.tuna.fusion.metadata.crd.podpool.PodFunction;
+import ai.tuna.fusion.metadata.crd.podpool.PodFunctionBuild;
+import reactor.core.publisher.Mono;
 
 /**
  * @author robinqu
  */
-public interface PodPoolConnector {
+public interface PodPoolConnector extends AutoCloseable {
 
     PodAccess requestAccess(PodFunction podFunction) throws FunctionPodAccessException;
 
+    /**
+     * Non-blocking variant of {@link #requestAccess(PodFunction)} which claims a generic pod and specializes it without blocking the caller.
+     */
+    Mono<PodAccess> requestAccessAsync(PodFunction podFunction);
+
+    /**
+     * Claim a generic pod and specialize it with given build, which may differ from the effective build of function during build cutover.
+     */
+    Mono<PodAccess> requestAccessAsync(PodFunction podFunction, PodFunctionBuild build);
+
     void disposeAccess(PodAccess podAccess) throws FunctionPodDisposalException;
 
+    /**
+     * Reset runtime of the specialized pod and return it to generic pods, instead of deleting it.
+     * @return false if the pod is not recyclable or recycling fails, in which case the pod should be disposed
+     */
+    boolean recycleAccess(PodAccess podAccess);
+
+    /**
+     * Release resources held by connector, e.g. event subscriptions. Connector should not be used after closed.
+     */
+    @Override
+    void close();
+
 }
@@ -0,0 +1,38 @@
+package ai.tuna.fusion.executor.driver.podpool;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A single run reserved from a pod by {@link CountedPodAccess#tryReserve()}. The access is shared by all runs of the pod, so the run is
+ * closed through this handle, which gives its in-flight slot back exactly once however many times it's closed.
+ *
+ * @author robinqu
+ */
+@ToString(of = "access")
+public class PodRun implements AutoCloseable {
+    @Getter
+    private final CountedPodAccess access;
+    private final AtomicBoolean closed;
+
+    PodRun(CountedPodAccess access) {
+        this.access = access;
+        this.closed = new AtomicBoolean(false);
+    }
+
+    public boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Finish the run. Calls after the first one are ignored.
+     */
+    @Override
+    public void close() throws FunctionPodDisposalException {
+        if (closed.compareAndSet(false, true)) {
+            access.finishRun();
+        }
+    }
+}
@@ -9,6 +9,7 @@ import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.scheduler.Schedulers;
 
 import java.util.Map;
 import java.util.Objects;
@@ -26,9 +27,17 @@ public abstract class AbstractPodPoolConnectorFactory implements PodPoolConnecto
     @Getter(AccessLevel.PROTECTED)
     private final Map<String, PodPoolConnector> podPoolConnectors;
 
+    /**
+     * Shared with other handlers of pod events, so that pod informers keep a single event handler.
+     */
+    @Getter
+    private final PodEventDispatcher podEventDispatcher;
+
     public AbstractPodPoolConnectorFactory(PodPoolResources podPoolResources) {
         this.podPoolResources = podPoolResources;
         this.podPoolConnectors = new ConcurrentHashMap<>(128);
+        this.podEventDispatcher = new PodEventDispatcher(podPoolResources.pod());
+        this.podEventDispatcher.start();
         this.podPoolResources.podPool().addEventHandler(this);
     }
 
@@ -53,6 +62,7 @@ public abstract class AbstractPodPoolConnectorFactory implements PodPoolConnecto
             log.info("[onAdd] PodPoolConnector created for PodPool {}", ResourceUtils.computeResourceMetaKey(obj));
         } else {
             log.warn("[onAdd] Possible conflicted PodPool:  {}", ResourceUtils.computeResourceMetaKey(obj));
+            closeAsync(ret);
         }
     }
 
@@ -65,9 +75,27 @@ public abstract class AbstractPodPoolConnectorFactory implements PodPoolConnecto
     public void onDelete(PodPool obj, boolean deletedFinalStateUnknown) {
         var ret = podPoolConnectors.remove(ResourceUtils.computeResourceMetaKey(obj));
         if (Objects.nonNull(ret)) {
+            closeAsync(ret);
             log.info("[onDelete] PodPoolConnector removed for PodPool {}", ResourceUtils.computeResourceMetaKey(obj));
         } else {
             log.warn("[onDelete] PodPoolConnector not found for PodPool {}", ResourceUtils.computeResourceMetaKey(obj));
         }
     }
+
+    /**
+     * Close connector off the informer thread, as closing may wait for reserved pods to be released.
+     */
+    private void closeAsync(PodPoolConnector connector) {
+        Schedulers.boundedElastic().schedule(connector::close);
+    }
+
+    /**
+     * Stop watching PodPools and close all connectors.
+     */
+    public void close() {
+        podPoolResources.podPool().removeEventHandler(this);
+        podEventDispatcher.stop();
+        podPoolConnectors.values().forEach(PodPoolConnector::close);
+        podPoolConnectors.clear();
+    }
 }
@@ -1,60 +1,160 @@
 package ai.tuna.fusion.executor.driver.podpool.impl;
 
+import ai.tuna.fusion.executor.ExecutorProperties;
 import ai.tuna.fusion.executor.driver.podpool.FunctionPodAccessException;
 import ai.tuna.fusion.executor.driver.podpool.FunctionPodDisposalException;
+import ai.tuna.fusion.executor.driver.podpool.FunctionPodSaturatedException;
 import ai.tuna.fusion.executor.driver.podpool.PodAccess;
 import ai.tuna.fusion.executor.driver.podpool.PodPoolConnector;
-import ai.tuna.fusion.metadata.crd.PodPoolResourceUtils;
 import ai.tuna.fusion.metadata.crd.ResourceUtils;
 import ai.tuna.fusion.metadata.crd.podpool.PodFunction;
+import ai.tuna.fusion.metadata.crd.podpool.PodFunctionBuild;
 import ai.tuna.fusion.metadata.crd.podpool.PodFunctionBuildStatus;
 import ai.tuna.fusion.metadata.crd.podpool.PodFunctionStatus;
 import ai.tuna.fusion.metadata.crd.podpool.PodPool;
+import ai.tuna.fusion.metadata.crd.podpool.PodPoolSpec;
 import ai.tuna.fusion.metadata.informer.PodPoolResources;
-import com.google.common.base.Preconditions;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.client.KubernetesClientException;
-import io.fabric8.kubernetes.client.dsl.base.PatchContext;
-import io.fabric8.kubernetes.client.dsl.base.PatchType;
 import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import io.fabric8.kubernetes.client.utils.URLUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.Strings;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
-import org.springframework.http.client.JdkClientHttpRequestFactory;
-import org.springframework.web.client.RestClient;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.JdkClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
 
 import java.net.http.HttpClient;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static ai.tuna.fusion.metadata.crd.podpool.PodPool.*;
 
 /**
+ * PodPoolConnector that claims generic pods by patching their labels through API server.
+ * <p>
+ * Up to {@link PodPoolSpec#getReservedPodsPerExecutor()} generic pods are claimed ahead of requests and labeled with
+ * {@link PodPool#RESERVED_BY_LABEL_NAME}, so that specialization of a reserved pod can run in parallel with its label patch, instead of
+ * waiting for a contended claim in front of it. Reservations are renewed by owning executor, and reservations left behind by crashed
+ * executors are released to generic pods by any executor after twice of {@link ExecutorProperties.Connector#getReservationTtl()}.
+ * <p>
+ * With {@link ExecutorProperties.Sharding} enabled, generic pods are partitioned among executor replicas by {@link ExecutorMembership}, and
+ * each executor claims pods of its own partition, so that replicas don't conflict on claims. Pods of other partitions are claimed only after
+ * the first claim attempt finds no pod of its own partition ready.
+ * <p>
+ * Within each partition, ready pods in the zone of this executor are claimed and reserved first, see {@link PodTopology}.
+ * <p>
+ * In activator mode, requests are buffered by {@link PodActivator} while no generic pod is ready, e.g. as the pool is scaled from zero, and
+ * are woken as generic pods become ready.
+ * <p>
+ * Retired specialized pods can be recycled up to {@link PodPoolSpec#getRecyclesPerPod()} times, i.e. their runtime is reset and they are
+ * labeled as generic pods again, which saves pod scheduling, image pulling and readiness wait of a new pod.
+ *
  * @author robinqu
  */
 @Slf4j
 public class ApiServerPodPoolConnectorImpl implements PodPoolConnector, ResourceEventHandler<Pod> {
+    private static final int MAX_POLL_RETRIES = 3;
+    private static final Duration POLL_TIMEOUT = Duration.ofSeconds(5);
+    private static final String JSON_PATCH_CONTENT_TYPE = "application/json-patch+json";
+    private static final Duration RELEASE_TIMEOUT = Duration.ofSeconds(10);
+    private static final Duration RECYCLE_TIMEOUT = Duration.ofSeconds(10);
+
     private final PodPoolResources podPoolResources;
-    private final BlockingQueue<String> queue;
+    private final GenericPodReadySet readySet;
+
+    /**
+     * ready generic pods owned by other executors
+     */
+    private final GenericPodReadySet foreignReadySet;
+    private final ExecutorMembership membership;
+    private final Runnable rebalanceListener;
     private final PodPool podPool;
-    private final RestClient restClient;
+    private final WebClient webClient;
+    private final PodEventDispatcher podEventDispatcher;
+    private final GenericPodReadySet reserveSet;
+    private final String identity;
+    private final Duration reservationTtl;
+    private final AtomicBoolean refilling;
+    private final Disposable.Composite reserveTasks;
+    private final SpecializationLimiter specializationLimiter;
 
-    public ApiServerPodPoolConnectorImpl(PodPoolResources podPoolResources, PodPool podPool) {
+    /**
+     * buffers requests while no generic pod is ready, or null if activator mode is disabled
+     */
+    private final PodActivator activator;
+    private final Duration retryAfter;
+    private final PodTopology topology;
+
+    public ApiServerPodPoolConnectorImpl(PodPoolResources podPoolResources, PodEventDispatcher podEventDispatcher, ExecutorProperties executorProperties, SpecializationLimiter specializationLimiter, PodActivator activator, ExecutorMembership membership, PodTopology topology, PodPool podPool) {
         HttpClient httpClient = HttpClient.newBuilder()
                 .version(HttpClient.Version.HTTP_1_1)
                 .connectTimeout(Duration.ofSeconds(10))
                 .build();
-        this.restClient = RestClient.builder()
-                .requestFactory(new JdkClientHttpRequestFactory(httpClient))
+        this.webClient = WebClient.builder()
+                .clientConnector(new JdkClientHttpConnector(httpClient))
                 .build();
         this.podPoolResources = podPoolResources;
         this.podPool = podPool;
-        this.queue = new LinkedBlockingQueue<>();
-        podPoolResources.pod().addEventHandler(this);
+        this.topology = topology;
+        this.readySet = new GenericPodReadySet(this::isLocalPod);
+        this.foreignReadySet = new GenericPodReadySet(this::isLocalPod);
+        this.membership = membership;
+        this.rebalanceListener = this::rebalance;
+        this.podEventDispatcher = podEventDispatcher;
+        this.reserveSet = new GenericPodReadySet();
+        this.identity = executorProperties.getIdentity();
+        this.reservationTtl = executorProperties.getConnector().getReservationTtl();
+        this.refilling = new AtomicBoolean(false);
+        this.reserveTasks = Disposables.composite();
+        this.specializationLimiter = specializationLimiter;
+        this.activator = activator;
+        this.retryAfter = executorProperties.getAdmission().getRetryAfter();
+        podEventDispatcher.subscribe(podPool, this);
+        membership.addListener(rebalanceListener);
+        reserveTasks.add(Flux.interval(executorProperties.getConnector().getReserveRefillInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> renewReservations()
+                        .then(releaseStaleReservations())
+                        .then(refillReserve())
+                        .onErrorResume(e -> {
+                            log.error("[reserve] Failed to maintain reserved pods for PodPool {}", ResourceUtils.computeResourceMetaKey(podPool), e);
+                            return Mono.empty();
+                        }))
+                .subscribe());
+    }
+
+    /**
+     * Stop maintaining reserved pods and release them as generic pods, so that they can be claimed by other executors.
+     */
+    @Override
+    public void close() {
+        log.info("[close] Close PodPoolConnector for PodPool {}", ResourceUtils.computeResourceMetaKey(podPool));
+        podEventDispatcher.unsubscribe(podPool, this);
+        membership.removeListener(rebalanceListener);
+        reserveTasks.dispose();
+        try {
+            releaseReservedPods(Integer.MAX_VALUE).block(RELEASE_TIMEOUT);
+        } catch (RuntimeException e) {
+            log.warn("[close] Failed to release reserved pods of PodPool {}", ResourceUtils.computeResourceMetaKey(podPool), e);
+        }
     }
 
     @Override
@@ -64,47 +164,207 @@ public class ApiServerPodPoolConnectorImpl implements PodPoolConnector, Resource
         ResourceUtils.deleteResource(podPoolResources.getKubernetesClient(), podAccess.getNamespace(), pod.getMetadata().getName(), Pod.class, 3);
     }
 
+    @Override
+    public boolean recycleAccess(PodAccess podAccess) {
+        var podKey = ResourceUtils.computeResourceMetaKey(podAccess.getSelectedPod());
+        var pod = podPoolResources.queryPod(podAccess.getNamespace(), podAccess.getSelectedPod().getMetadata().getName())
+                .filter(this::isRecyclable);
+        if (pod.isEmpty()) {
+            return false;
+        }
+        var recycleCount = recycleCount(pod.get()) + 1;
+        try {
+            callReset(pod.get())
+                    .then(patchPod(pod.get(), computeRecyclePatch(pod.get(), recycleCount)))
+                    .block(RECYCLE_TIMEOUT);
+        } catch (RuntimeException e) {
+            log.warn("[recycleAccess] Failed to recycle pod {}", podKey, e);
+            return false;
+        }
+        log.info("[recycleAccess] Specialized pod {} is recycled as generic pod. recycleCount={}", podKey, recycleCount);
+        return true;
+    }
+
+    /**
+     * Only ready pods that are neither terminating nor expired, and have been recycled less than {@link PodPoolSpec#getRecyclesPerPod()} times.
+     */
+    private boolean isRecyclable(Pod pod) {
+        var spec = podPoolResources.queryPodPool(podPool.getMetadata().getNamespace(), podPool.getMetadata().getName())
+                .map(PodPool::getSpec)
+                .orElse(podPool.getSpec());
+        var recyclesPerPod = Optional.ofNullable(spec.getRecyclesPerPod()).orElse(0);
+        return recycleCount(pod) < recyclesPerPod
+                && Strings.CS.equals(label(pod, SPECIALIZED_POD_LABEL_VALUE), "true")
+                && pod.getMetadata().getDeletionTimestamp() == null
+                && isReadyPod(pod)
+                && PodExpiryScheduler.computeDeadline(pod, spec.getTtlPerPod()).isAfter(Instant.now());
+    }
+
+    private static int recycleCount(Pod pod) {
+        try {
+            return Integer.parseInt(label(pod, RECYCLE_COUNT_LABEL_NAME));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * The patch tests build label, so it fails if the pod has been changed by others meanwhile. Run accounting of {@link PodRunLedger} is
+     * removed as well, so that the pod is not taken as exhausted or adopted by others before it's specialized again.
+     */
+    private String computeRecyclePatch(Pod pod, int recycleCount) {
+        var patch = PodLabelPatch.create()
+                .test(SPECIALIZED_POD_LABEL_VALUE, "true")
+                .test(SPECIALIZED_POD_FUNCTION_BUILD_ID_LABEL_VALUE, label(pod, SPECIALIZED_POD_FUNCTION_BUILD_ID_LABEL_VALUE))
+                .remove(SPECIALIZED_POD_LABEL_VALUE)
+                .remove(SPECIALIZED_POD_FUNCTION_NAME_LABEL_VALUE)
+                .remove(SPECIALIZED_POD_FUNCTION_BUILD_ID_LABEL_VALUE)
+                .add(RECYCLE_COUNT_LABEL_NAME, String.valueOf(recycleCount))
+                .add(GENERIC_POD_LABEL_NAME, "true");
+        Optional.ofNullable(pod.getMetadata().getAnnotations())
+                .ifPresent(annotations -> annotations.keySet().stream()
+                        .filter(PodRunLedger::isAccountingAnnotation)
+                        .forEach(patch::removeAnnotation));
+        return patch.build();
+    }
+
+    private Mono<ResponseEntity<String>> callReset(Pod pod) {
+        return webClient.post()
+                .uri(ResourceUtils.getPodUri(pod, "/reset"))
+                .retrieve()
+                .toEntity(String.class);
+    }
+
     @Override
     public PodAccess requestAccess(PodFunction function) throws FunctionPodAccessException {
-        log.debug("[requestAccess] fn={}", ResourceUtils.computeResourceMetaKey(function));
-        var effectiveBuild = Optional.ofNullable(function.getStatus())
+        try {
+            return requestAccessAsync(function).block();
+        } catch (RuntimeException e) {
+            if (Exceptions.unwrap(e) instanceof FunctionPodAccessException accessException) {
+                throw accessException;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Mono<PodAccess> requestAccessAsync(PodFunction function) {
+        return Mono.defer(() -> Optional.ofNullable(function.getStatus())
                 .map(PodFunctionStatus::getEffectiveBuild)
                 .flatMap(buildInfo -> podPoolResources.queryPodFunctionBuild(podPool.getMetadata().getNamespace(), buildInfo.getName()))
-                .orElseThrow(() -> new FunctionPodAccessException("Cannot find effectiveBuild", podPool, function));
-
-        String patch = String.format(
-                "[{\"op\": \"test\", \"path\": \"/metadata/labels/%s\", \"value\": \"%s\"}," +
-                        "{\"op\": \"add\", \"path\": \"/metadata/labels/%s\", \"value\": \"%s\"}," +
-                        "{\"op\": \"add\", \"path\": \"/metadata/labels/%s\", \"value\": \"%s\"}," +
-                        "{\"op\": \"add\", \"path\": \"/metadata/labels/%s\", \"value\": \"%s\"}," +
-                        "{\"op\": \"remove\", \"path\": \"/metadata/labels/%s\"}]",
-                encodeJsonPointer(GENERIC_POD_LABEL_NAME), "true",
-                encodeJsonPointer(SPECIALIZED_POD_LABEL_VALUE), "true",
-                encodeJsonPointer(SPECIALIZED_POD_FUNCTION_NAME_LABEL_VALUE), function.getMetadata().getName(),
-                encodeJsonPointer(SPECIALIZED_POD_FUNCTION_BUILD_ID_LABEL_VALUE), effectiveBuild.getMetadata().getUid(),
-                encodeJsonPointer(GENERIC_POD_LABEL_NAME));
-        var pod = poll(Duration.ofSeconds(5), patch)
-                .orElseThrow(()-> new FunctionPodAccessException("Cannot find available Generic Pod", podPool, function));
-
-        var deployArchive = Optional.ofNullable(effectiveBuild.getStatus())
-                .map(PodFunctionBuildStatus::getDeployArchive)
-                .orElseThrow(()-> FunctionPodAccessException.of(podPool, function, "No effective build found for pod function " + function.getMetadata().getName()));
-        var request = PodSpecializeRequest.builder()
-                .deployArchive(deployArchive)
-                .entrypoint(function.getSpec().getEntrypoint())
-                .appType(function.getSpec().getAppType())
+                .map(effectiveBuild -> requestAccessAsync(function, effectiveBuild))
+                .orElseGet(() -> Mono.error(new FunctionPodAccessException("Cannot find effectiveBuild", podPool, function))));
+    }
+
+    @Override
+    public Mono<PodAccess> requestAccessAsync(PodFunction function, PodFunctionBuild build) {
+        return Mono.defer(() -> {
+            log.debug("[requestAccessAsync] fn={}, build={}", ResourceUtils.computeResourceMetaKey(function), build.getMetadata().getName());
+            var deployArchive = Optional.ofNullable(build.getStatus())
+                    .map(PodFunctionBuildStatus::getDeployArchive);
+            if (deployArchive.isEmpty()) {
+                return Mono.error(FunctionPodAccessException.of(podPool, function, "No deploy archive found in build " + build.getMetadata().getName()));
+            }
+            var request = PodSpecializeRequest.builder()
+                    .deployArchive(deployArchive.get())
+                    .entrypoint(function.getSpec().getEntrypoint())
+                    .appType(function.getSpec().getAppType())
+                    .build();
+            // claims are limited as well, so that a burst doesn't drain generic pods
+            return awaitActivation(function).then(specializationLimiter.run(() -> claimReservedPod(function, build, request)
+                            .switchIfEmpty(Mono.defer(() -> pollAsync(POLL_TIMEOUT, computeClaimPatch(function, build))
+                                    .switchIfEmpty(Mono.error(() -> new FunctionPodAccessException("Cannot find available Generic Pod", podPool, function)))
+                                    .flatMap(pod -> callSpecialize(pod, function, request)
+                                            .map(response -> toPodAccess(pod, function, build)))))))
+                    .onErrorMap(SpecializationLimiter.SpecializationRejectedException.class, e -> new FunctionPodAccessException(e.getMessage(), e, podPool, function));
+        });
+    }
+
+    /**
+     * Buffer the request while no generic pod is ready, e.g. as the pool is scaled from zero. Requests queue behind buffered ones, so that
+     * they are served in arrival order.
+     */
+    private Mono<Void> awaitActivation(PodFunction function) {
+        if (activator == null || (activator.getBuffered() == 0 && (reserveSet.size() + readySet.size() + foreignReadySet.size()) > 0)) {
+            return Mono.empty();
+        }
+        log.debug("[awaitActivation] No generic pod is ready for PodPool {}. buffered={}", ResourceUtils.computeResourceMetaKey(podPool), activator.getBuffered());
+        return activator.await()
+                .onErrorMap(PodActivator.ActivationRejectedException.class, e -> new FunctionPodSaturatedException(e.getMessage(), retryAfter, podPool, function));
+    }
+
+    private String computeClaimPatch(PodFunction function, PodFunctionBuild effectiveBuild) {
+        return PodLabelPatch.create()
+                .test(GENERIC_POD_LABEL_NAME, "true")
+                .add(SPECIALIZED_POD_LABEL_VALUE, "true")
+                .add(SPECIALIZED_POD_FUNCTION_NAME_LABEL_VALUE, function.getMetadata().getName())
+                .add(SPECIALIZED_POD_FUNCTION_BUILD_ID_LABEL_VALUE, effectiveBuild.getMetadata().getUid())
+                .remove(GENERIC_POD_LABEL_NAME)
+                .build();
+    }
+
+    private String computeReservedClaimPatch(PodFunction function, PodFunctionBuild effectiveBuild) {
+        return PodLabelPatch.create()
+                .test(RESERVED_BY_LABEL_NAME, identity)
+                .add(SPECIALIZED_POD_LABEL_VALUE, "true")
+                .add(SPECIALIZED_POD_FUNCTION_NAME_LABEL_VALUE, function.getMetadata().getName())
+                .add(SPECIALIZED_POD_FUNCTION_BUILD_ID_LABEL_VALUE, effectiveBuild.getMetadata().getUid())
+                .remove(RESERVED_BY_LABEL_NAME)
+                .remove(RESERVED_AT_LABEL_NAME)
                 .build();
-        var responseSpec = restClient.post()
+    }
+
+    /**
+     * Specialize a pod reserved by this executor. As the pod is already owned by this executor, the label patch and specialization request
+     * are sent concurrently. The pod is deleted if either fails, as its labels and runtime state can no longer be trusted.
+     */
+    private Mono<PodAccess> claimReservedPod(PodFunction function, PodFunctionBuild effectiveBuild, PodSpecializeRequest request) {
+        return Mono.defer(() -> {
+            var reservedPod = reserveSet.poll()
+                    .flatMap(podKey -> {
+                        var parsed = ResourceUtils.parseResourceMetaKey(podKey);
+                        return podPoolResources.queryPod(parsed.getLeft(), parsed.getRight());
+                    });
+            if (reservedPod.isEmpty()) {
+                return Mono.empty();
+            }
+            triggerRefill();
+            var pod = reservedPod.get();
+            log.debug("[claimReservedPod] fn={}, pod={}", ResourceUtils.computeResourceMetaKey(function), ResourceUtils.computeResourceMetaKey(pod));
+            return Mono.zip(patchPod(pod, computeReservedClaimPatch(function, effectiveBuild)), callSpecialize(pod, function, request))
+                    .map(tuple -> toPodAccess(tuple.getT1(), function, effectiveBuild))
+                    .onErrorResume(e -> {
+                        log.warn("[claimReservedPod] Failed to specialize reserved pod {}. Fallback to generic pods.", ResourceUtils.computeResourceMetaKey(pod), e);
+                        Mono.fromRunnable(() -> ResourceUtils.deleteResource(podPoolResources.getKubernetesClient(), pod.getMetadata().getNamespace(), pod.getMetadata().getName(), Pod.class, 3))
+                                .subscribeOn(Schedulers.boundedElastic())
+                                .subscribe(null, error -> log.error("[claimReservedPod] Failed to delete pod {}", ResourceUtils.computeResourceMetaKey(pod), error));
+                        return Mono.empty();
+                    });
+        });
+    }
+
+    private Mono<ResponseEntity<String>> callSpecialize(Pod pod, PodFunction function, PodSpecializeRequest request) {
+        return webClient.post()
                 .uri(ResourceUtils.getPodUri(pod, "/specialize"))
                 .contentType(MediaType.APPLICATION_JSON)
-                .body(request)
-                .retrieve();
-        var response = responseSpec.toEntity(String.class);
-        if (response.getStatusCode() != HttpStatusCode.valueOf(200)) {
-            log.debug("[requestAccess] Non-200 response with specialization request: {}", response.getBody());
-            throw FunctionPodAccessException.of(podPool, function, "Failed to specialize pod function " + function.getMetadata().getName());
-        }
-        log.debug("[requestAccess] Access acquired: fn={}, pod={}", ResourceUtils.computeResourceMetaKey(function), ResourceUtils.computeResourceMetaKey(pod));
+                .bodyValue(request)
+                .retrieve()
+                .toEntity(String.class)
+                .onErrorMap(WebClientResponseException.class, e -> {
+                    log.debug("[callSpecialize] Non-200 response with specialization request: {}", e.getResponseBodyAsString());
+                    return new FunctionPodAccessException("Failed to specialize pod function " + function.getMetadata().getName(), e, podPool, function);
+                })
+                .flatMap(response -> {
+                    if (response.getStatusCode() != HttpStatusCode.valueOf(200)) {
+                        log.debug("[callSpecialize] Non-200 response with specialization request: {}", response.getBody());
+                        return Mono.error(FunctionPodAccessException.of(podPool, function, "Failed to specialize pod function " + function.getMetadata().getName()));
+                    }
+                    return Mono.just(response);
+                });
+    }
+
+    private PodAccess toPodAccess(Pod pod, PodFunction function, PodFunctionBuild effectiveBuild) {
+        log.debug("[toPodAccess] Access acquired: fn={}, pod={}", ResourceUtils.computeResourceMetaKey(function), ResourceUtils.computeResourceMetaKey(pod));
         return PodAccess.builder()
                 .selectedPod(pod)
                 .uri(ResourceUtils.getPodUri(pod))
@@ -117,42 +377,239 @@ public class ApiServerPodPoolConnectorImpl implements PodPoolConnector, Resource
                 .build();
     }
 
-    public Optional<Pod> poll(Duration timeout, String podPatch) {
-        int retries = 0;
-        int MAX_POLL_RETRIES = 3;
-        while (retries++ < MAX_POLL_RETRIES) {
-            try {
-                var podKey = queue.poll(timeout.getSeconds(), TimeUnit.SECONDS);
-                Preconditions.checkNotNull(podKey, "should have polled valid podKey");
-                log.debug("[poll] podKey={}", podKey);
-                var parsed = ResourceUtils.parseResourceMetaKey(podKey);
-                try {
-                    var selectedPod = podPoolResources.queryPod(parsed.getLeft(), parsed.getRight())
-                            .orElseThrow(()-> new IllegalStateException("Cannot find Pod in informer cache"));
-                    return Optional.ofNullable(podPoolResources.getKubernetesClient().resource(selectedPod)
-                            .inNamespace(podPool.getMetadata().getNamespace())
-                            .patch(PatchContext.of(PatchType.JSON), podPatch));
-                } catch (KubernetesClientException e) {
-                    if (e.getCode() == 422) {
-                        log.warn("Update conflict for patching pod. Retries {} of {}.", retries, MAX_POLL_RETRIES, e);
-                    }
-                    log.error("Unhandled K8S API error. Retries {} of {}.", retries, MAX_POLL_RETRIES, e);
-                } catch (Exception e) {
-                    log.error("Uncaught exception. Retries {} of {}.", retries, MAX_POLL_RETRIES, e);
+    private int reserveTarget() {
+        return podPoolResources.queryPodPool(podPool.getMetadata().getNamespace(), podPool.getMetadata().getName())
+                .map(PodPool::getSpec)
+                .map(PodPoolSpec::getReservedPodsPerExecutor)
+                .orElse(0);
+    }
+
+    private void triggerRefill() {
+        refillReserve().subscribe(null, e -> log.error("[triggerRefill] Failed to refill reserved pods for PodPool {}", ResourceUtils.computeResourceMetaKey(podPool), e));
+    }
+
+    /**
+     * Top up reserved pods to target size, or release surplus ones if target is lowered. Only pods that are ready right now are reserved,
+     * so that refilling never competes with requests waiting for generic pods.
+     */
+    private Mono<Void> refillReserve() {
+        return Mono.defer(() -> {
+            if (!refilling.compareAndSet(false, true)) {
+                return Mono.empty();
+            }
+            var deficit = reserveTarget() - reserveSet.size();
+            if (deficit < 0) {
+                return releaseReservedPods(-deficit)
+                        .doFinally(signalType -> refilling.set(false));
+            }
+            List<String> podKeys = new ArrayList<>();
+            while (podKeys.size() < deficit) {
+                var podKey = readySet.poll();
+                if (podKey.isEmpty()) {
+                    break;
                 }
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
+                podKeys.add(podKey.get());
             }
+            return Flux.fromIterable(podKeys)
+                    .flatMap(this::reservePod)
+                    .then()
+                    .doFinally(signalType -> refilling.set(false));
+        });
+    }
+
+    private Mono<Void> reservePod(String podKey) {
+        var parsed = ResourceUtils.parseResourceMetaKey(podKey);
+        var patch = PodLabelPatch.create()
+                .test(GENERIC_POD_LABEL_NAME, "true")
+                .add(RESERVED_BY_LABEL_NAME, identity)
+                .add(RESERVED_AT_LABEL_NAME, String.valueOf(Instant.now().getEpochSecond()))
+                .remove(GENERIC_POD_LABEL_NAME)
+                .build();
+        return Mono.justOrEmpty(podPoolResources.queryPod(parsed.getLeft(), parsed.getRight()))
+                .flatMap(pod -> patchPod(pod, patch))
+                .doOnNext(pod -> {
+                    reserveSet.offer(podKey);
+                    log.info("[reservePod] Pod {} is reserved by {}", podKey, identity);
+                })
+                .onErrorResume(KubernetesClientException.class, e -> {
+                    // pod is still generic unless it's claimed by others
+                    if (e.getCode() != 422) {
+                        offerReady(podKey);
+                    }
+                    log.warn("[reservePod] Failed to reserve pod {}", podKey, e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Release reserved pods back to generic pods.
+     */
+    private Mono<Void> releaseReservedPods(int count) {
+        return Flux.<String>generate(sink -> reserveSet.poll().ifPresentOrElse(sink::next, sink::complete))
+                .take(count)
+                .flatMap(podKey -> {
+                    var parsed = ResourceUtils.parseResourceMetaKey(podKey);
+                    return Mono.justOrEmpty(podPoolResources.queryPod(parsed.getLeft(), parsed.getRight()));
+                })
+                .flatMap(this::releaseReservation)
+                .then();
+    }
+
+    private Mono<Void> releaseReservation(Pod pod) {
+        var labels = pod.getMetadata().getLabels();
+        var patch = PodLabelPatch.create()
+                .test(RESERVED_BY_LABEL_NAME, labels.get(RESERVED_BY_LABEL_NAME))
+                .test(RESERVED_AT_LABEL_NAME, labels.get(RESERVED_AT_LABEL_NAME))
+                .add(GENERIC_POD_LABEL_NAME, "true")
+                .remove(RESERVED_BY_LABEL_NAME)
+                .remove(RESERVED_AT_LABEL_NAME)
+                .build();
+        return patchPod(pod, patch)
+                .doOnNext(patched -> log.info("[releaseReservation] Reservation of pod {} by {} is released", ResourceUtils.computeResourceMetaKey(pod), labels.get(RESERVED_BY_LABEL_NAME)))
+                .onErrorResume(KubernetesClientException.class, e -> {
+                    log.warn("[releaseReservation] Failed to release reservation of pod {}", ResourceUtils.computeResourceMetaKey(pod), e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Re-stamp reservations of this executor which are older than half of reservation TTL, so that they are not released by others.
+     * The patch tests old timestamp, so it fails if the pod has been claimed meanwhile.
+     */
+    private Mono<Void> renewReservations() {
+        var threshold = Instant.now().minus(reservationTtl.dividedBy(2)).getEpochSecond();
+        return Flux.fromIterable(listManagedPods())
+                .filter(this::isReservedByMe)
+                .filter(pod -> reservedAt(pod) < threshold)
+                .flatMap(pod -> patchPod(pod, PodLabelPatch.create()
+                                .test(RESERVED_BY_LABEL_NAME, identity)
+                                .test(RESERVED_AT_LABEL_NAME, label(pod, RESERVED_AT_LABEL_NAME))
+                                .add(RESERVED_AT_LABEL_NAME, String.valueOf(Instant.now().getEpochSecond()))
+                                .build())
+                        .onErrorResume(KubernetesClientException.class, e -> {
+                            log.warn("[renewReservations] Failed to renew reservation of pod {}", ResourceUtils.computeResourceMetaKey(pod), e);
+                            return Mono.empty();
+                        }))
+                .then();
+    }
+
+    /**
+     * Release reservations of other executors that are not renewed in twice of reservation TTL, e.g. reservations of crashed executors.
+     */
+    private Mono<Void> releaseStaleReservations() {
+        var threshold = Instant.now().minus(reservationTtl.multipliedBy(2)).getEpochSecond();
+        return Flux.fromIterable(listManagedPods())
+                .filter(pod -> label(pod, RESERVED_BY_LABEL_NAME) != null && !isReservedByMe(pod))
+                .filter(pod -> reservedAt(pod) < threshold)
+                .flatMap(this::releaseReservation)
+                .then();
+    }
+
+    private List<Pod> listManagedPods() {
+        return podPoolResources.pod().getSharedIndexInformer(podPool.getMetadata().getNamespace())
+                .map(informer -> informer.getStore().list().stream()
+                        .filter(pod -> Strings.CS.equals(pod.getMetadata().getNamespace(), podPool.getMetadata().getNamespace()))
+                        .filter(this::isManagedPod)
+                        .toList())
+                .orElse(List.of());
+    }
+
+    /**
+     * Take a generic pod from ready set and claim it with given JSON patch. Ready pods of other partitions are taken if none of this partition
+     * is ready, and a waiter is registered only if no pod is ready at all, which is completed as soon as a pod of this partition becomes ready.
+     * The claim is retried with another pod if no pod is ready in time or the patch fails, e.g. 422 conflicts caused by other executors claiming
+     * the same pod. Retries take ready pods of other partitions first, if any.
+     */
+    public Mono<Pod> pollAsync(Duration timeout, String podPatch) {
+        var attempts = new AtomicInteger();
+        return Mono.defer(() -> attempts.getAndIncrement() > 0
+                        ? foreignReadySet.poll().map(Mono::just).orElseGet(() -> awaitReadyPod(timeout))
+                        : awaitReadyPod(timeout))
+                .doOnNext(podKey -> log.debug("[pollAsync] podKey={}", podKey))
+                .flatMap(podKey -> {
+                    var parsed = ResourceUtils.parseResourceMetaKey(podKey);
+                    return podPoolResources.queryPod(parsed.getLeft(), parsed.getRight())
+                            .map(selectedPod -> patchPod(selectedPod, podPatch)
+                                    .doOnError(KubernetesClientException.class, e -> {
+                                        // pod is still generic unless it's claimed by others
+                                        if (e.getCode() != 422) {
+                                            offerReady(podKey);
+                                        }
+                                    }))
+                            .orElseGet(() -> Mono.error(new IllegalStateException("Cannot find Pod in informer cache")));
+                })
+                .retryWhen(Retry.max(MAX_POLL_RETRIES - 1)
+                        .doBeforeRetry(signal -> {
+                            if (signal.failure() instanceof TimeoutException) {
+                                log.warn("No generic pod is ready in {}s. Retries {} of {}.", timeout.getSeconds(), signal.totalRetries() + 1, MAX_POLL_RETRIES);
+                            } else if (signal.failure() instanceof KubernetesClientException e && e.getCode() == 422) {
+                                log.warn("Update conflict for patching pod. Retries {} of {}.", signal.totalRetries() + 1, MAX_POLL_RETRIES, e);
+                            } else {
+                                log.error("Uncaught exception. Retries {} of {}.", signal.totalRetries() + 1, MAX_POLL_RETRIES, signal.failure());
+                            }
+                        }))
+                .onErrorResume(Exceptions::isRetryExhausted, e -> {
+                    log.error("Failed to claim generic pod after {} retries.", MAX_POLL_RETRIES, e.getCause());
+                    return Mono.empty();
+                });
+    }
+
+    private Mono<String> awaitReadyPod(Duration timeout) {
+        var podKey = readySet.poll().or(foreignReadySet::poll);
+        if (podKey.isPresent()) {
+            return Mono.just(podKey.get());
         }
-        return Optional.empty();
+        var waiter = readySet.acquire();
+        return Mono.fromFuture(waiter, true)
+                .timeout(timeout)
+                .doFinally(signalType -> {
+                    if (signalType != SignalType.ON_COMPLETE) {
+                        readySet.release(waiter);
+                    }
+                });
+    }
+
+    /**
+     * Apply JSON patch to pod using the async HTTP client of fabric8, so that no thread is blocked while waiting for API server.
+     */
+    private Mono<Pod> patchPod(Pod pod, String jsonPatch) {
+        var client = podPoolResources.getKubernetesClient();
+        var httpClient = client.getHttpClient();
+        var request = httpClient.newHttpRequestBuilder()
+                .uri(URLUtils.join(client.getMasterUrl().toString(), "api", "v1", "namespaces", pod.getMetadata().getNamespace(), "pods", pod.getMetadata().getName()))
+                .method("PATCH", JSON_PATCH_CONTENT_TYPE, jsonPatch)
+                .build();
+        return Mono.fromFuture(() -> httpClient.sendAsync(request, String.class))
+                .<Pod>handle((response, sink) -> {
+                    if (response.isSuccessful()) {
+                        sink.next(client.getKubernetesSerialization().unmarshal(response.body(), Pod.class));
+                    } else {
+                        sink.error(new KubernetesClientException("Failed to patch pod %s: %s".formatted(ResourceUtils.computeResourceMetaKey(pod), response.body()), response.code(), null));
+                    }
+                });
+    }
+
+    private static String label(Pod pod, String name) {
+        var labels = pod.getMetadata().getLabels();
+        return labels == null ? null : labels.get(name);
     }
 
-    private static String encodeJsonPointer(String key) {
-        return key.replace("~", "~0").replace("/", "~1");
+    private static long reservedAt(Pod pod) {
+        try {
+            return Long.parseLong(label(pod, RESERVED_AT_LABEL_NAME));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
     }
 
     private boolean isManagedPod(Pod pod) {
-        return Strings.CS.equals(pod.getMetadata().getLabels().get(PodPool.POD_POOL_NAME_LABEL_NAME), podPool.getMetadata().getName());
+        return Strings.CS.equals(label(pod, PodPool.POD_POOL_NAME_LABEL_NAME), podPool.getMetadata().getName());
+    }
+
+    private boolean isReservedByMe(Pod pod) {
+        return Strings.CS.equals(label(pod, RESERVED_BY_LABEL_NAME), identity);
     }
 
     private boolean isReadyPod(Pod pod) {
@@ -160,41 +617,103 @@ public class ApiServerPodPoolConnectorImpl implements PodPoolConnector, Resource
                 .anyMatch(condition -> Strings.CS.equals(condition.getType(), "Ready") && Strings.CS.equals(condition.getStatus(), "True"));
     }
 
-    private boolean shouldAddToQueue(Pod pod) {
-        return isManagedPod(pod) && isReadyPod(pod);
+    private boolean isGenericPod(Pod pod) {
+        return Strings.CS.equals(label(pod, GENERIC_POD_LABEL_NAME), "true");
     }
 
-    private boolean existInQueue(Pod pod) {
-        return queue.contains(ResourceUtils.computeResourceMetaKey(pod));
+    private boolean shouldAddToReadySet(Pod pod) {
+        return isManagedPod(pod) && isGenericPod(pod) && isReadyPod(pod);
+    }
+
+    /**
+     * Pods in the zone of this executor are claimed and reserved first.
+     */
+    private boolean isLocalPod(String podKey) {
+        var parsed = ResourceUtils.parseResourceMetaKey(podKey);
+        return podPoolResources.queryPod(parsed.getLeft(), parsed.getRight())
+                .map(topology::isLocal)
+                .orElse(false);
+    }
+
+    private boolean isOwnedPod(String podKey) {
+        return membership.isOwner(podKey);
+    }
+
+    /**
+     * Put a ready generic pod into ready set of its partition.
+     * @return true if pod is added to either set
+     */
+    private boolean offerReady(String podKey) {
+        boolean added;
+        if (isOwnedPod(podKey)) {
+            foreignReadySet.remove(podKey);
+            added = readySet.offer(podKey);
+        } else {
+            readySet.remove(podKey);
+            added = foreignReadySet.offer(podKey);
+        }
+        if (added) {
+            Optional.ofNullable(activator).ifPresent(PodActivator::onPodReady);
+        }
+        return added;
+    }
+
+    /**
+     * Move ready generic pods between partitions once executor members change.
+     */
+    private void rebalance() {
+        var moved = 0;
+        for (var pod : listManagedPods()) {
+            if (!shouldAddToReadySet(pod)) {
+                continue;
+            }
+            var podKey = ResourceUtils.computeResourceMetaKey(pod);
+            var owned = isOwnedPod(podKey);
+            if (owned ? !readySet.contains(podKey) : !foreignReadySet.contains(podKey)) {
+                offerReady(podKey);
+                moved++;
+            }
+        }
+        log.info("[rebalance] {} ready pods of PodPool {} are moved between partitions. owned={}, foreign={}", moved, ResourceUtils.computeResourceMetaKey(podPool), readySet.size(), foreignReadySet.size());
+    }
+
+    private boolean shouldKeepInReserveSet(Pod pod) {
+        return isManagedPod(pod) && isReservedByMe(pod) && isReadyPod(pod);
     }
 
     @Override
     public void onAdd(Pod obj) {
-        if (shouldAddToQueue(obj)) {
+        if (shouldAddToReadySet(obj)) {
             var podKey = ResourceUtils.computeResourceMetaKey(obj);
-            if (queue.add(podKey)) {
+            if (offerReady(podKey)) {
                 log.info("[onAdd] Generic pod is added to PodPool {}: {}",
                         ResourceUtils.computeResourceMetaKey(podPool),
                         podKey
                 );
             }
+        } else if (shouldKeepInReserveSet(obj)) {
+            // adopt pods reserved by this executor before restart
+            var podKey = ResourceUtils.computeResourceMetaKey(obj);
+            if (reserveSet.offer(podKey)) {
+                log.info("[onAdd] Reserved pod is adopted for PodPool {}: {}", ResourceUtils.computeResourceMetaKey(podPool), podKey);
+                Optional.ofNullable(activator).ifPresent(PodActivator::onPodReady);
+            }
         }
     }
 
     @Override
     public void onUpdate(Pod oldObj, Pod newObj) {
         var podPoolKey = ResourceUtils.computeResourceMetaKey(podPool);
-        var oldPodKey = ResourceUtils.computeResourceMetaKey(newObj);
-        var newPodKey = ResourceUtils.computeResourceMetaKey(newObj);
-        if (!shouldAddToQueue(oldObj)) {
-            if (queue.remove(oldPodKey)) {
-                log.info("[onUpdate] Removed GenericPod for PodPool {}: {}", podPoolKey, oldPodKey);
+        var podKey = ResourceUtils.computeResourceMetaKey(newObj);
+        if (shouldAddToReadySet(newObj)) {
+            if (offerReady(podKey)) {
+                log.info("[onUpdate] Added GenericPod for PodPool {}: {}, ", podPoolKey, podKey);
             }
+        } else if (readySet.remove(podKey) | foreignReadySet.remove(podKey)) {
+            log.info("[onUpdate] Removed GenericPod for PodPool {}: {}", podPoolKey, podKey);
         }
-        if (shouldAddToQueue(newObj) && !existInQueue(newObj)) {
-            if (queue.add(newPodKey)) {
-                log.info("[onUpdate] Added GenericPod for PodPool {}: {}, ", podPoolKey, newPodKey);
-            }
+        if (!shouldKeepInReserveSet(newObj) && reserveSet.remove(podKey)) {
+            log.info("[onUpdate] Removed reserved pod for PodPool {}: {}", podPoolKey, podKey);
         }
     }
 
@@ -202,8 +721,11 @@ public class ApiServerPodPoolConnectorImpl implements PodPoolConnector, Resource
     public void onDelete(Pod obj, boolean deletedFinalStateUnknown) {
         var podPoolKey = ResourceUtils.computeResourceMetaKey(podPool);
         var podKey = ResourceUtils.computeResourceMetaKey(obj);
-        if (queue.remove(podKey)) {
+        if (readySet.remove(podKey) | foreignReadySet.remove(podKey)) {
             log.info("[onDelete] Removed GenericPod for PodPool {}: {}", podPoolKey, podKey);
         }
+        if (reserveSet.remove(podKey)) {
+            log.info("[onDelete] Removed reserved pod for PodPool {}: {}", podPoolKey, podKey);
+        }
     }
 }
@@ -0,0 +1,121 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.metadata.crd.podpool.PodFunctionStatus;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.Strings;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ToIntFunction;
+
+/**
+ * Cutovers of functions from one build to another. Requests keep being routed to the previous build while pods of the new build are warmed,
+ * and routing is switched once the new build has as many warm pods as the previous one, or {@code cutoverTimeout} is reached.
+ *
+ * @author robinqu
+ */
+@Slf4j
+class BuildCutovers {
+
+    /**
+     * Routing of a function from one build to another.
+     * @param target number of warm pods of the new build required to switch routing
+     */
+    record BuildCutover(PodFunctionStatus.BuildInfo from, PodFunctionStatus.BuildInfo to, int target, Instant startedAt) {
+    }
+
+    /**
+     * function key -> build cutover in progress
+     */
+    private final Map<String, BuildCutover> cutovers;
+    private final Duration cutoverTimeout;
+
+    BuildCutovers(Duration cutoverTimeout) {
+        this.cutovers = new ConcurrentHashMap<>();
+        this.cutoverTimeout = cutoverTimeout;
+    }
+
+    Optional<BuildCutover> get(String functionKey) {
+        return Optional.ofNullable(cutovers.get(functionKey));
+    }
+
+    /**
+     * The build that requests are routed to, which is the previous build if a cutover to the effective build is in progress.
+     */
+    PodFunctionStatus.BuildInfo routedBuild(String functionKey, PodFunctionStatus.BuildInfo effectiveBuild) {
+        return get(functionKey)
+                .filter(cutover -> Strings.CS.equals(cutover.to().getUid(), effectiveBuild.getUid()))
+                .map(BuildCutover::from)
+                .orElse(effectiveBuild);
+    }
+
+    /**
+     * @return true if pods of the build keep serving as the previous build of a cutover in progress
+     */
+    boolean isSource(String functionKey, String buildUid) {
+        return get(functionKey)
+                .filter(cutover -> Strings.CS.equals(cutover.from().getUid(), buildUid))
+                .isPresent();
+    }
+
+    /**
+     * Start a cutover if effective build is changed and the build routed so far has warm pods. The cutover is dropped if effective build is
+     * rolled back to the routed build.
+     * @param previousBuild effective build before the change
+     * @param countWarm number of warm pods of a build by its uid
+     * @return true if a cutover is started
+     */
+    boolean start(String functionKey, Optional<PodFunctionStatus.BuildInfo> previousBuild, PodFunctionStatus.BuildInfo newBuild, ToIntFunction<String> countWarm, int minWarm) {
+        var routedBuild = get(functionKey)
+                .map(BuildCutover::from)
+                .or(() -> previousBuild);
+        if (routedBuild.isEmpty() || Strings.CS.equals(routedBuild.get().getUid(), newBuild.getUid())) {
+            if (routedBuild.isPresent()) {
+                // rolled back to routed build
+                cutovers.remove(functionKey);
+            }
+            return false;
+        }
+        if (get(functionKey).filter(cutover -> Strings.CS.equals(cutover.to().getUid(), newBuild.getUid())).isPresent()) {
+            return false;
+        }
+        var warmCount = countWarm.applyAsInt(routedBuild.get().getUid());
+        if (warmCount == 0) {
+            cutovers.remove(functionKey);
+            log.info("[start] No warm pod of build {}. Route fn={} to build {} directly.", routedBuild.get().getName(), functionKey, newBuild.getName());
+            return false;
+        }
+        var target = Math.max(warmCount, minWarm);
+        cutovers.put(functionKey, new BuildCutover(routedBuild.get(), newBuild, target, Instant.now()));
+        log.info("[start] Cutover of fn={} from build {} to {} is started. target={}", functionKey, routedBuild.get().getName(), newBuild.getName(), target);
+        return true;
+    }
+
+    /**
+     * Switch routing to the new build once enough of its pods are warm, or the cutover times out.
+     * @return true if routing is switched by this call
+     */
+    boolean complete(String functionKey, BuildCutover cutover, int warmCount) {
+        var timedOut = cutover.startedAt().plus(cutoverTimeout).isBefore(Instant.now());
+        if ((warmCount >= cutover.target() || timedOut) && cutovers.remove(functionKey, cutover)) {
+            log.info("[complete] Routing of fn={} is switched from build {} to {}. warm={}, target={}, timedOut={}",
+                    functionKey, cutover.from().getName(), cutover.to().getName(), warmCount, cutover.target(), timedOut);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Drop the cutover, e.g. if effective build has changed again, so that requests are routed to effective build.
+     */
+    void cancel(String functionKey, BuildCutover cutover) {
+        cutovers.remove(functionKey, cutover);
+    }
+
+    void cancel(String functionKey) {
+        cutovers.remove(functionKey);
+    }
+}
@@ -0,0 +1,50 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Immutable consistent hash ring of executor identities. Each member is placed on the ring with {@code virtualNodes} points, so that keys are
+ * spread evenly and only keys of a joining or leaving member change owners.
+ *
+ * @author robinqu
+ */
+public class ConsistentHashRing {
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_32_fixed();
+
+    private final NavigableMap<Integer, String> ring;
+
+    public ConsistentHashRing(Collection<String> members, int virtualNodes) {
+        this.ring = new TreeMap<>();
+        for (var member : members) {
+            for (int i = 0; i < Math.max(1, virtualNodes); i++) {
+                ring.put(hash(member + "#" + i), member);
+            }
+        }
+    }
+
+    private static int hash(String key) {
+        return HASH_FUNCTION.hashString(key, StandardCharsets.UTF_8).asInt();
+    }
+
+    /**
+     * @return the member owning given key, or empty if the ring has no member
+     */
+    public Optional<String> owner(String key) {
+        if (ring.isEmpty()) {
+            return Optional.empty();
+        }
+        var entry = ring.ceilingEntry(hash(key));
+        return Optional.of(entry != null ? entry.getValue() : ring.firstEntry().getValue());
+    }
+
+    public boolean isEmpty() {
+        return ring.isEmpty();
+    }
+}
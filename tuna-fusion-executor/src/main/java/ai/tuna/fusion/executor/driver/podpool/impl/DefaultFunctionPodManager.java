@@ -1,70 +1,287 @@
 package ai.tuna.fusion.executor.driver.podpool.impl;
 
+import ai.tuna.fusion.executor.ExecutorProperties;
 import ai.tuna.fusion.executor.driver.podpool.*;
 import ai.tuna.fusion.metadata.crd.PodPoolResourceUtils;
 import ai.tuna.fusion.metadata.crd.ResourceUtils;
 import ai.tuna.fusion.metadata.crd.podpool.PodFunction;
+import ai.tuna.fusion.metadata.crd.podpool.PodFunctionBuild;
+import ai.tuna.fusion.metadata.crd.podpool.PodFunctionSpec;
 import ai.tuna.fusion.metadata.crd.podpool.PodFunctionStatus;
 import ai.tuna.fusion.metadata.crd.podpool.PodPool;
 import ai.tuna.fusion.metadata.informer.PodPoolResources;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.client.CustomResource;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.Strings;
 import org.springframework.scheduling.annotation.Scheduled;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.time.Instant;
 import java.util.*;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static ai.tuna.fusion.metadata.crd.podpool.PodPool.*;
 
 /**
+ * Keeps specialized pods of function builds in {@link PodLeasePool}s.
+ * <p>
+ * When effective build of a function changes, requests keep being routed to the previous build while pods of the new build are warmed
+ * in background. Routing is switched once the new build has as many warm pods as the previous one, or {@link ExecutorProperties.Lifecycle#getCutoverTimeout()} is reached.
+ * <p>
+ * Runs of specialized pods are accounted cluster-wide by {@link PodRunLedger}, so that pods of a build are shared by executor replicas.
+ * Pods with runs left are adopted from other executors before new pods are specialized.
+ * <p>
+ * Concurrent runs of each pod are limited by {@link PodPool#getSpec()}{@code .maxConcurrencyPerPod}. Once all pods of a build are saturated,
+ * requesters trigger specialization of idle slots, or wait in a bounded queue of the build until some run is closed. Requesters that
+ * cannot be queued, or are not served before the deadline, are rejected with {@link FunctionPodSaturatedException}.
+ * <p>
+ * Runs are routed to pods in the zone of this executor, and to pods in other zones only if no pod of this zone can take a run.
+ * <p>
+ * Pods are ejected from routing by {@link PodHealth} on consecutive failures or as latency outliers, and disposed once they are unhealthy.
+ * <p>
+ * Cutovers, warm-up, draining and outlier detection are done by {@link BuildCutovers}, {@link PodWarmer}, {@link PodDrainer} and
+ * {@link OutlierDetector} respectively.
+ *
  * @author robinqu
  */
 @Slf4j
-public class DefaultFunctionPodManager implements FunctionPodManager {
+public class DefaultFunctionPodManager implements FunctionPodManager, ResourceEventHandler<PodFunction> {
+
     private final PodPoolConnectorFactory podPoolConnectorFactory;
-    private final Cache<String, CountedPodAccess> podAccessCache;
+    private final Map<String, PodLeasePool> leasePools;
     private final PodPoolResources podPoolResources;
+    private final PodDisposer podDisposer;
+    private final PodExpiryScheduler podExpiryScheduler;
+    private final PodRunLedger podRunLedger;
+    private final ExecutorProperties.Admission admission;
+    private final ExecutorProperties.Balancer balancer;
+    private final PodTopology topology;
+    private final BuildCutovers buildCutovers;
+    private final PodDrainer podDrainer;
+    private final OutlierDetector outlierDetector;
+    private final PodWarmer podWarmer;
+
+    /**
+     * pod keys being adopted
+     */
+    private final Set<String> adoptingPods;
 
-    public DefaultFunctionPodManager(PodPoolConnectorFactory podPoolConnectorFactory, PodPoolResources podPoolResources) {
+    public DefaultFunctionPodManager(PodPoolConnectorFactory podPoolConnectorFactory, PodPoolResources podPoolResources, PodEventDispatcher podEventDispatcher, PodDisposer podDisposer, PodRunLedger podRunLedger, ExecutorProperties.Admission admission, ExecutorProperties.Balancer balancer, ExecutorProperties.OutlierDetection outlierDetection, ExecutorProperties.Lifecycle lifecycle, PodTopology topology) {
         this.podPoolConnectorFactory = podPoolConnectorFactory;
         this.podPoolResources = podPoolResources;
-        this.podAccessCache = CacheBuilder.newBuilder().maximumSize(1000).build();
+        this.podDisposer = podDisposer;
+        this.podRunLedger = podRunLedger;
+        this.admission = admission;
+        this.balancer = balancer;
+        this.topology = topology;
+        this.adoptingPods = ConcurrentHashMap.newKeySet();
+        this.leasePools = new ConcurrentHashMap<>();
+        this.buildCutovers = new BuildCutovers(lifecycle.getCutoverTimeout());
+        this.podDrainer = new PodDrainer(lifecycle.getDrainTimeout(), this::releaseAccess);
+        this.outlierDetector = new OutlierDetector(outlierDetection);
+        this.podWarmer = new PodWarmer(this::isWarm, this::retire, this::specializeSlot);
+        this.podExpiryScheduler = new PodExpiryScheduler(podPoolResources, podEventDispatcher, this::expire);
+        this.podExpiryScheduler.start();
+        this.podPoolResources.podFunction().addEventHandler(this);
     }
 
-    private String cacheKey(PodFunction function, PodPool podPool) throws FunctionPodAccessException {
+    /**
+     * Stop watching resources and writing run accounting.
+     */
+    public void close() {
+        podPoolResources.podFunction().removeEventHandler(this);
+        podExpiryScheduler.close();
+        podRunLedger.close();
+    }
+
+    private Optional<PodFunctionStatus.BuildInfo> effectiveBuild(PodFunction function) {
         return Optional.ofNullable(function.getStatus())
                 .map(PodFunctionStatus::getEffectiveBuild)
-                .map(PodFunctionStatus.BuildInfo::getUid)
-                .map(this::cacheKey)
+                .filter(buildInfo -> buildInfo.getUid() != null);
+    }
+
+    /**
+     * The build that requests are routed to, which is the previous build if a cutover to current effective build is in progress.
+     */
+    private PodFunctionStatus.BuildInfo routedBuild(PodFunction function, PodPool podPool) throws FunctionPodAccessException {
+        var effectiveBuild = effectiveBuild(function)
                 .orElseThrow(()-> new FunctionPodAccessException("Cannot find effectiveBuild", podPool, function));
+        return buildCutovers.routedBuild(ResourceUtils.computeResourceMetaKey(function), effectiveBuild);
     }
 
-    private String cacheKey(PodAccess podAccess) {
-        var uid =  podAccess.getFunctionBuildUid();
-        return cacheKey(uid);
+    /**
+     * Lease pool has at least {@link PodFunctionSpec#getMinWarm()} slots, so that all warm pods can be kept.
+     */
+    private PodLeasePool leasePool(PodFunction function, PodPool podPool, PodFunctionStatus.BuildInfo build) {
+        return leasePools.computeIfAbsent(build.getUid(), uid -> new PodLeasePool(
+                function.getMetadata().getNamespace(),
+                function.getMetadata().getName(),
+                build.getName(),
+                uid,
+                Math.max(
+                        Optional.ofNullable(podPool.getSpec().getPodAccessPerBuild()).filter(v -> v > 0).orElse(POD_ACCESS_PER_BUILD),
+                        minWarm(function)
+                )
+        ));
     }
 
-    private String cacheKey(Pod pod) {
-        var uid = pod.getMetadata().getLabels().get(PodPool.SPECIALIZED_POD_FUNCTION_BUILD_ID_LABEL_VALUE);
-        return cacheKey(uid);
+    /**
+     * Adopt a specialized pod of the build found in informer cache, e.g. pods specialized by other executors or by this executor before
+     * restart, so that they are reused instead of being left idle until expired. Pods are adopted only if they have runs left, and pods
+     * in the zone of this executor are adopted first.
+     */
+    private Mono<CountedPodAccess> adopt(PodLeasePool leasePool, PodPool podPool) {
+        return Flux.fromIterable(listSpecializedPods(podPool))
+                .filter(pod -> isAdoptable(pod, leasePool, podPool))
+                .sort(Comparator.comparing((Pod pod) -> !topology.isLocal(pod)))
+                .concatMap(pod -> {
+                    var podKey = ResourceUtils.computeResourceMetaKey(pod);
+                    if (!adoptingPods.add(podKey)) {
+                        return Mono.empty();
+                    }
+                    var runPerPod = runPerPod(podPool);
+                    return podRunLedger.grant(pod, runPerPod, podRunLedger.grantSize(runPerPod))
+                            .filter(runs -> runs > 0)
+                            .map(runs -> {
+                                var podAccess = PodAccess.builder()
+                                        .selectedPod(pod)
+                                        .uri(ResourceUtils.getPodUri(pod))
+                                        .podTtlInSeconds(podPool.getSpec().getTtlPerPod())
+                                        .functionBuildName(leasePool.getBuildName())
+                                        .functionBuildUid(leasePool.getBuildUid())
+                                        .functionName(leasePool.getFunctionName())
+                                        .podPoolName(podPool.getMetadata().getName())
+                                        .namespace(pod.getMetadata().getNamespace())
+                                        .build();
+                                log.info("[adopt] Specialized pod {} is adopted for build {}. runs={}", podKey, leasePool.getBuildName(), runs);
+                                return newCountedAccess(podAccess, podPool, runs);
+                            })
+                            .onErrorResume(e -> {
+                                log.warn("[adopt] Failed to adopt pod {}", podKey, e);
+                                return Mono.empty();
+                            })
+                            .doFinally(signalType -> adoptingPods.remove(podKey));
+                })
+                .next();
     }
 
-    private String cacheKey(String buildUid) {
-        return cacheKey(buildUid, Instant.now().getEpochSecond() % POD_ACCESS_PER_BUILD);
+    private boolean isAdoptable(Pod pod, PodLeasePool leasePool, PodPool podPool) {
+        var labels = pod.getMetadata().getLabels();
+        return labels != null
+                && Strings.CS.equals(pod.getMetadata().getNamespace(), leasePool.getNamespace())
+                && Strings.CS.equals(labels.get(SPECIALIZED_POD_LABEL_VALUE), "true")
+                && Strings.CS.equals(labels.get(POD_POOL_NAME_LABEL_NAME), podPool.getMetadata().getName())
+                && Strings.CS.equals(labels.get(SPECIALIZED_POD_FUNCTION_NAME_LABEL_VALUE), leasePool.getFunctionName())
+                && Strings.CS.equals(labels.get(SPECIALIZED_POD_FUNCTION_BUILD_ID_LABEL_VALUE), leasePool.getBuildUid())
+                && pod.getMetadata().getDeletionTimestamp() == null
+                && PodRunLedger.isPublished(pod)
+                && PodRunLedger.grantedRuns(pod) < runPerPod(podPool)
+                && leasePool.findByPodName(pod.getMetadata().getName()).isEmpty()
+                && isReadyPod(pod)
+                && !isExpiredPod(pod, podPool.getSpec().getTtlPerPod());
     }
 
-    private String cacheKey(String buildUid, long idx) {
-        return buildUid + "-" + idx;
+    private static boolean isReadyPod(Pod pod) {
+        return Optional.ofNullable(pod.getStatus())
+                .map(status -> status.getConditions().stream()
+                        .anyMatch(condition -> Strings.CS.equals(condition.getType(), "Ready") && Strings.CS.equals(condition.getStatus(), "True")))
+                .orElse(false);
     }
 
-    @Scheduled(fixedRate = 1000 * 30)
+    private static int runPerPod(PodPool podPool) {
+        return Optional.ofNullable(podPool.getSpec().getRunPerPod()).filter(v -> v > 0).orElse(DEFAULT_RUN_PER_POD);
+    }
+
+    private static int maxConcurrencyPerPod(PodPool podPool) {
+        return Optional.ofNullable(podPool.getSpec().getMaxConcurrencyPerPod()).filter(v -> v > 0).orElse(0);
+    }
+
+    /**
+     * Number of waiting requesters that a new pod serves, which is limited by its concurrency as well as its runs.
+     */
+    private static int requestersPerPod(PodPool podPool) {
+        var maxConcurrency = maxConcurrencyPerPod(podPool);
+        return maxConcurrency > 0 ? Math.min(runPerPod(podPool), maxConcurrency) : runPerPod(podPool);
+    }
+
+    private CountedPodAccess newCountedAccess(PodAccess podAccess, PodPool podPool, int allowance) {
+        return CountedPodAccess.builder()
+                .podAccess(podAccess)
+                .maxUsageCount(runPerPod(podPool))
+                .maxConcurrency(maxConcurrencyPerPod(podPool))
+                .latency(new LatencyEwma(balancer.getLatencyDecay()))
+                .health(outlierDetector.newHealth())
+                .usageCount(new AtomicInteger(0))
+                .allowance(new AtomicInteger(allowance))
+                .functionPodManager(this)
+                .build();
+    }
+
+    private static int minWarm(PodFunction function) {
+        return Optional.ofNullable(function.getSpec())
+                .map(PodFunctionSpec::getMinWarm)
+                .orElse(0);
+    }
+
+    private Optional<PodLeasePool> leasePool(String buildUid) {
+        return Optional.ofNullable(buildUid).map(leasePools::get);
+    }
+
+    private Optional<CountedPodAccess> findAccess(Pod pod) {
+        return leasePool(pod.getMetadata().getLabels().get(PodPool.SPECIALIZED_POD_FUNCTION_BUILD_ID_LABEL_VALUE))
+                .flatMap(leasePool -> leasePool.findByPodName(pod.getMetadata().getName()));
+    }
+
+    /**
+     * Retire specialized pod once it reaches its TTL, which is fired by {@link PodExpiryScheduler}.
+     */
+    private void expire(Pod pod) {
+        if (podDrainer.isDraining(pod)) {
+            return;
+        }
+        var cached = findAccess(pod);
+        if (cached.isPresent()) {
+            retire(cached.get());
+            return;
+        }
+        podPoolResources.queryPodPool(pod.getMetadata().getNamespace(), pod.getMetadata().getLabels().get(POD_POOL_NAME_LABEL_NAME))
+                .ifPresent(podPool -> doDisposeAccess(orphanAccess(pod, podPool), false));
+    }
+
+    private PodAccess orphanAccess(Pod pod, PodPool podPool) {
+        return PodAccess.builder()
+                .namespace(pod.getMetadata().getNamespace())
+                .selectedPod(pod)
+                .podTtlInSeconds(podPool.getSpec().getTtlPerPod())
+                .functionName(pod.getMetadata().getLabels().get(PodPool.SPECIALIZED_POD_FUNCTION_NAME_LABEL_VALUE))
+                .functionBuildUid(pod.getMetadata().getLabels().get(PodPool.SPECIALIZED_POD_FUNCTION_BUILD_ID_LABEL_VALUE))
+                .podPoolName(podPool.getMetadata().getName())
+                .build();
+    }
+
+    private List<Pod> listSpecializedPods(PodPool podPool) {
+        var labels = PodPoolResourceUtils.computeSpecializedPodLabels(podPool);
+        return podPoolResources.pod().getSharedIndexInformer(podPool.getMetadata().getNamespace())
+                .map(informer -> informer.getStore().list().stream()
+                        .filter(pod -> Strings.CS.equals(pod.getMetadata().getNamespace(), podPool.getMetadata().getNamespace()))
+                        .filter(pod -> pod.getMetadata().getLabels() != null && pod.getMetadata().getLabels().entrySet().containsAll(labels.entrySet()))
+                        .toList())
+                .orElse(Collections.emptyList());
+    }
+
+    /**
+     * Reconciliation sweep over specialized pods in informer cache, in case any pod is missed by event-driven retirement, e.g. pods of
+     * outdated builds that are never requested again. Expiry is handled by {@link PodExpiryScheduler} in time.
+     */
+    @Scheduled(fixedRate = 1000 * 60)
     private void cleanupOrphanPods() {
+        podDrainer.releaseOverdue();
         var podPoolInformers = podPoolResources.podPool().getSharedIndexInformers();
         if (podPoolInformers.isEmpty()) {
             log.info("[cleanupOrphanPods] No podPool informer found");
@@ -74,8 +291,7 @@ public class DefaultFunctionPodManager implements FunctionPodManager {
             for (var podPool: sharedInformer.getStore().list()) {
                 var podPoolKey = ResourceUtils.computeResourceMetaKey(podPool);
                 var t1 = Instant.now().toEpochMilli();
-                var client = podPoolResources.getKubernetesClient();
-                var specializedPods = PodPoolResourceUtils.listSpecializedPods(podPool, client);
+                var specializedPods = listSpecializedPods(podPool);
                 var outdatedCount = 0;
                 var expiredCount = 0;
                 var counterLimitReachedCount = 0;
@@ -93,18 +309,17 @@ public class DefaultFunctionPodManager implements FunctionPodManager {
                         if (isCounterExceeded) {
                             counterLimitReachedCount++;
                         }
+                        if (pod.getMetadata().getDeletionTimestamp() != null || podDrainer.isDraining(pod)) {
+                            continue;
+                        }
                         if (isOutdatedBuild || isExpired || isCounterExceeded) {
-                            var access = podAccessCache.getIfPresent(cacheKey(pod));
-                            var cached = Objects.nonNull(access);
-                            log.info("[cleanupOrphanPods] podPool={}, pod={}, cached={}, isCounterExceeded={}, isOutdatedBuild={}, isExpired={}", podPool.getMetadata().getName(), pod.getMetadata().getName(), cached, isCounterExceeded, isOutdatedBuild, isExpired);
-                            doDisposeAccess(PodAccess.builder()
-                                    .namespace(pod.getMetadata().getNamespace())
-                                    .selectedPod(pod)
-                                    .podTtlInSeconds(podPool.getSpec().getTtlPerPod())
-                                    .functionName(pod.getMetadata().getLabels().get(PodPool.SPECIALIZED_POD_FUNCTION_NAME_LABEL_VALUE))
-                                    .functionBuildUid(pod.getMetadata().getLabels().get(PodPool.SPECIALIZED_POD_FUNCTION_BUILD_ID_LABEL_VALUE))
-                                    .podPoolName(podPool.getMetadata().getName())
-                                    .build());
+                            var cached = findAccess(pod);
+                            log.info("[cleanupOrphanPods] podPool={}, pod={}, cached={}, isCounterExceeded={}, isOutdatedBuild={}, isExpired={}", podPool.getMetadata().getName(), pod.getMetadata().getName(), cached.isPresent(), isCounterExceeded, isOutdatedBuild, isExpired);
+                            if (cached.isPresent()) {
+                                retire(cached.get());
+                                continue;
+                            }
+                            doDisposeAccess(orphanAccess(pod, podPool), false);
                         }
                     } catch (Exception e) {
                         log.error("Exception occurred during checking specialized pod {}: {}", pod, e.getMessage(), e);
@@ -113,29 +328,67 @@ public class DefaultFunctionPodManager implements FunctionPodManager {
                 log.info("[cleanupOrphanPods] PodPool {}, specializedPods.size()={}, outdated={}, expired={}, counterLimitReached={}, elapsed={}ms", podPoolKey, specializedPods.size(), outdatedCount, expiredCount, counterLimitReachedCount, Instant.now().toEpochMilli() - t1);
             }
         }
+        leasePools.values().removeIf(leasePool -> {
+            var removable = leasePool.isEmpty() && isOutdatedBuild(leasePool.getNamespace(), leasePool.getFunctionName(), leasePool.getBuildUid(), true);
+            if (removable) {
+                log.info("[cleanupOrphanPods] Lease pool of outdated build {} is removed", leasePool.getBuildUid());
+            }
+            return removable;
+        });
+    }
 
-
+    /**
+     * Retire pods that are found unhealthy, after latency outliers are ejected by {@link OutlierDetector}.
+     */
+    @Scheduled(fixedRate = 1000 * 10)
+    private void detectOutliers() {
+        for (var leasePool : leasePools.values()) {
+            for (var access : outlierDetector.detect(leasePool.list())) {
+                log.warn("[detectOutliers] Pod {} is unhealthy and retired. health={}", ResourceUtils.computeResourceMetaKey(access.getPodAccess().getSelectedPod()), access.getHealth());
+                retire(access);
+            }
+        }
     }
 
     /**
      * Check counter once more in case some CountedPodAccess is not closed properly
      */
     private boolean isCounterExceeded(Pod pod) {
-        return Optional.ofNullable(podAccessCache.getIfPresent(cacheKey(pod)))
-                .map(countedPodAccess -> countedPodAccess.getUsageCount() != null && countedPodAccess.getUsageCount().intValue() >= countedPodAccess.getMaxUsageCount())
+        return findAccess(pod)
+                .map(countedPodAccess -> !hasRunsLeft(countedPodAccess))
                 .orElse(false);
     }
 
+    /**
+     * Runs are left if some granted runs are not reserved yet, or more runs of the pod can be granted to this executor.
+     */
+    private boolean hasRunsLeft(CountedPodAccess countedPodAccess) {
+        return countedPodAccess.getRemaining() > 0 || podRunLedger.isExtendable(countedPodAccess);
+    }
+
     /**
      * Evict pods that has out-dated build
      */
     private boolean hasOutdatedBuild(Pod pod) {
         return Optional.ofNullable(pod.getMetadata().getLabels().get(PodPool.SPECIALIZED_POD_FUNCTION_NAME_LABEL_VALUE))
-                .flatMap(fnName -> podPoolResources.queryPodFunction(pod.getMetadata().getNamespace(), fnName))
+                .map(fnName -> isOutdatedBuild(pod.getMetadata().getNamespace(), fnName, pod.getMetadata().getLabels().get(PodPool.SPECIALIZED_POD_FUNCTION_BUILD_ID_LABEL_VALUE), false))
+                .orElse(false);
+    }
+
+    private boolean isOutdatedBuild(String namespace, String functionName, String buildUid, boolean outdatedIfFunctionAbsent) {
+        var function = podPoolResources.queryPodFunction(namespace, functionName);
+        if (function.isEmpty()) {
+            return outdatedIfFunctionAbsent;
+        }
+        if (buildCutovers.isSource(ResourceUtils.computeResourceMetaKey(function.get()), buildUid)) {
+            // pods of previous build keep serving until cutover is done
+            return false;
+        }
+        return function
                 .map(CustomResource::getStatus)
                 .map(PodFunctionStatus::getEffectiveBuild)
                 .map(PodFunctionStatus.BuildInfo::getUid)
-                .map(buildUid -> !Strings.CS.equals(pod.getMetadata().getLabels().get(PodPool.SPECIALIZED_POD_FUNCTION_BUILD_ID_LABEL_VALUE), buildUid))
+                .map(effectiveBuildUid -> !Strings.CS.equals(buildUid, effectiveBuildUid))
                 .orElse(false);
     }
 
@@ -144,91 +397,446 @@ public class DefaultFunctionPodManager implements FunctionPodManager {
      * Limit the lifespan of a specialized pod
      */
     private boolean isExpiredPod(Pod pod, Long ttlInSeconds) {
-        var ttl = Optional.ofNullable(ttlInSeconds)
-                .filter(v -> v > 0)
-                .orElse(TTL_IN_SECONDS_FOR_SPECIALIZED_POD);
-        var creationTime = Instant.parse(pod.getMetadata().getCreationTimestamp());
-        return creationTime.isBefore(Instant.now().minusSeconds(ttl));
+        return PodExpiryScheduler.computeDeadline(pod, ttlInSeconds).isBefore(Instant.now());
     }
 
-    private boolean shouldDisposePodAccess(PodAccess podAccess) {
+    private boolean shouldDisposePodAccess(CountedPodAccess countedPodAccess) {
+        var podAccess = countedPodAccess.getPodAccess();
         var isExpired = isExpiredPod(podAccess.getSelectedPod(), podAccess.getPodTtlInSeconds());
-        var isCounterExceeded = isCounterExceeded(podAccess.getSelectedPod());
+        var isCounterExceeded = !hasRunsLeft(countedPodAccess);
         var isOutdated = hasOutdatedBuild(podAccess.getSelectedPod());
-        log.debug("[shouldDisposePodAccess] podAccess={}, isExpired={}, isCounterExceeded={}, isOutdated={}", podAccess, isExpired, isCounterExceeded, isOutdated);
-        return isExpired || isCounterExceeded || isOutdated;
+        var isUnhealthy = countedPodAccess.getHealth().isUnhealthy();
+        log.debug("[shouldDisposePodAccess] podAccess={}, isExpired={}, isCounterExceeded={}, isOutdated={}, isUnhealthy={}", podAccess, isExpired, isCounterExceeded, isOutdated, isUnhealthy);
+        return isExpired || isCounterExceeded || isOutdated || isUnhealthy;
+    }
+
+    /**
+     * Runs are only reserved from pods that are not expired and not outdated. Counter is checked by CAS in {@link CountedPodAccess#tryReserve()}.
+     */
+    private boolean isLeasable(CountedPodAccess access) {
+        var pod = access.getPodAccess().getSelectedPod();
+        return !isExpiredPod(pod, access.getPodAccess().getPodTtlInSeconds()) && !hasOutdatedBuild(pod);
+    }
+
+    /**
+     * Runs are routed to leasable pods that are not ejected by outlier detection. Ejected pods are still warm, so they are kept in slots
+     * until they are found unhealthy.
+     */
+    private boolean isRoutable(CountedPodAccess access) {
+        return isLeasable(access) && !access.getHealth().isEjected();
+    }
+
+    private boolean isLocal(CountedPodAccess access) {
+        return topology.isLocal(access.getPodAccess().getSelectedPod());
     }
 
     @Override
-    public CountedPodAccess requestAccess(PodFunction function, PodPool podPool) throws FunctionPodAccessException {
-        var cacheKey = cacheKey(function, podPool);
-        log.debug("[requestAccess] Requesting access: fn={}, cacheKey={}", ResourceUtils.computeResourceMetaKey(function), cacheKey);
-        int retryCount = 0;
+    public PodRun requestAccess(PodFunction function, PodPool podPool) throws FunctionPodAccessException {
+        try {
+            return requestAccessAsync(function, podPool).block();
+        } catch (RuntimeException e) {
+            if (Exceptions.unwrap(e) instanceof FunctionPodAccessException accessException) {
+                throw accessException;
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Mono<PodRun> requestAccessAsync(PodFunction function, PodPool podPool) {
+        return acquireAccess(function, podPool).map(CountedPodAccess::toRun);
+    }
+
+    private Mono<CountedPodAccess> acquireAccess(PodFunction function, PodPool podPool) {
         int maxRetryCount = 3;
+        return Mono.defer(() -> {
+            PodFunctionStatus.BuildInfo build;
+            try {
+                build = routedBuild(function, podPool);
+            } catch (FunctionPodAccessException e) {
+                return Mono.error(e);
+            }
+            var leasePool = leasePool(function, podPool, build);
+            log.debug("[requestAccessAsync] Requesting access: fn={}, buildUid={}", ResourceUtils.computeResourceMetaKey(function), build.getUid());
+            return Flux.range(1, maxRetryCount)
+                    .concatMap(retryCount -> tryAcquireAccess(leasePool, function, podPool, retryCount))
+                    .next()
+                    .switchIfEmpty(Mono.error(() -> new FunctionPodAccessException("Failed to request access to pod function %s after max retries %s".formatted(function.getMetadata().getName(), maxRetryCount), podPool, function)));
+        });
+    }
 
-        while (retryCount++ < maxRetryCount) {
-            CountedPodAccess access = null;
+    /**
+     * Preferred pod is looked up in lease pools of all builds of the function, as it may be of the previous build during cutover.
+     */
+    @Override
+    public Mono<PodRun> requestAccessAsync(PodFunction function, PodPool podPool, String preferredPodName) {
+        return acquireAccess(function, podPool, preferredPodName).map(CountedPodAccess::toRun);
+    }
+
+    /**
+     * Only warm pods of routed build are leased, so that hedged requests neither take places in the capacity queue nor trigger specializations.
+     */
+    @Override
+    public Mono<PodRun> tryLeaseWarm(PodFunction function, PodPool podPool, String excludedPodName) {
+        return Mono.defer(() -> {
+            PodFunctionStatus.BuildInfo build;
             try {
-                 access = podAccessCache.get(cacheKey, () -> CountedPodAccess.builder()
-                        .podAccess(podPoolConnectorFactory.get(podPool).requestAccess(function))
-                        .maxUsageCount(Optional.ofNullable(podPool.getSpec().getRunPerPod()).filter(v -> v > 0).orElse(DEFAULT_RUN_PER_POD))
-                        .usageCount(new AtomicInteger(0))
-                        .functionPodManager(this)
-                        .build());
-            } catch (ExecutionException e) {
-                if (Objects.nonNull(e.getCause()) && FunctionPodAccessException.class.isAssignableFrom(e.getCause().getClass())) {
-                    // try another time and don't throw
-                    log.warn("[requestAccess] Failed to request access to pod function {}. retryCount={}", function.getMetadata().getName(), retryCount, e);
-                    continue;
+                build = routedBuild(function, podPool);
+            } catch (FunctionPodAccessException e) {
+                return Mono.empty();
+            }
+            var leased = leasePool(build.getUid())
+                    .flatMap(leasePool -> leasePool.tryLeaseLeastLoaded(
+                            access -> isRoutable(access) && !Strings.CS.equals(access.getPodAccess().getSelectedPod().getMetadata().getName(), excludedPodName),
+                            this::isLocal));
+            leased.ifPresent(podRunLedger::extendIfLow);
+            return Mono.justOrEmpty(leased.map(CountedPodAccess::toRun));
+        });
+    }
+
+    private Mono<CountedPodAccess> acquireAccess(PodFunction function, PodPool podPool, String preferredPodName) {
+        return Mono.defer(() -> {
+            if (preferredPodName == null) {
+                return acquireAccess(function, podPool);
+            }
+            return leasePools.values().stream()
+                    .filter(leasePool -> Strings.CS.equals(leasePool.getNamespace(), function.getMetadata().getNamespace()))
+                    .filter(leasePool -> Strings.CS.equals(leasePool.getFunctionName(), function.getMetadata().getName()))
+                    .flatMap(leasePool -> leasePool.findByPodName(preferredPodName).stream())
+                    .filter(this::isRoutable)
+                    .filter(CountedPodAccess::tryReserve)
+                    .findFirst()
+                    .map(access -> {
+                        log.debug("[requestAccess] Preferred pod is acquired: pod={}, inFlight={}", preferredPodName, access.getInFlight());
+                        podRunLedger.extendIfLow(access);
+                        return Mono.just(access);
+                    })
+                    .orElseGet(() -> {
+                        log.debug("[requestAccess] Preferred pod {} is not available for fn={}", preferredPodName, ResourceUtils.computeResourceMetaKey(function));
+                        return acquireAccess(function, podPool);
+                    });
+        });
+    }
+
+    /**
+     * Single attempt of acquiring access. Runs are leased from the less loaded of two random warm pods. Requesters that find no run granted
+     * wait for another grant of a warm pod, or for specializations of the build. If all slots are taken by saturated pods, requesters wait
+     * for capacity instead. Completes empty if another attempt should be made.
+     */
+    private Mono<CountedPodAccess> tryAcquireAccess(PodLeasePool leasePool, PodFunction function, PodPool podPool, int retryCount) {
+        return Mono.defer(() -> {
+            var leased = leasePool.tryLeaseLeastLoaded(this::isRoutable, this::isLocal);
+            if (leased.isPresent()) {
+                log.debug("[requestAccess] Access acquired: pod={}, usageCount={}, maxUsageCount={}", ResourceUtils.computeResourceMetaKey(leased.get().getPodAccess().getSelectedPod()), leased.get().getUsageCount(), leased.get().getMaxUsageCount());
+                podRunLedger.extendIfLow(leased.get());
+                return Mono.just(leased.get());
+            }
+            for (var access : leasePool.list()) {
+                if (!isWarm(access)) {
+                    log.warn("[requestAccess] Orphan pod found {}. retryCount={}", ResourceUtils.computeResourceMetaKey(access.getPodAccess().getSelectedPod()), retryCount);
+                    retire(access);
                 }
-                throw new FunctionPodAccessException("Failed to request access to pod function " + function.getMetadata().getName(), podPool, function);
             }
+            var extendable = leasePool.list().stream()
+                    .filter(access -> !access.isDraining() && access.getRemaining() <= 0)
+                    .filter(this::isWarm)
+                    .filter(this::isRoutable)
+                    .findFirst();
+            if (extendable.isPresent()) {
+                return podRunLedger.extend(extendable.get())
+                        .onErrorResume(e -> {
+                            log.warn("[requestAccess] Failed to extend grant of pod {}. retryCount={}", ResourceUtils.computeResourceMetaKey(extendable.get().getPodAccess().getSelectedPod()), retryCount, e);
+                            return Mono.empty();
+                        })
+                        .filter(runs -> runs > 0 && extendable.get().tryReserve())
+                        .map(runs -> extendable.get());
+            }
+            if (isSaturated(leasePool) && leasePool.findIdleSlot(0).isEmpty() && leasePool.listPendingSpecializations().isEmpty()) {
+                return awaitCapacity(leasePool, function, podPool, retryCount);
+            }
+            return awaitSpecialization(leasePool, function, podPool, retryCount);
+        });
+    }
+
+    /**
+     * @return true if some warm pod of the build is saturated, i.e. requests are to be served once its in-flight runs are closed
+     */
+    private boolean isSaturated(PodLeasePool leasePool) {
+        return leasePool.list().stream()
+                .filter(access -> !access.isDraining())
+                .filter(this::isWarm)
+                .filter(this::isRoutable)
+                .anyMatch(CountedPodAccess::isSaturated);
+    }
+
+    /**
+     * Wait in FIFO queue of the build until a run is closed, and lease again. Waiter is queued before leasing, so that runs closed meanwhile
+     * are never missed. Completes empty if pods are no longer saturated, e.g. they are retired and slots are free for specialization.
+     */
+    private Mono<CountedPodAccess> awaitCapacity(PodLeasePool leasePool, PodFunction function, PodPool podPool, int retryCount) {
+        return Mono.defer(() -> {
+                    var waiter = leasePool.enqueueCapacityWaiter(admission.getMaxQueuedRequests());
+                    if (waiter.isEmpty()) {
+                        log.warn("[requestAccess] Queue of build {} is full. maxQueued={}, retryCount={}", leasePool.getBuildName(), admission.getMaxQueuedRequests(), retryCount);
+                        return Mono.<Optional<CountedPodAccess>>error(new FunctionPodSaturatedException("Pods of function %s are saturated and %s requests are queued".formatted(function.getMetadata().getName(), admission.getMaxQueuedRequests()), admission.getRetryAfter(), podPool, function));
+                    }
+                    var leased = leasePool.tryLeaseLeastLoaded(this::isRoutable, this::isLocal);
+                    if (leased.isPresent()) {
+                        waiter.get().cancel(false);
+                        return Mono.just(leased);
+                    }
+                    return Mono.fromFuture(waiter.get(), true)
+                            .then(Mono.fromSupplier(() -> leasePool.tryLeaseLeastLoaded(this::isRoutable, this::isLocal)));
+                })
+                .filter(leased -> leased.isPresent() || !isSaturated(leasePool))
+                .repeatWhenEmpty(repeat -> repeat)
+                .timeout(admission.getQueueTimeout())
+                .onErrorMap(TimeoutException.class, e -> new FunctionPodSaturatedException("Pods of function %s are saturated for %s".formatted(function.getMetadata().getName(), admission.getQueueTimeout()), admission.getRetryAfter(), podPool, function))
+                .mapNotNull(leased -> leased.orElse(null))
+                .doOnNext(access -> {
+                    log.debug("[requestAccess] Access acquired after queueing: pod={}, inFlight={}, maxConcurrency={}", ResourceUtils.computeResourceMetaKey(access.getPodAccess().getSelectedPod()), access.getInFlight(), access.getMaxConcurrency());
+                    podRunLedger.extendIfLow(access);
+                });
+    }
 
-            if (!shouldDisposePodAccess(access.getPodAccess())) {
-                access.getUsageCount().incrementAndGet();
-                log.debug("[requestAccess] Access acquired: pod={}, usageCount={}, maxUsageCount={}", ResourceUtils.computeResourceMetaKey(access.getPodAccess().getSelectedPod()), access.getUsageCount(), access.getMaxUsageCount());
-                return access;
-            } else {
-                try {
-                    doDisposeAccess(access.getPodAccess());
-                } catch (FunctionPodDisposalException e) {
-                    log.warn("[requestAccess] ignore exception when disposeAccess", e);
+    /**
+     * Wait for a pod of the build being specialized. All requesters of a build share specializations in flight, and new pods are
+     * specialized only if waiting requesters outnumber runs those pods can serve, so a burst of {@code n} cold requests specializes
+     * {@code ceil(n / min(runPerPod, maxConcurrencyPerPod))} pods at most.
+     */
+    private Mono<CountedPodAccess> awaitSpecialization(PodLeasePool leasePool, PodFunction function, PodPool podPool, int retryCount) {
+        var waitingCount = leasePool.getWaitingCount();
+        return Mono.defer(() -> {
+                    var ordinal = waitingCount.incrementAndGet();
+                    var requestersPerPod = requestersPerPod(podPool);
+                    var specializations = planSpecializations(leasePool, function, podPool, Math.ceilDiv(ordinal, requestersPerPod));
+                    if (specializations.isEmpty()) {
+                        log.warn("[requestAccess] No idle slot for build {}. retryCount={}", leasePool.getBuildName(), retryCount);
+                        return Mono.<CountedPodAccess>empty();
+                    }
+                    // every requestersPerPod waiters share a specialization
+                    return specializations.get((ordinal - 1) / requestersPerPod % specializations.size())
+                            .onErrorResume(FunctionPodAccessException.class, e -> {
+                                // try another time and don't throw
+                                log.warn("[requestAccess] Failed to request access to pod function {}. retryCount={}", function.getMetadata().getName(), retryCount, e);
+                                return Mono.empty();
+                            })
+                            .filter(CountedPodAccess::tryReserve)
+                            .doOnNext(access -> {
+                                log.debug("[requestAccess] Access acquired: pod={}, usageCount={}, maxUsageCount={}", ResourceUtils.computeResourceMetaKey(access.getPodAccess().getSelectedPod()), access.getUsageCount(), access.getMaxUsageCount());
+                                podRunLedger.extendIfLow(access);
+                            });
+                })
+                .doFinally(signalType -> waitingCount.decrementAndGet());
+    }
+
+    /**
+     * Decide how many pods the build needs centrally. Specializations in flight are joined, and idle slots are specialized only until
+     * {@code needed} specializations are in flight.
+     */
+    private List<Mono<CountedPodAccess>> planSpecializations(PodLeasePool leasePool, PodFunction function, PodPool podPool, int needed) {
+        List<Mono<CountedPodAccess>> specializations = new ArrayList<>(leasePool.listPendingSpecializations());
+        var started = 0;
+        while (specializations.size() < needed) {
+            var idle = leasePool.findIdleSlot(leasePool.nextSlot());
+            if (idle.isEmpty()) {
+                break;
+            }
+            specializations.add(specializeSlot(leasePool, idle.getAsInt(), function, podPool));
+            started++;
+        }
+        if (started > 0) {
+            log.info("[planSpecializations] Specializing {} pods for build {}. waiting={}, inFlight={}", started, leasePool.getBuildName(), leasePool.getWaitingCount().get(), specializations.size());
+        }
+        return specializations;
+    }
+
+    /**
+     * Fill the empty slot with an adopted pod, or a newly specialized pod whose first grant is published in background. Concurrent calls for
+     * the same slot share a single in-flight specialization.
+     */
+    private Mono<CountedPodAccess> specializeSlot(PodLeasePool leasePool, int idx, PodFunction function, PodPool podPool) {
+        return leasePool.specialize(idx, () -> adopt(leasePool, podPool)
+                .switchIfEmpty(Mono.defer(() -> Mono.justOrEmpty(podPoolResources.queryPodFunctionBuild(leasePool.getNamespace(), leasePool.getBuildName())))
+                        .switchIfEmpty(Mono.error(() -> FunctionPodAccessException.of(podPool, function, "Cannot find build " + leasePool.getBuildName())))
+                        .flatMap(build -> podPoolConnectorFactory.get(podPool).requestAccessAsync(function, build))
+                        .map(podAccess -> newCountedAccess(podAccess, podPool, podRunLedger.grantSize(runPerPod(podPool))))
+                        .doOnNext(access -> podRunLedger.publish(access)
+                                .subscribe(null, e -> log.warn("[specializeSlot] Failed to publish pod {}", ResourceUtils.computeResourceMetaKey(access.getPodAccess().getSelectedPod()), e))))
+                .doOnNext(access -> {
+                    if (!leasePool.fill(idx, access)) {
+                        log.warn("[specializeSlot] Slot {} of build {} is already occupied", idx, leasePool.getBuildUid());
+                    }
+                }));
+    }
+
+    /**
+     * A warm pod is leasable and has runs left.
+     */
+    private boolean isWarm(CountedPodAccess access) {
+        return hasRunsLeft(access) && isLeasable(access);
+    }
+
+    /**
+     * Keep {@link PodFunctionSpec#getMinWarm()} pods warm for effective builds of all functions, topping up pods that are retired.
+     */
+    @Scheduled(fixedRate = 1000 * 5)
+    private void topUpWarmPods() {
+        for (var sharedInformer : podPoolResources.podFunction().getSharedIndexInformers()) {
+            for (var function : sharedInformer.getStore().list()) {
+                advanceCutover(function);
+                var minWarm = minWarm(function);
+                if (minWarm <= 0) {
+                    continue;
                 }
-                log.warn("[requestAccess] Orphan pod found {}. retryCount={}", ResourceUtils.computeResourceMetaKey(access.getPodAccess().getSelectedPod()), retryCount);
+                podPoolResources.queryPodPool(function.getMetadata().getNamespace(), function.getSpec().getPodPoolName())
+                        .ifPresent(podPool -> warm(function, podPool, minWarm)
+                                .subscribe(
+                                        warmCount -> log.debug("[topUpWarmPods] fn={}, warm={}, minWarm={}", ResourceUtils.computeResourceMetaKey(function), warmCount, minWarm),
+                                        e -> log.warn("[topUpWarmPods] Failed to warm pods for fn={}", ResourceUtils.computeResourceMetaKey(function), e)
+                                ));
             }
         }
-        throw new FunctionPodAccessException("Failed to request access to pod function %s after max retries %s".formatted(function.getMetadata().getName(), maxRetryCount), podPool, function);
     }
 
+    /**
+     * Warm routed build of the function. During cutover, pods of new build are warmed by {@link #advanceCutover(PodFunction)}.
+     */
     @Override
-    public void disposeAccess(CountedPodAccess countedPodAccess) throws FunctionPodDisposalException {
-        var access = countedPodAccess.getPodAccess();
-        if (shouldDisposePodAccess(access)) {
-            doDisposeAccess(access);
+    public Mono<Integer> warm(PodFunction function, PodPool podPool, int count) {
+        return Mono.defer(() -> {
+            try {
+                return warm(function, podPool, routedBuild(function, podPool), count);
+            } catch (FunctionPodAccessException e) {
+                return Mono.error(e);
+            }
+        });
+    }
+
+    private Mono<Integer> warm(PodFunction function, PodPool podPool, PodFunctionStatus.BuildInfo build, int count) {
+        return Mono.defer(() -> podWarmer.warm(leasePool(function, podPool, build), function, podPool, count));
+    }
+
+    /**
+     * Pods are retired gracefully, i.e. they take no more runs and are deleted after in-flight runs are done.
+     */
+    @Override
+    public Mono<Integer> drain(PodFunction function, PodPool podPool) {
+        return Mono.fromCallable(() -> {
+            var accesses = listAccess(function, podPool);
+            accesses.forEach(this::retire);
+            log.info("[drain] {} pods are drained for fn={}", accesses.size(), ResourceUtils.computeResourceMetaKey(function));
+            return accesses.size();
+        });
+    }
+
+    /**
+     * Called once a run is closed. Requesters waiting for capacity of the build are woken, even if the pod is retired, so that they can
+     * specialize the slot it leaves.
+     */
+    @Override
+    public void disposeAccess(CountedPodAccess countedPodAccess) {
+        if (countedPodAccess.isDraining() || shouldDisposePodAccess(countedPodAccess)) {
+            retire(countedPodAccess);
         }
+        leasePool(countedPodAccess.getPodAccess().getFunctionBuildUid()).ifPresent(PodLeasePool::signalCapacity);
     }
 
-    private void doDisposeAccess(PodAccess access) throws FunctionPodDisposalException {
-        log.info("PodAccess is being evicted: {}", access);
+    /**
+     * Stop leasing runs from the access, and recycle or delete its pod once in-flight runs are done. Pods left with in-flight runs are
+     * deleted after {@link ExecutorProperties.Lifecycle#getDrainTimeout()} anyway.
+     */
+    private void retire(CountedPodAccess countedPodAccess) {
+        leasePool(countedPodAccess.getPodAccess().getFunctionBuildUid()).ifPresent(leasePool -> leasePool.evict(countedPodAccess));
+        podDrainer.drain(countedPodAccess);
+    }
+
+    /**
+     * Return the pod to {@link PodRunLedger}, and dispose it if no other executor holds it. The pod is disposed anyway if it cannot be released.
+     */
+    private void releaseAccess(CountedPodAccess countedPodAccess, boolean recyclable) {
+        var access = countedPodAccess.getPodAccess();
         var podKey = ResourceUtils.computeResourceMetaKey(access.getSelectedPod());
-        podAccessCache.invalidate(cacheKey(access));
-        var connector = podPoolConnectorFactory.get(access.getNamespace(), access.getPodPoolName());
-        connector.disposeAccess(access);
-        log.info("Pod is evicted: {}", podKey);
+        podRunLedger.release(countedPodAccess)
+                .subscribe(lastHolder -> {
+                    if (lastHolder) {
+                        doDisposeAccess(access, recyclable);
+                    } else {
+                        log.info("[releaseAccess] Pod {} is released and left to other executors", podKey);
+                    }
+                }, e -> {
+                    log.warn("[releaseAccess] Failed to release pod {}", podKey, e);
+                    doDisposeAccess(access, false);
+                });
+    }
+
+    /**
+     * Evict access from lease pool and queue its pod for recycling or deletion, which never blocks the caller.
+     * @param recyclable true if no run is in flight on the pod
+     */
+    private void doDisposeAccess(PodAccess access, boolean recyclable) {
+        log.info("PodAccess is being evicted: {}", access);
+        leasePool(access.getFunctionBuildUid())
+                .ifPresent(leasePool -> leasePool.findByPodName(access.getSelectedPod().getMetadata().getName())
+                        .ifPresent(leasePool::evict));
+        podDisposer.submit(access, recyclable);
     }
 
     @Override
     public List<CountedPodAccess> listAccess(PodFunction function, PodPool podPool) {
-        return Optional.ofNullable(function.getStatus())
-                .map(PodFunctionStatus::getEffectiveBuild)
-                .map(buildInfo -> {
-                    List<CountedPodAccess> podAccessList = new ArrayList<CountedPodAccess>();
-                    for(int i=0;i<POD_ACCESS_PER_BUILD;i++) {
-                        Optional.ofNullable(podAccessCache.getIfPresent(cacheKey(buildInfo.getUid(), i)))
-                                .ifPresent(podAccessList::add);
-                    }
-                    return podAccessList;
-                })
-                .orElse(Collections.emptyList());
+        try {
+            return leasePool(routedBuild(function, podPool).getUid())
+                    .map(PodLeasePool::list)
+                    .orElse(Collections.emptyList());
+        } catch (FunctionPodAccessException e) {
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Warm new build of the function, and switch routing once enough pods are warm or cutover times out.
+     */
+    private void advanceCutover(PodFunction function) {
+        var functionKey = ResourceUtils.computeResourceMetaKey(function);
+        var cutover = buildCutovers.get(functionKey);
+        if (cutover.isEmpty()) {
+            return;
+        }
+        var effectiveUid = effectiveBuild(function).map(PodFunctionStatus.BuildInfo::getUid).orElse(null);
+        var podPool = podPoolResources.queryPodPool(function.getMetadata().getNamespace(), function.getSpec().getPodPoolName());
+        if (!Strings.CS.equals(cutover.get().to().getUid(), effectiveUid) || podPool.isEmpty()) {
+            buildCutovers.cancel(functionKey, cutover.get());
+            return;
+        }
+        warm(function, podPool.get(), cutover.get().to(), cutover.get().target())
+                .subscribe(warmCount -> buildCutovers.complete(functionKey, cutover.get(), warmCount),
+                        e -> log.warn("[advanceCutover] Failed to warm build {} for fn={}", cutover.get().to().getName(), functionKey, e));
+    }
+
+    @Override
+    public void onAdd(PodFunction obj) {
+        log.debug("[onAdd] Do nothing in onAdd");
+    }
+
+    /**
+     * Start a cutover if effective build is changed and this executor has warm pods of previous build.
+     */
+    @Override
+    public void onUpdate(PodFunction oldObj, PodFunction newObj) {
+        var functionKey = ResourceUtils.computeResourceMetaKey(newObj);
+        var newBuild = effectiveBuild(newObj);
+        if (newBuild.isEmpty()) {
+            return;
+        }
+        var started = buildCutovers.start(functionKey, effectiveBuild(oldObj), newBuild.get(),
+                buildUid -> leasePool(buildUid).map(podWarmer::countWarm).orElse(0), minWarm(newObj));
+        if (started) {
+            advanceCutover(newObj);
+        }
+    }
+
+    @Override
+    public void onDelete(PodFunction obj, boolean deletedFinalStateUnknown) {
+        buildCutovers.cancel(ResourceUtils.computeResourceMetaKey(obj));
     }
 }
@@ -1,21 +1,156 @@
 package ai.tuna.fusion.executor.driver.podpool.impl;
 
+import ai.tuna.fusion.executor.ExecutorProperties;
 import ai.tuna.fusion.executor.driver.podpool.PodPoolConnector;
+import ai.tuna.fusion.metadata.crd.PodPoolResourceUtils;
+import ai.tuna.fusion.metadata.crd.ResourceUtils;
 import ai.tuna.fusion.metadata.crd.podpool.PodPool;
 import ai.tuna.fusion.metadata.informer.PodPoolResources;
+import io.fabric8.kubernetes.client.dsl.base.PatchContext;
+import io.fabric8.kubernetes.client.dsl.base.PatchType;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author robinqu
  */
 @Slf4j
 public class DefaultPodPoolConnectorFactory extends AbstractPodPoolConnectorFactory {
-    public DefaultPodPoolConnectorFactory(PodPoolResources podPoolResources) {
+    private final ExecutorProperties executorProperties;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorMembership membership;
+    private final PodTopology topology;
+
+    /**
+     * Limiters are kept per PodPool rather than per connector, so that the limit holds while a connector is being replaced.
+     */
+    private final Map<String, MeteredLimiter> specializationLimiters;
+
+    private record MeteredLimiter(SpecializationLimiter limiter, List<Meter> meters) {
+    }
+
+    /**
+     * Activators are kept per PodPool for the same reason, so that buffered requests are woken by pods seen by the new connector.
+     */
+    private final Map<String, MeteredActivator> activators;
+
+    private record MeteredActivator(PodActivator activator, List<Meter> meters) {
+    }
+
+    public DefaultPodPoolConnectorFactory(PodPoolResources podPoolResources, ExecutorProperties executorProperties, MeterRegistry meterRegistry, ExecutorMembership membership, PodTopology topology) {
         super(podPoolResources);
+        this.executorProperties = executorProperties;
+        this.meterRegistry = meterRegistry;
+        this.membership = membership;
+        this.topology = topology;
+        this.specializationLimiters = new ConcurrentHashMap<>();
+        this.activators = new ConcurrentHashMap<>();
     }
 
     @Override
     protected PodPoolConnector createPodQueue(PodPool podPool) {
-        return new ApiServerPodPoolConnectorImpl(getPodPoolResources(), podPool);
+        var limiter = specializationLimiters.computeIfAbsent(ResourceUtils.computeResourceMetaKey(podPool), key -> createLimiter(podPool));
+        var activator = executorProperties.getActivator().isEnabled()
+                ? activators.computeIfAbsent(ResourceUtils.computeResourceMetaKey(podPool), key -> createActivator(podPool)).activator()
+                : null;
+        return new ApiServerPodPoolConnectorImpl(getPodPoolResources(), getPodEventDispatcher(), executorProperties, limiter.limiter(), activator, membership, topology, podPool);
+    }
+
+    private MeteredActivator createActivator(PodPool podPool) {
+        var properties = executorProperties.getActivator();
+        var namespace = podPool.getMetadata().getNamespace();
+        var name = podPool.getMetadata().getName();
+        var activator = new PodActivator(
+                properties.getMaxBufferedRequests(),
+                properties.getTimeout(),
+                properties.getDemandSignalInterval(),
+                buffered -> signalDemand(namespace, name, buffered));
+        var tags = Tags.of("namespace", namespace, "pod_pool", name);
+        return new MeteredActivator(activator, List.of(
+                Gauge.builder("fusion.podpool.activator.buffered", activator, PodActivator::getBuffered)
+                        .description("Number of requests buffered for a ready generic pod")
+                        .tags(tags)
+                        .register(meterRegistry),
+                FunctionCounter.builder("fusion.podpool.activator.rejected", activator, PodActivator::getRejectedCount)
+                        .description("Number of buffered requests rejected as buffer is full or no generic pod is ready in time")
+                        .tags(tags)
+                        .register(meterRegistry)
+        ));
+    }
+
+    /**
+     * Write demand of this executor to its annotation of the PodPool, which the operator sums with demands of other executors to scale up
+     * generic pods. Expired demands of other executors, e.g. of replicas that are gone, are removed meanwhile, so that annotations don't pile
+     * up. Failures are only logged, as demand is signalled again by later requests.
+     */
+    private void signalDemand(String namespace, String name, int buffered) {
+        Mono.fromRunnable(() -> {
+                    var client = getPodPoolResources().getKubernetesClient();
+                    var now = Instant.now();
+                    Map<String, String> annotations = new HashMap<>();
+                    getPodPoolResources().queryPodPool(namespace, name).ifPresent(podPool -> PodPoolResourceUtils.listExecutorDemands(podPool)
+                            .forEach((annotation, demand) -> {
+                                if (PodPoolResourceUtils.isDemandExpired(podPool, demand, now)) {
+                                    annotations.put(annotation, null);
+                                }
+                            }));
+                    annotations.put(PodPool.DEMAND_ANNOTATION_PREFIX + executorProperties.getIdentity(), new PodPoolResourceUtils.ExecutorDemand(buffered, now).format());
+                    client.resources(PodPool.class)
+                            .inNamespace(namespace)
+                            .withName(name)
+                            .patch(PatchContext.of(PatchType.JSON_MERGE), client.getKubernetesSerialization().asJson(Map.of("metadata", Map.of("annotations", annotations))));
+                })
+                .subscribeOn(Schedulers.boundedElastic())
+                .subscribe(
+                        ignored -> {},
+                        e -> log.warn("[signalDemand] Failed to signal demand of PodPool {}/{}", namespace, name, e),
+                        () -> log.info("[signalDemand] Demand of PodPool {}/{} is signalled. buffered={}", namespace, name, buffered));
+    }
+
+    private MeteredLimiter createLimiter(PodPool podPool) {
+        var limiter = new SpecializationLimiter(
+                executorProperties.getConnector().getMaxConcurrentSpecializations(),
+                executorProperties.getConnector().getMaxQueuedSpecializations());
+        var tags = Tags.of("namespace", podPool.getMetadata().getNamespace(), "pod_pool", podPool.getMetadata().getName());
+        return new MeteredLimiter(limiter, List.of(
+                Gauge.builder("fusion.podpool.specialization.active", limiter, SpecializationLimiter::getActive)
+                        .description("Number of running pod claims and specializations")
+                        .tags(tags)
+                        .register(meterRegistry),
+                Gauge.builder("fusion.podpool.specialization.queued", limiter, SpecializationLimiter::getQueued)
+                        .description("Number of callers waiting for a specialization permit")
+                        .tags(tags)
+                        .register(meterRegistry),
+                Gauge.builder("fusion.podpool.specialization.saturation", limiter, l -> (double) l.getActive() / l.getMaxConcurrent())
+                        .description("Ratio of running specializations to the limit")
+                        .tags(tags)
+                        .register(meterRegistry),
+                FunctionCounter.builder("fusion.podpool.specialization.rejected", limiter, SpecializationLimiter::getRejectedCount)
+                        .description("Number of callers rejected as specialization queue is full")
+                        .tags(tags)
+                        .register(meterRegistry)
+        ));
+    }
+
+    @Override
+    public void onDelete(PodPool obj, boolean deletedFinalStateUnknown) {
+        super.onDelete(obj, deletedFinalStateUnknown);
+        Optional.ofNullable(specializationLimiters.remove(ResourceUtils.computeResourceMetaKey(obj)))
+                .ifPresent(limiter -> limiter.meters().forEach(meterRegistry::remove));
+        Optional.ofNullable(activators.remove(ResourceUtils.computeResourceMetaKey(obj)))
+                .ifPresent(activator -> activator.meters().forEach(meterRegistry::remove));
     }
 }
@@ -0,0 +1,151 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.executor.ExecutorProperties;
+import io.fabric8.kubernetes.api.model.coordination.v1.Lease;
+import io.fabric8.kubernetes.api.model.coordination.v1.LeaseBuilder;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Membership of executor replicas, which is kept as one Lease object per replica. Each replica renews its own Lease, and lists Leases of all
+ * replicas to build a {@link ConsistentHashRing}, which decides the owner of each generic pod. Listeners are notified when members change.
+ * <p>
+ * If sharding is disabled, this executor owns everything.
+ *
+ * @author robinqu
+ */
+@Slf4j
+public class ExecutorMembership implements AutoCloseable {
+    public static final String MEMBER_LABEL_NAME = "fusion.tuna.ai/executor-member";
+
+    private final KubernetesClient kubernetesClient;
+    private final ExecutorProperties.Sharding properties;
+    private final String identity;
+    private final List<Runnable> listeners;
+    private volatile Set<String> members;
+    private volatile ConsistentHashRing ring;
+    private Disposable task;
+
+    public ExecutorMembership(KubernetesClient kubernetesClient, ExecutorProperties executorProperties) {
+        this.kubernetesClient = kubernetesClient;
+        this.properties = executorProperties.getSharding();
+        this.identity = executorProperties.getIdentity();
+        this.listeners = new CopyOnWriteArrayList<>();
+        this.members = Set.of(identity);
+        this.ring = new ConsistentHashRing(members, properties.getVirtualNodes());
+    }
+
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        log.info("[start] Sharding is enabled. identity={}, namespace={}", identity, properties.getNamespace());
+        task = Flux.interval(Duration.ZERO, properties.getRenewInterval())
+                .onBackpressureDrop()
+                .concatMap(tick -> Mono.fromRunnable(this::refresh)
+                        .subscribeOn(Schedulers.boundedElastic())
+                        .onErrorResume(e -> {
+                            log.error("[refresh] Failed to refresh executor membership", e);
+                            return Mono.empty();
+                        }))
+                .subscribe();
+    }
+
+    /**
+     * @return true if this executor owns given key, which is always true if sharding is disabled
+     */
+    public boolean isOwner(String key) {
+        return !properties.isEnabled() || ring.owner(key).map(identity::equals).orElse(true);
+    }
+
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Runnable listener) {
+        listeners.remove(listener);
+    }
+
+    private void refresh() {
+        renew();
+        var now = Instant.now();
+        Set<String> alive = new TreeSet<>();
+        alive.add(identity);
+        for (var lease : kubernetesClient.leases().inNamespace(properties.getNamespace()).withLabel(MEMBER_LABEL_NAME, "true").list().getItems()) {
+            if (isAlive(lease, now)) {
+                alive.add(lease.getSpec().getHolderIdentity());
+            }
+        }
+        if (alive.equals(members)) {
+            return;
+        }
+        log.info("[refresh] Executor members are changed from {} to {}", members, alive);
+        members = Set.copyOf(alive);
+        ring = new ConsistentHashRing(alive, properties.getVirtualNodes());
+        for (var listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.error("[refresh] Failed to notify membership listener", e);
+            }
+        }
+    }
+
+    private boolean isAlive(Lease lease, Instant now) {
+        var spec = lease.getSpec();
+        if (spec == null || spec.getHolderIdentity() == null || spec.getRenewTime() == null) {
+            return false;
+        }
+        var duration = Optional.ofNullable(spec.getLeaseDurationSeconds())
+                .map(Duration::ofSeconds)
+                .orElse(properties.getLeaseDuration());
+        return spec.getRenewTime().toInstant().plus(duration).isAfter(now);
+    }
+
+    private void renew() {
+        var lease = new LeaseBuilder()
+                .withNewMetadata()
+                .withName(identity)
+                .withNamespace(properties.getNamespace())
+                .addToLabels(MEMBER_LABEL_NAME, "true")
+                .endMetadata()
+                .withNewSpec()
+                .withHolderIdentity(identity)
+                .withLeaseDurationSeconds((int) properties.getLeaseDuration().toSeconds())
+                .withRenewTime(ZonedDateTime.now(ZoneOffset.UTC))
+                .endSpec()
+                .build();
+        kubernetesClient.leases().inNamespace(properties.getNamespace()).resource(lease).forceConflicts().serverSideApply();
+    }
+
+    /**
+     * Stop renewing and delete the Lease, so that other replicas take over pods of this executor without waiting for the Lease to expire.
+     */
+    @Override
+    public void close() {
+        if (task == null) {
+            return;
+        }
+        task.dispose();
+        try {
+            kubernetesClient.leases().inNamespace(properties.getNamespace()).withName(identity).delete();
+        } catch (KubernetesClientException e) {
+            log.warn("[close] Failed to delete lease of executor {}", identity, e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.SequencedSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Predicate;
+
+/**
+ * Insertion-ordered set of ready generic pods with O(1) add, take, remove and membership checks. Callers that find the set empty register
+ * a waiter, which is completed directly by the next {@link #offer(String)} in FIFO order.
+ * <p>
+ * Pods are taken in insertion order, except that preferred pods, e.g. pods in the same zone, are taken first. Preferred pods are kept in an
+ * index of their own, so that they are found without scanning the others. Whether a pod is preferred is decided once as it's offered.
+ *
+ * @author robinqu
+ */
+@Slf4j
+public class GenericPodReadySet {
+    private final SequencedSet<String> preferredPods;
+    private final SequencedSet<String> otherPods;
+    private final Deque<CompletableFuture<String>> waiters;
+    private final Predicate<String> preferred;
+
+    public GenericPodReadySet() {
+        this(podKey -> true);
+    }
+
+    /**
+     * @param preferred checked once per offered pod while the set is locked, so it must not block
+     */
+    public GenericPodReadySet(Predicate<String> preferred) {
+        this.preferredPods = new LinkedHashSet<>();
+        this.otherPods = new LinkedHashSet<>();
+        this.waiters = new ArrayDeque<>();
+        this.preferred = preferred;
+    }
+
+    /**
+     * Add a ready pod. If any caller is waiting, the pod is handed to the oldest waiter instead of being added to the set.
+     * Waiters are completed outside the lock, as their continuations run on the calling thread.
+     * @return true if pod is added or handed to a waiter
+     */
+    public boolean offer(String podKey) {
+        while (true) {
+            CompletableFuture<String> waiter;
+            synchronized (this) {
+                if (contains(podKey)) {
+                    return false;
+                }
+                waiter = waiters.pollFirst();
+                if (waiter == null) {
+                    return preferred.test(podKey) ? preferredPods.add(podKey) : otherPods.add(podKey);
+                }
+            }
+            if (waiter.complete(podKey)) {
+                log.debug("[offer] Pod {} is handed to waiter directly", podKey);
+                return true;
+            }
+        }
+    }
+
+    public synchronized boolean remove(String podKey) {
+        return preferredPods.remove(podKey) | otherPods.remove(podKey);
+    }
+
+    public synchronized boolean contains(String podKey) {
+        return preferredPods.contains(podKey) || otherPods.contains(podKey);
+    }
+
+    public synchronized Optional<String> poll() {
+        return Optional.ofNullable(pollFirst());
+    }
+
+    /**
+     * Take the oldest ready pod, or register a waiter that is completed once a pod becomes ready.
+     * Waiters that are no longer needed must be returned with {@link #release(CompletableFuture)}.
+     */
+    public synchronized CompletableFuture<String> acquire() {
+        var podKey = pollFirst();
+        if (podKey != null) {
+            return CompletableFuture.completedFuture(podKey);
+        }
+        var waiter = new CompletableFuture<String>();
+        waiters.addLast(waiter);
+        return waiter;
+    }
+
+    /**
+     * Give up a waiter returned by {@link #acquire()}. If a pod has been handed to it meanwhile, the pod is put back so that it's not lost.
+     */
+    public void release(CompletableFuture<String> waiter) {
+        if (waiter.cancel(false)) {
+            synchronized (this) {
+                waiters.remove(waiter);
+            }
+            return;
+        }
+        var podKey = waiter.getNow(null);
+        if (podKey != null) {
+            log.debug("[release] Pod {} is returned by waiter", podKey);
+            offer(podKey);
+        }
+    }
+
+    public synchronized int size() {
+        return preferredPods.size() + otherPods.size();
+    }
+
+    public synchronized int waiterCount() {
+        purgeCancelledWaiters();
+        return waiters.size();
+    }
+
+    /**
+     * Take the oldest preferred pod, or the oldest pod if none is preferred.
+     */
+    private String pollFirst() {
+        if (!preferredPods.isEmpty()) {
+            return preferredPods.removeFirst();
+        }
+        return otherPods.isEmpty() ? null : otherPods.removeFirst();
+    }
+
+    private void purgeCancelledWaiters() {
+        Iterator<CompletableFuture<String>> iterator = waiters.iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().isDone()) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.executor.ExecutorProperties;
+import ai.tuna.fusion.executor.driver.podpool.CountedPodAccess;
+import ai.tuna.fusion.executor.driver.podpool.PodHealth;
+import ai.tuna.fusion.metadata.crd.ResourceUtils;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Judges health of pods of a build by {@link ExecutorProperties.OutlierDetection}. Pods whose average latency is far above the median of
+ * their build are ejected, e.g. pods whose runtime is wedged or starved.
+ *
+ * @author robinqu
+ */
+@Slf4j
+class OutlierDetector {
+
+    private final ExecutorProperties.OutlierDetection outlierDetection;
+
+    OutlierDetector(ExecutorProperties.OutlierDetection outlierDetection) {
+        this.outlierDetection = outlierDetection;
+    }
+
+    /**
+     * Health of a new pod, so that thresholds are always the ones configured for the executor.
+     */
+    PodHealth newHealth() {
+        return new PodHealth(outlierDetection.getConsecutiveFailures(), outlierDetection.getBaseEjectionTime(), outlierDetection.getMaxEjections());
+    }
+
+    /**
+     * Eject latency outliers among accesses of a build that are not draining.
+     * @return accesses that are found unhealthy, which are to be retired
+     */
+    List<CountedPodAccess> detect(Collection<CountedPodAccess> buildAccesses) {
+        var accesses = buildAccesses.stream()
+                .filter(access -> !access.isDraining())
+                .toList();
+        var sampled = accesses.stream()
+                .mapToDouble(CountedPodAccess::getLatencyMillis)
+                .filter(latency -> latency > 0)
+                .sorted()
+                .toArray();
+        if (sampled.length >= outlierDetection.getMinPodsForLatencyOutliers()) {
+            var median = sampled[sampled.length / 2];
+            var threshold = Math.max(median * outlierDetection.getLatencyOutlierFactor(), outlierDetection.getMinOutlierLatency().toMillis());
+            for (var access : accesses) {
+                if (access.getLatencyMillis() > threshold && !access.getHealth().isEjected()) {
+                    access.getHealth().eject("latency outlier");
+                    log.warn("[detect] Pod {} is ejected as latency outlier. latency={}ms, median={}ms, health={}", ResourceUtils.computeResourceMetaKey(access.getPodAccess().getSelectedPod()), access.getLatencyMillis(), median, access.getHealth());
+                }
+            }
+        }
+        return accesses.stream()
+                .filter(access -> access.getHealth().isUnhealthy())
+                .toList();
+    }
+}
@@ -0,0 +1,122 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+/**
+ * Buffers requests of a PodPool that has no ready generic pods, e.g. as it's scaled from zero. Buffered requests signal demand, so that the
+ * pool is scaled up, and are woken in FIFO order as generic pods become ready. Requests beyond {@code maxBuffered} are rejected at once, and
+ * requests that wait longer than {@code timeout} are rejected as well.
+ * <p>
+ * A woken request is not handed a pod. It goes on to claim one as usual, so a pod is never lost by a waiter that goes away.
+ *
+ * @author robinqu
+ */
+@Slf4j
+public class PodActivator {
+    private final int maxBuffered;
+    private final Duration timeout;
+    private final long signalIntervalNanos;
+    private final IntConsumer demandListener;
+    private final Deque<CompletableFuture<Void>> waiters;
+    private final AtomicLong rejectedCount;
+    private final AtomicLong lastSignalAt;
+
+    /**
+     * @param demandListener called with number of buffered requests, at most once per {@code signalInterval}
+     */
+    public PodActivator(int maxBuffered, Duration timeout, Duration signalInterval, IntConsumer demandListener) {
+        this.maxBuffered = Math.max(0, maxBuffered);
+        this.timeout = timeout;
+        this.signalIntervalNanos = signalInterval.toNanos();
+        this.demandListener = demandListener;
+        this.waiters = new ArrayDeque<>();
+        this.rejectedCount = new AtomicLong();
+        this.lastSignalAt = new AtomicLong(System.nanoTime() - signalIntervalNanos);
+    }
+
+    /**
+     * Wait for a generic pod to become ready. The waiter is removed when it's woken, times out or is cancelled.
+     */
+    public Mono<Void> await() {
+        return Mono.defer(() -> {
+            var waiter = new CompletableFuture<Void>();
+            int buffered;
+            synchronized (this) {
+                purgeCancelledWaiters();
+                if (waiters.size() >= maxBuffered) {
+                    rejectedCount.incrementAndGet();
+                    return Mono.error(new ActivationRejectedException("Activator is saturated. maxBuffered=%s".formatted(maxBuffered)));
+                }
+                waiters.addLast(waiter);
+                buffered = waiters.size();
+            }
+            signalDemand(buffered);
+            return Mono.fromFuture(waiter, true)
+                    .doFinally(signalType -> {
+                        if (signalType != SignalType.ON_COMPLETE && !waiter.isDone()) {
+                            waiter.cancel(false);
+                        }
+                    })
+                    .timeout(timeout, Mono.defer(() -> {
+                        rejectedCount.incrementAndGet();
+                        return Mono.error(new ActivationRejectedException("No generic pod is ready in %s".formatted(timeout)));
+                    }));
+        });
+    }
+
+    /**
+     * Wake the oldest waiter once a generic pod becomes ready. Waiters are completed outside the lock.
+     */
+    public void onPodReady() {
+        while (true) {
+            CompletableFuture<Void> waiter;
+            synchronized (this) {
+                waiter = waiters.pollFirst();
+                if (waiter == null) {
+                    return;
+                }
+            }
+            if (waiter.complete(null)) {
+                return;
+            }
+        }
+    }
+
+    private void signalDemand(int buffered) {
+        var now = System.nanoTime();
+        var last = lastSignalAt.get();
+        if (now - last < signalIntervalNanos || !lastSignalAt.compareAndSet(last, now)) {
+            return;
+        }
+        log.debug("[signalDemand] buffered={}", buffered);
+        demandListener.accept(buffered);
+    }
+
+    private void purgeCancelledWaiters() {
+        waiters.removeIf(CompletableFuture::isDone);
+    }
+
+    public synchronized int getBuffered() {
+        purgeCancelledWaiters();
+        return waiters.size();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public static class ActivationRejectedException extends RuntimeException {
+        public ActivationRejectedException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.executor.ExecutorProperties;
+import ai.tuna.fusion.executor.driver.podpool.PodAccess;
+import ai.tuna.fusion.executor.driver.podpool.PodPoolConnector;
+import ai.tuna.fusion.executor.driver.podpool.PodPoolConnectorFactory;
+import ai.tuna.fusion.metadata.crd.ResourceUtils;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deletes specialized pods in background, so that no request waits for API server. Pods are queued at most once, deletions are sent by
+ * a fixed number of workers at limited rate, and failed deletions are retried with exponential backoff. Pods submitted as recyclable are
+ * returned to generic pods through {@link PodPoolConnector#recycleAccess(PodAccess)} if possible, and deleted otherwise.
+ *
+ * @author robinqu
+ */
+@Slf4j
+public class PodDisposer implements AutoCloseable {
+    private final PodPoolConnectorFactory podPoolConnectorFactory;
+    private final ExecutorProperties.Disposer properties;
+    private final BlockingQueue<DisposalTask> queue;
+    private final Set<String> queuedPods;
+    private final RateLimiter rateLimiter;
+    private final ExecutorService workers;
+    private final ScheduledExecutorService retryScheduler;
+
+    private record DisposalTask(String podKey, PodAccess podAccess, boolean recyclable, int attempt) {
+    }
+
+    public PodDisposer(PodPoolConnectorFactory podPoolConnectorFactory, ExecutorProperties.Disposer properties) {
+        this.podPoolConnectorFactory = podPoolConnectorFactory;
+        this.properties = properties;
+        this.queue = new LinkedBlockingQueue<>(properties.getQueueCapacity());
+        this.queuedPods = ConcurrentHashMap.newKeySet();
+        this.rateLimiter = RateLimiter.create(properties.getDeletionsPerSecond());
+        this.workers = Executors.newFixedThreadPool(properties.getWorkers(), new ThreadFactoryBuilder()
+                .setNameFormat("pod-disposer-%d")
+                .setDaemon(true)
+                .build());
+        this.retryScheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("pod-disposer-retry-%d")
+                .setDaemon(true)
+                .build());
+        for (int i = 0; i < properties.getWorkers(); i++) {
+            workers.execute(this::runWorker);
+        }
+    }
+
+    /**
+     * Queue the pod of given access for deletion.
+     * @return false if the pod is already queued or queue is full
+     */
+    public boolean submit(PodAccess podAccess) {
+        return submit(podAccess, false);
+    }
+
+    /**
+     * Queue the pod of given access for recycling or deletion. Pods that may still serve runs, e.g. ones left with in-flight runs, should
+     * not be recycled.
+     * @return false if the pod is already queued or queue is full
+     */
+    public boolean submit(PodAccess podAccess, boolean recyclable) {
+        var podKey = ResourceUtils.computeResourceMetaKey(podAccess.getSelectedPod());
+        if (!queuedPods.add(podKey)) {
+            log.debug("[submit] Pod {} is already queued", podKey);
+            return false;
+        }
+        if (!queue.offer(new DisposalTask(podKey, podAccess, recyclable, 0))) {
+            queuedPods.remove(podKey);
+            log.error("[submit] Disposal queue is full. Pod {} is left to periodic cleanup.", podKey);
+            return false;
+        }
+        return true;
+    }
+
+    public int size() {
+        return queuedPods.size();
+    }
+
+    private void runWorker() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                var task = queue.take();
+                rateLimiter.acquire();
+                dispose(task);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void dispose(DisposalTask task) {
+        var podAccess = task.podAccess();
+        try {
+            var connector = podPoolConnectorFactory.get(podAccess.getNamespace(), podAccess.getPodPoolName());
+            // recycling is tried only once, as the pod may have been changed by a failed attempt
+            if (task.recyclable() && task.attempt() == 0 && connector.recycleAccess(podAccess)) {
+                queuedPods.remove(task.podKey());
+                return;
+            }
+            connector.disposeAccess(podAccess);
+            queuedPods.remove(task.podKey());
+            log.info("[dispose] Pod is evicted: {}", task.podKey());
+        } catch (Exception e) {
+            var attempt = task.attempt() + 1;
+            if (attempt >= properties.getMaxAttempts()) {
+                queuedPods.remove(task.podKey());
+                log.error("[dispose] Failed to dispose pod {} after {} attempts", task.podKey(), attempt, e);
+                return;
+            }
+            var backoff = backoff(attempt);
+            log.warn("[dispose] Failed to dispose pod {}. Retry {} of {} in {}ms.", task.podKey(), attempt, properties.getMaxAttempts() - 1, backoff.toMillis(), e);
+            retryScheduler.schedule(() -> {
+                if (!queue.offer(new DisposalTask(task.podKey(), podAccess, task.recyclable(), attempt))) {
+                    queuedPods.remove(task.podKey());
+                    log.error("[dispose] Disposal queue is full. Pod {} is left to periodic cleanup.", task.podKey());
+                }
+            }, backoff.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private Duration backoff(int attempt) {
+        var backoff = properties.getInitialBackoff().multipliedBy(1L << Math.min(attempt - 1, 20));
+        return backoff.compareTo(properties.getMaxBackoff()) > 0 ? properties.getMaxBackoff() : backoff;
+    }
+
+    @Override
+    public void close() {
+        log.info("[close] Stop pod disposer with {} pods queued", queuedPods.size());
+        retryScheduler.shutdownNow();
+        workers.shutdownNow();
+    }
+}
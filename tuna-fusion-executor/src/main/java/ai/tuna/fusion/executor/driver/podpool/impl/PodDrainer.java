@@ -0,0 +1,76 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.executor.driver.podpool.CountedPodAccess;
+import ai.tuna.fusion.metadata.crd.ResourceUtils;
+import io.fabric8.kubernetes.api.model.Pod;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Accesses that are draining in-flight runs before their pods are released. A draining access takes no more runs, and is released once its
+ * last run is closed. Accesses left with in-flight runs are released after {@code drainTimeout} anyway, e.g. if some run is never closed.
+ *
+ * @author robinqu
+ */
+@Slf4j
+class PodDrainer {
+
+    private record DrainingAccess(CountedPodAccess access, Instant deadline) {
+    }
+
+    /**
+     * pod key -> access that is draining in-flight runs before its pod is released
+     */
+    private final Map<String, DrainingAccess> drainingAccesses;
+    private final Duration drainTimeout;
+
+    /**
+     * Called exactly once per drained access, with true if the pod can be recycled
+     */
+    private final BiConsumer<CountedPodAccess, Boolean> releaser;
+
+    PodDrainer(Duration drainTimeout, BiConsumer<CountedPodAccess, Boolean> releaser) {
+        this.drainingAccesses = new ConcurrentHashMap<>();
+        this.drainTimeout = drainTimeout;
+        this.releaser = releaser;
+    }
+
+    boolean isDraining(Pod pod) {
+        return drainingAccesses.containsKey(ResourceUtils.computeResourceMetaKey(pod));
+    }
+
+    /**
+     * Stop leasing runs from the access, and release it if no run is in flight. It's called again whenever a run of the access is closed.
+     */
+    void drain(CountedPodAccess countedPodAccess) {
+        var podKey = ResourceUtils.computeResourceMetaKey(countedPodAccess.getPodAccess().getSelectedPod());
+        if (countedPodAccess.markDraining()) {
+            drainingAccesses.put(podKey, new DrainingAccess(countedPodAccess, Instant.now().plus(drainTimeout)));
+            log.info("[drain] Pod {} is draining. inFlight={}", podKey, countedPodAccess.getInFlight());
+        }
+        // removal guarantees pod is released only once
+        if (countedPodAccess.getInFlight() <= 0 && drainingAccesses.remove(podKey) != null) {
+            // runtime of an unhealthy pod is not trusted to be reset
+            releaser.accept(countedPodAccess, !countedPodAccess.getHealth().isUnhealthy());
+        }
+    }
+
+    /**
+     * Release accesses whose in-flight runs are not done before drain deadline. Their pods are not recycled.
+     */
+    void releaseOverdue() {
+        var now = Instant.now();
+        for (var entry : drainingAccesses.entrySet()) {
+            var draining = entry.getValue();
+            if (draining.deadline().isBefore(now) && drainingAccesses.remove(entry.getKey(), draining)) {
+                log.warn("[releaseOverdue] Drain deadline is passed for pod {}. inFlight={}", entry.getKey(), draining.access().getInFlight());
+                releaser.accept(draining.access(), false);
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.metadata.crd.podpool.PodPool;
+import ai.tuna.fusion.metadata.informer.impl.ResourceInformersWrapper;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.Strings;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * The only pod event handler registered on pod informers. Each event is routed to the handler of owning PodPool according to
+ * {@link PodPool#POD_POOL_NAME_LABEL_NAME}, so that cost of event handling doesn't grow with the number of PodPools. Handlers that track
+ * pods across PodPools, e.g. {@link PodExpiryScheduler}, subscribe to all PodPools instead.
+ *
+ * @author robinqu
+ */
+@Slf4j
+public class PodEventDispatcher implements ResourceEventHandler<Pod> {
+
+    private final ResourceInformersWrapper<Pod> podInformers;
+
+    /**
+     * namespace -> PodPool name -> handler
+     */
+    private final Map<String, Map<String, ResourceEventHandler<Pod>>> subscribers;
+
+    /**
+     * handlers of pods of all PodPools
+     */
+    private final List<ResourceEventHandler<Pod>> allPoolsSubscribers;
+
+    public PodEventDispatcher(ResourceInformersWrapper<Pod> podInformers) {
+        this.podInformers = podInformers;
+        this.subscribers = new ConcurrentHashMap<>();
+        this.allPoolsSubscribers = new CopyOnWriteArrayList<>();
+    }
+
+    public void start() {
+        podInformers.addEventHandler(this);
+    }
+
+    public void stop() {
+        podInformers.removeEventHandler(this);
+    }
+
+    /**
+     * Route events of pods in given PodPool to handler. Pods already in informer cache are replayed as {@code onAdd} events.
+     */
+    public void subscribe(PodPool podPool, ResourceEventHandler<Pod> handler) {
+        var namespace = podPool.getMetadata().getNamespace();
+        var podPoolName = podPool.getMetadata().getName();
+        var previous = subscribers.computeIfAbsent(namespace, ns -> new ConcurrentHashMap<>())
+                .put(podPoolName, handler);
+        if (Objects.nonNull(previous) && previous != handler) {
+            log.warn("[subscribe] Handler for PodPool {}/{} is replaced", namespace, podPoolName);
+        }
+        podInformers.getSharedIndexInformer(namespace)
+                .ifPresent(informer -> informer.getStore().list().stream()
+                        .filter(pod -> Strings.CS.equals(pod.getMetadata().getNamespace(), namespace))
+                        .filter(pod -> Strings.CS.equals(podPoolName(pod), podPoolName))
+                        .forEach(handler::onAdd));
+    }
+
+    /**
+     * Stop routing events to handler. Nothing happens if the PodPool has been subscribed by another handler.
+     */
+    public void unsubscribe(PodPool podPool, ResourceEventHandler<Pod> handler) {
+        Optional.ofNullable(subscribers.get(podPool.getMetadata().getNamespace()))
+                .ifPresent(handlers -> handlers.remove(podPool.getMetadata().getName(), handler));
+    }
+
+    /**
+     * Route events of pods of all PodPools to handler, in addition to the handler of each PodPool. Pods already in informer cache are
+     * replayed as {@code onAdd} events.
+     */
+    public void subscribeAll(ResourceEventHandler<Pod> handler) {
+        allPoolsSubscribers.add(handler);
+        podInformers.getSharedIndexInformers()
+                .forEach(informer -> informer.getStore().list().stream()
+                        .filter(pod -> podPoolName(pod) != null)
+                        .forEach(handler::onAdd));
+    }
+
+    public void unsubscribeAll(ResourceEventHandler<Pod> handler) {
+        allPoolsSubscribers.remove(handler);
+    }
+
+    private static String podPoolName(Pod pod) {
+        var labels = pod.getMetadata().getLabels();
+        return labels == null ? null : labels.get(PodPool.POD_POOL_NAME_LABEL_NAME);
+    }
+
+    private Optional<ResourceEventHandler<Pod>> route(Pod pod) {
+        var podPoolName = podPoolName(pod);
+        if (podPoolName == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(subscribers.get(pod.getMetadata().getNamespace()))
+                .map(handlers -> handlers.get(podPoolName));
+    }
+
+    @Override
+    public void onAdd(Pod obj) {
+        route(obj).ifPresent(handler -> handler.onAdd(obj));
+        if (podPoolName(obj) != null) {
+            allPoolsSubscribers.forEach(handler -> handler.onAdd(obj));
+        }
+    }
+
+    @Override
+    public void onUpdate(Pod oldObj, Pod newObj) {
+        var newHandler = route(newObj);
+        var oldHandler = route(oldObj);
+        newHandler.ifPresent(handler -> handler.onUpdate(oldObj, newObj));
+        oldHandler.filter(handler -> newHandler.map(h -> h != handler).orElse(true))
+                .ifPresent(handler -> handler.onDelete(oldObj, false));
+        if (podPoolName(newObj) != null || podPoolName(oldObj) != null) {
+            allPoolsSubscribers.forEach(handler -> handler.onUpdate(oldObj, newObj));
+        }
+    }
+
+    @Override
+    public void onDelete(Pod obj, boolean deletedFinalStateUnknown) {
+        route(obj).ifPresent(handler -> handler.onDelete(obj, deletedFinalStateUnknown));
+        if (podPoolName(obj) != null) {
+            allPoolsSubscribers.forEach(handler -> handler.onDelete(obj, deletedFinalStateUnknown));
+        }
+    }
+}
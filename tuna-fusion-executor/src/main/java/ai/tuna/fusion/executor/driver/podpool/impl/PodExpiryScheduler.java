@@ -0,0 +1,151 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.metadata.crd.ResourceUtils;
+import ai.tuna.fusion.metadata.crd.podpool.PodPool;
+import ai.tuna.fusion.metadata.crd.podpool.PodPoolSpec;
+import ai.tuna.fusion.metadata.informer.PodPoolResources;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.Strings;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static ai.tuna.fusion.metadata.crd.podpool.PodPool.*;
+
+/**
+ * Fires a callback for each specialized pod exactly when it reaches its TTL. Deadlines are computed once from pod events, and kept in the
+ * delay queue of a {@link ScheduledThreadPoolExecutor}, so that no API server call or periodic scan is needed to find expired pods. Events
+ * of pods of all PodPools are received through {@link PodEventDispatcher}, so that pod informers keep a single event handler.
+ *
+ * @author robinqu
+ */
+@Slf4j
+public class PodExpiryScheduler implements ResourceEventHandler<Pod>, AutoCloseable {
+    private final PodPoolResources podPoolResources;
+    private final PodEventDispatcher podEventDispatcher;
+    private final Consumer<Pod> onExpired;
+    private final ScheduledThreadPoolExecutor timer;
+
+    /**
+     * pod key -> scheduled expiry
+     */
+    private final Map<String, ScheduledExpiry> expiries;
+
+    private record ScheduledExpiry(Instant deadline, ScheduledFuture<?> future) {
+    }
+
+    public PodExpiryScheduler(PodPoolResources podPoolResources, PodEventDispatcher podEventDispatcher, Consumer<Pod> onExpired) {
+        this.podPoolResources = podPoolResources;
+        this.podEventDispatcher = podEventDispatcher;
+        this.onExpired = onExpired;
+        this.expiries = new ConcurrentHashMap<>();
+        this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+                .setNameFormat("pod-expiry-%d")
+                .setDaemon(true)
+                .build());
+        this.timer.setRemoveOnCancelPolicy(true);
+    }
+
+    public void start() {
+        podEventDispatcher.subscribeAll(this);
+    }
+
+    public static Instant computeDeadline(Pod pod, Long ttlInSeconds) {
+        var ttl = Optional.ofNullable(ttlInSeconds)
+                .filter(v -> v > 0)
+                .orElse(TTL_IN_SECONDS_FOR_SPECIALIZED_POD);
+        return Instant.parse(pod.getMetadata().getCreationTimestamp()).plusSeconds(ttl);
+    }
+
+    public int size() {
+        return expiries.size();
+    }
+
+    private static boolean isSpecializedPod(Pod pod) {
+        var labels = pod.getMetadata().getLabels();
+        return labels != null
+                && Strings.CS.equals(labels.get(SPECIALIZED_POD_LABEL_VALUE), "true")
+                && pod.getMetadata().getDeletionTimestamp() == null;
+    }
+
+    private void schedule(Pod pod) {
+        var podKey = ResourceUtils.computeResourceMetaKey(pod);
+        var ttl = podPoolResources.queryPodPool(pod.getMetadata().getNamespace(), pod.getMetadata().getLabels().get(POD_POOL_NAME_LABEL_NAME))
+                .map(PodPool::getSpec)
+                .map(PodPoolSpec::getTtlPerPod)
+                .orElse(null);
+        var deadline = computeDeadline(pod, ttl);
+        var current = expiries.get(podKey);
+        if (current != null && current.deadline().equals(deadline)) {
+            return;
+        }
+        var delay = Math.max(0, Duration.between(Instant.now(), deadline).toMillis());
+        var future = timer.schedule(() -> fire(podKey), delay, TimeUnit.MILLISECONDS);
+        var previous = expiries.put(podKey, new ScheduledExpiry(deadline, future));
+        if (previous != null) {
+            previous.future().cancel(false);
+        }
+        log.debug("[schedule] Pod {} expires at {}", podKey, deadline);
+    }
+
+    private void cancel(String podKey) {
+        var previous = expiries.remove(podKey);
+        if (previous != null) {
+            previous.future().cancel(false);
+            log.debug("[cancel] Expiry of pod {} is cancelled", podKey);
+        }
+    }
+
+    private void fire(String podKey) {
+        expiries.remove(podKey);
+        var parsed = ResourceUtils.parseResourceMetaKey(podKey);
+        podPoolResources.queryPod(parsed.getLeft(), parsed.getRight())
+                .filter(PodExpiryScheduler::isSpecializedPod)
+                .ifPresent(pod -> {
+                    log.info("[fire] Specialized pod {} is expired", podKey);
+                    try {
+                        onExpired.accept(pod);
+                    } catch (RuntimeException e) {
+                        log.error("[fire] Failed to handle expired pod {}", podKey, e);
+                    }
+                });
+    }
+
+    @Override
+    public void onAdd(Pod obj) {
+        if (isSpecializedPod(obj)) {
+            schedule(obj);
+        }
+    }
+
+    @Override
+    public void onUpdate(Pod oldObj, Pod newObj) {
+        if (isSpecializedPod(newObj)) {
+            schedule(newObj);
+        } else {
+            cancel(ResourceUtils.computeResourceMetaKey(newObj));
+        }
+    }
+
+    @Override
+    public void onDelete(Pod obj, boolean deletedFinalStateUnknown) {
+        cancel(ResourceUtils.computeResourceMetaKey(obj));
+    }
+
+    @Override
+    public void close() {
+        podEventDispatcher.unsubscribeAll(this);
+        timer.shutdownNow();
+        expiries.clear();
+    }
+}
@@ -0,0 +1,53 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builder of JSON patch that operates on pod labels. {@code test} operations make the patch fail with 422 if labels are changed by others.
+ * Existing annotations can be removed as well.
+ *
+ * @author robinqu
+ */
+public class PodLabelPatch {
+    private static final String LABEL_PATH = "/metadata/labels/";
+    private static final String ANNOTATION_PATH = "/metadata/annotations/";
+
+    private final List<String> operations = new ArrayList<>();
+
+    public static PodLabelPatch create() {
+        return new PodLabelPatch();
+    }
+
+    public PodLabelPatch test(String label, String value) {
+        operations.add("{\"op\": \"test\", \"path\": \"%s\", \"value\": \"%s\"}".formatted(path(label), value));
+        return this;
+    }
+
+    public PodLabelPatch add(String label, String value) {
+        operations.add("{\"op\": \"add\", \"path\": \"%s\", \"value\": \"%s\"}".formatted(path(label), value));
+        return this;
+    }
+
+    public PodLabelPatch remove(String label) {
+        operations.add("{\"op\": \"remove\", \"path\": \"%s\"}".formatted(path(label)));
+        return this;
+    }
+
+    public PodLabelPatch removeAnnotation(String annotation) {
+        operations.add("{\"op\": \"remove\", \"path\": \"%s\"}".formatted(ANNOTATION_PATH + encodeJsonPointer(annotation)));
+        return this;
+    }
+
+    public String build() {
+        return "[" + String.join(",", operations) + "]";
+    }
+
+    private static String path(String label) {
+        return LABEL_PATH + encodeJsonPointer(label);
+    }
+
+    private static String encodeJsonPointer(String key) {
+        return key.replace("~", "~0").replace("/", "~1");
+    }
+}
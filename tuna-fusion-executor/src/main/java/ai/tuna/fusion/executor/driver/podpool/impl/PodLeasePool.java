@@ -0,0 +1,263 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.executor.driver.podpool.CountedPodAccess;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.Strings;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Fixed number of specialized pod slots for a single function build. Runs are sent to the less loaded of two random pods, i.e. power of
+ * two choices, so that long-running runs don't pile up on one pod while others are idle. Preferred pods, e.g. pods in the same zone, are
+ * chosen from first. Slots are visited in round-robin order as fallback.
+ * Slot state transitions are done with CAS and no lock is held. Requesters waiting for saturated pods
+ * are queued in FIFO order, and woken one at a time as runs are closed.
+ *
+ * @author robinqu
+ */
+@Slf4j
+public class PodLeasePool {
+    @Getter
+    private final String buildUid;
+    @Getter
+    private final String buildName;
+    @Getter
+    private final String namespace;
+    @Getter
+    private final String functionName;
+    private final AtomicReferenceArray<CountedPodAccess> slots;
+    private final AtomicInteger cursor;
+
+    /**
+     * slot index -> in-flight specialization shared by all requesters of the slot
+     */
+    private final Map<Integer, Mono<CountedPodAccess>> pendingSpecializations;
+
+    /**
+     * Number of requesters waiting for a specialization of this build
+     */
+    @Getter
+    private final AtomicInteger waitingCount;
+
+    /**
+     * Requesters waiting for an in-flight run to close, in FIFO order
+     */
+    private final Deque<CompletableFuture<Void>> capacityWaiters;
+
+    public PodLeasePool(String namespace, String functionName, String buildName, String buildUid, int slotCount) {
+        this.namespace = namespace;
+        this.functionName = functionName;
+        this.buildName = buildName;
+        this.buildUid = buildUid;
+        this.slots = new AtomicReferenceArray<>(slotCount);
+        this.cursor = new AtomicInteger(0);
+        this.pendingSpecializations = new ConcurrentHashMap<>();
+        this.waitingCount = new AtomicInteger(0);
+        this.capacityWaiters = new ArrayDeque<>();
+    }
+
+    public int size() {
+        return slots.length();
+    }
+
+    /**
+     * Pick next slot index in round-robin order.
+     */
+    public int nextSlot() {
+        return Math.floorMod(cursor.getAndIncrement(), slots.length());
+    }
+
+    public Optional<CountedPodAccess> get(int idx) {
+        return Optional.ofNullable(slots.get(idx));
+    }
+
+    /**
+     * Try to reserve a run from the given slot.
+     * @param usable predicate to check if access in slot can still serve requests
+     */
+    public Optional<CountedPodAccess> tryLease(int idx, Predicate<CountedPodAccess> usable) {
+        var access = slots.get(idx);
+        if (access != null && usable.test(access) && access.tryReserve()) {
+            return Optional.of(access);
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Try to reserve a run from any occupied slot, starting from {@code startIdx}.
+     */
+    public Optional<CountedPodAccess> tryLeaseAny(int startIdx, Predicate<CountedPodAccess> usable) {
+        for (int i = 0; i < slots.length(); i++) {
+            var leased = tryLease((startIdx + i) % slots.length(), usable);
+            if (leased.isPresent()) {
+                return leased;
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Try to reserve a run from the less loaded of two random preferred pods that can take a run, then from all pods that can take a run,
+     * and fall back to round-robin order if they are taken meanwhile. Load is compared by {@link CountedPodAccess#getLoad()}.
+     */
+    public Optional<CountedPodAccess> tryLeaseLeastLoaded(Predicate<CountedPodAccess> usable, Predicate<CountedPodAccess> preferred) {
+        var candidates = list().stream()
+                .filter(access -> !access.isDraining() && !access.isSaturated() && access.getRemaining() > 0)
+                .filter(usable)
+                .toList();
+        var preferredCandidates = candidates.stream().filter(preferred).toList();
+        return tryLeaseLeastLoaded(preferredCandidates)
+                .or(() -> preferredCandidates.size() < candidates.size() ? tryLeaseLeastLoaded(candidates) : Optional.empty())
+                .or(() -> tryLeaseAny(nextSlot(), usable));
+    }
+
+    private Optional<CountedPodAccess> tryLeaseLeastLoaded(List<CountedPodAccess> candidates) {
+        if (candidates.size() == 1) {
+            return Optional.of(candidates.getFirst()).filter(CountedPodAccess::tryReserve);
+        }
+        if (candidates.size() >= 2) {
+            var random = ThreadLocalRandom.current();
+            var i = random.nextInt(candidates.size());
+            var j = random.nextInt(candidates.size() - 1);
+            if (j >= i) {
+                j++;
+            }
+            var first = candidates.get(i);
+            var second = candidates.get(j);
+            if (second.getLoad() < first.getLoad()) {
+                var swap = first;
+                first = second;
+                second = swap;
+            }
+            if (first.tryReserve()) {
+                return Optional.of(first);
+            }
+            if (second.tryReserve()) {
+                return Optional.of(second);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Find a slot that is empty and not being specialized, starting from {@code startIdx}.
+     */
+    public OptionalInt findIdleSlot(int startIdx) {
+        for (int i = 0; i < slots.length(); i++) {
+            var idx = (startIdx + i) % slots.length();
+            if (slots.get(idx) == null && !pendingSpecializations.containsKey(idx)) {
+                return OptionalInt.of(idx);
+            }
+        }
+        return OptionalInt.empty();
+    }
+
+    /**
+     * Start specialization for the slot, or join the one in flight.
+     */
+    public Mono<CountedPodAccess> specialize(int idx, Supplier<Mono<CountedPodAccess>> specialization) {
+        return pendingSpecializations.computeIfAbsent(idx, key -> Mono.defer(specialization)
+                .doFinally(signalType -> pendingSpecializations.remove(key))
+                .cache());
+    }
+
+    public List<Mono<CountedPodAccess>> listPendingSpecializations() {
+        return List.copyOf(pendingSpecializations.values());
+    }
+
+    /**
+     * Queue a requester for capacity of saturated pods.
+     * @return future completed by {@link #signalCapacity()}, or empty if {@code maxQueued} requesters are waiting already
+     */
+    public synchronized Optional<CompletableFuture<Void>> enqueueCapacityWaiter(int maxQueued) {
+        capacityWaiters.removeIf(CompletableFuture::isDone);
+        if (capacityWaiters.size() >= maxQueued) {
+            return Optional.empty();
+        }
+        var waiter = new CompletableFuture<Void>();
+        capacityWaiters.addLast(waiter);
+        return Optional.of(waiter);
+    }
+
+    /**
+     * Wake the oldest requester waiting for capacity, e.g. once a run is closed. Waiters are completed outside the lock.
+     */
+    public void signalCapacity() {
+        while (true) {
+            CompletableFuture<Void> waiter;
+            synchronized (this) {
+                waiter = capacityWaiters.pollFirst();
+            }
+            if (waiter == null || waiter.complete(null)) {
+                return;
+            }
+        }
+    }
+
+    public synchronized int getQueuedCount() {
+        capacityWaiters.removeIf(CompletableFuture::isDone);
+        return capacityWaiters.size();
+    }
+
+    /**
+     * Put access into an empty slot.
+     * @return false if the slot is occupied by others
+     */
+    public boolean fill(int idx, CountedPodAccess access) {
+        return slots.compareAndSet(idx, null, access);
+    }
+
+    /**
+     * Remove given access from its slot.
+     * @return true if access is found and removed
+     */
+    public boolean evict(CountedPodAccess access) {
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) == access && slots.compareAndSet(i, access, null)) {
+                log.debug("[evict] Slot {} of build {} is released", i, buildUid);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Optional<CountedPodAccess> findByPodName(String podName) {
+        for (int i = 0; i < slots.length(); i++) {
+            var access = slots.get(i);
+            if (access != null && Strings.CS.equals(access.getPodAccess().getSelectedPod().getMetadata().getName(), podName)) {
+                return Optional.of(access);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public List<CountedPodAccess> list() {
+        List<CountedPodAccess> list = new ArrayList<>(slots.length());
+        for (int i = 0; i < slots.length(); i++) {
+            var access = slots.get(i);
+            if (access != null) {
+                list.add(access);
+            }
+        }
+        return list;
+    }
+
+    public boolean isEmpty() {
+        return list().isEmpty();
+    }
+}
@@ -0,0 +1,334 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.executor.ExecutorProperties;
+import ai.tuna.fusion.executor.driver.podpool.CountedPodAccess;
+import ai.tuna.fusion.metadata.crd.ResourceUtils;
+import ai.tuna.fusion.metadata.crd.podpool.PodPool;
+import ai.tuna.fusion.metadata.informer.PodPoolResources;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import io.fabric8.kubernetes.client.dsl.base.PatchContext;
+import io.fabric8.kubernetes.client.dsl.base.PatchType;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.Strings;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static ai.tuna.fusion.metadata.crd.podpool.PodPool.*;
+
+/**
+ * Cluster-wide run accounting of specialized pods, which are shared by executor replicas.
+ * <p>
+ * Runs of a pod are granted to executors in batches of {@link ExecutorProperties.Accounting#getRunsPerGrant()}, and recorded in pod annotations:
+ * {@link PodPool#RUN_COUNT_ANNOTATION_NAME} is the number of runs granted to all executors, and {@link PodPool#RUN_LEASE_ANNOTATION_PREFIX}
+ * followed by executor identity is the number of runs granted to that executor. Grants are written with resourceVersion precondition, so that
+ * concurrent grants of executors never exceed {@code runPerPod}. Runs within a grant are reserved locally by {@link CountedPodAccess#tryReserve()},
+ * and concurrent grants for a pod are coalesced, so API server is written once per batch rather than once per run.
+ * <p>
+ * Pods are read from informer cache. A stale read fails the precondition, and only then the pod is read from API server before retrying.
+ * Releases are queued and written in batches of {@link ExecutorProperties.Accounting#getReleaseBatchInterval()}.
+ * <p>
+ * A pod is adopted by other executors only after its first grant is published. Unused runs are returned when an executor releases a pod, and
+ * the pod is disposed by the last executor holding it.
+ *
+ * @author robinqu
+ */
+@Slf4j
+public class PodRunLedger implements AutoCloseable {
+    private static final int MAX_CONFLICT_RETRIES = 3;
+    private static final int MAX_RELEASE_BATCH_SIZE = 256;
+
+    private final PodPoolResources podPoolResources;
+    private final String identity;
+    private final int runsPerGrant;
+
+    /**
+     * pod key -> grant in flight
+     */
+    private final Map<String, Mono<Integer>> pendingGrants;
+
+    /**
+     * pods whose runs are all granted, as seen by last grant of this executor
+     */
+    private final Set<String> exhaustedPods;
+
+    private final Sinks.Many<ReleaseRequest> releases;
+    private final Disposable releaseSubscription;
+
+    private record ReleaseRequest(CountedPodAccess access, Sinks.One<Boolean> result) {
+        String podKey() {
+            return ResourceUtils.computeResourceMetaKey(access.getPodAccess().getSelectedPod());
+        }
+    }
+
+    public PodRunLedger(PodPoolResources podPoolResources, String identity, ExecutorProperties.Accounting properties) {
+        this.podPoolResources = podPoolResources;
+        this.identity = identity;
+        this.runsPerGrant = properties.getRunsPerGrant();
+        this.pendingGrants = new ConcurrentHashMap<>();
+        this.exhaustedPods = ConcurrentHashMap.newKeySet();
+        this.releases = Sinks.many().unicast().onBackpressureBuffer();
+        this.releaseSubscription = releases.asFlux()
+                .bufferTimeout(MAX_RELEASE_BATCH_SIZE, properties.getReleaseBatchInterval())
+                .concatMap(batch -> Flux.fromIterable(batch.stream()
+                                .collect(Collectors.groupingBy(ReleaseRequest::podKey))
+                                .values())
+                        .flatMap(this::releaseBatch, Math.max(1, properties.getReleaseConcurrency()))
+                        .then())
+                .subscribe(null, e -> log.error("[PodRunLedger] Release queue is terminated", e));
+    }
+
+    public static boolean isAccountingAnnotation(String annotation) {
+        return Strings.CS.equals(annotation, RUN_COUNT_ANNOTATION_NAME) || Strings.CS.startsWith(annotation, RUN_LEASE_ANNOTATION_PREFIX);
+    }
+
+    /**
+     * A pod is published once its first grant is written. Pods that are not published are not adopted by other executors.
+     */
+    public static boolean isPublished(Pod pod) {
+        return Optional.ofNullable(pod.getMetadata().getAnnotations())
+                .map(annotations -> annotations.containsKey(RUN_COUNT_ANNOTATION_NAME))
+                .orElse(false);
+    }
+
+    /**
+     * @return number of runs granted to all executors
+     */
+    public static int grantedRuns(Pod pod) {
+        return annotationValue(pod, RUN_COUNT_ANNOTATION_NAME);
+    }
+
+    private static int annotationValue(Pod pod, String annotation) {
+        return Optional.ofNullable(pod.getMetadata().getAnnotations())
+                .map(annotations -> annotations.get(annotation))
+                .map(value -> {
+                    try {
+                        return Integer.parseInt(value);
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                })
+                .orElse(0);
+    }
+
+    private String leaseAnnotation() {
+        return RUN_LEASE_ANNOTATION_PREFIX + identity;
+    }
+
+    /**
+     * Runs taken by one grant, which are all runs of a pod if {@code runsPerGrant} is not positive.
+     */
+    public int grantSize(int maxUsageCount) {
+        return runsPerGrant > 0 ? Math.min(runsPerGrant, maxUsageCount) : maxUsageCount;
+    }
+
+    /**
+     * Publish first grant of a pod specialized by this executor. The pod is not known to other executors before, so no precondition is needed.
+     */
+    public Mono<Void> publish(CountedPodAccess access) {
+        var pod = access.getPodAccess().getSelectedPod();
+        Map<String, String> annotations = new HashMap<>();
+        annotations.put(RUN_COUNT_ANNOTATION_NAME, String.valueOf(access.getAllowance()));
+        annotations.put(leaseAnnotation(), String.valueOf(access.getAllowance()));
+        return patchAnnotations(pod, null, annotations)
+                .doOnSuccess(v -> log.debug("[publish] Pod {} is published with {} runs granted to {}", ResourceUtils.computeResourceMetaKey(pod), access.getAllowance(), identity))
+                .then();
+    }
+
+    /**
+     * Grant up to {@code wanted} runs of the pod to this executor.
+     * @return number of runs granted, which is 0 if all runs of the pod are granted
+     */
+    public Mono<Integer> grant(Pod pod, int maxUsageCount, int wanted) {
+        var attempts = new AtomicInteger();
+        return Mono.fromCallable(() -> {
+                    var latest = readPod(pod, attempts.getAndIncrement() > 0);
+                    if (latest == null || latest.getMetadata().getDeletionTimestamp() != null) {
+                        return 0;
+                    }
+                    var granted = grantedRuns(latest);
+                    var runs = Math.min(wanted, maxUsageCount - granted);
+                    if (runs <= 0) {
+                        return 0;
+                    }
+                    Map<String, String> annotations = new HashMap<>();
+                    annotations.put(RUN_COUNT_ANNOTATION_NAME, String.valueOf(granted + runs));
+                    annotations.put(leaseAnnotation(), String.valueOf(annotationValue(latest, leaseAnnotation()) + runs));
+                    patchAnnotationsSync(latest, latest.getMetadata().getResourceVersion(), annotations);
+                    return runs;
+                })
+                .retryWhen(conflictRetry())
+                .subscribeOn(Schedulers.boundedElastic())
+                .doOnNext(runs -> {
+                    if (runs <= 0) {
+                        exhaustedPods.add(ResourceUtils.computeResourceMetaKey(pod));
+                    }
+                    log.debug("[grant] {} runs of pod {} are granted to {}", runs, ResourceUtils.computeResourceMetaKey(pod), identity);
+                });
+    }
+
+    /**
+     * @return true if more runs of the pod may be granted to the access
+     */
+    public boolean isExtendable(CountedPodAccess access) {
+        var pod = access.getPodAccess().getSelectedPod();
+        var podKey = ResourceUtils.computeResourceMetaKey(pod);
+        if (access.getAllowance() >= access.getMaxUsageCount() || exhaustedPods.contains(podKey)) {
+            return false;
+        }
+        return podPoolResources.queryPod(pod.getMetadata().getNamespace(), pod.getMetadata().getName())
+                .map(latest -> grantedRuns(latest) < access.getMaxUsageCount())
+                .orElse(false);
+    }
+
+    /**
+     * Grant another batch of runs to the access. Concurrent calls for the same pod share a single grant.
+     */
+    public Mono<Integer> extend(CountedPodAccess access) {
+        var podKey = ResourceUtils.computeResourceMetaKey(access.getPodAccess().getSelectedPod());
+        return pendingGrants.computeIfAbsent(podKey, key -> grant(access.getPodAccess().getSelectedPod(), access.getMaxUsageCount(), grantSize(access.getMaxUsageCount()))
+                .doOnNext(access::grant)
+                .doFinally(signalType -> pendingGrants.remove(key))
+                .cache());
+    }
+
+    /**
+     * Extend the access in background once half of its grant is used, so that requests rarely wait for a grant.
+     */
+    public void extendIfLow(CountedPodAccess access) {
+        if (access.getRemaining() > grantSize(access.getMaxUsageCount()) / 2 || !isExtendable(access)) {
+            return;
+        }
+        extend(access).subscribe(null, e -> log.warn("[extendIfLow] Failed to extend grant of pod {}", ResourceUtils.computeResourceMetaKey(access.getPodAccess().getSelectedPod()), e));
+    }
+
+    /**
+     * Return unused runs of the access and remove lease of this executor. The release is queued and written with other releases of the batch.
+     * @return true if no other executor holds the pod, in which case the pod should be disposed by this executor
+     */
+    public Mono<Boolean> release(CountedPodAccess access) {
+        return Mono.defer(() -> {
+            var request = new ReleaseRequest(access, Sinks.one());
+            Sinks.EmitResult result;
+            // sink is not to be emitted concurrently
+            synchronized (releases) {
+                result = releases.tryEmitNext(request);
+            }
+            if (result.isFailure()) {
+                return Mono.error(new IllegalStateException("Release queue is not accepting pod %s: %s".formatted(request.podKey(), result)));
+            }
+            return request.result().asMono();
+        });
+    }
+
+    /**
+     * Release a pod for all accesses of it in the batch with a single write.
+     */
+    private Mono<Void> releaseBatch(List<ReleaseRequest> requests) {
+        var pod = requests.getFirst().access().getPodAccess().getSelectedPod();
+        var podKey = requests.getFirst().podKey();
+        var unusedOfAccesses = requests.stream()
+                .map(ReleaseRequest::access)
+                .mapToInt(access -> Math.max(0, access.getAllowance() - access.getUsageCount().get()))
+                .sum();
+        var attempts = new AtomicInteger();
+        return Mono.fromCallable(() -> {
+                    var latest = readPod(pod, attempts.getAndIncrement() > 0);
+                    if (latest == null) {
+                        return false;
+                    }
+                    var annotations = Optional.ofNullable(latest.getMetadata().getAnnotations()).orElse(Map.of());
+                    var otherHolders = annotations.keySet().stream()
+                            .filter(annotation -> Strings.CS.startsWith(annotation, RUN_LEASE_ANNOTATION_PREFIX))
+                            .filter(annotation -> !Strings.CS.equals(annotation, leaseAnnotation()))
+                            .count();
+                    if (!annotations.containsKey(leaseAnnotation())) {
+                        return otherHolders == 0;
+                    }
+                    var unused = Math.min(unusedOfAccesses, annotationValue(latest, leaseAnnotation()));
+                    Map<String, String> patch = new HashMap<>();
+                    patch.put(RUN_COUNT_ANNOTATION_NAME, String.valueOf(Math.max(0, grantedRuns(latest) - unused)));
+                    patch.put(leaseAnnotation(), null);
+                    patchAnnotationsSync(latest, latest.getMetadata().getResourceVersion(), patch);
+                    log.debug("[release] Pod {} is released by {}. unused={}, otherHolders={}", podKey, identity, unused, otherHolders);
+                    return otherHolders == 0;
+                })
+                .retryWhen(conflictRetry())
+                .subscribeOn(Schedulers.boundedElastic())
+                .doFinally(signalType -> exhaustedPods.remove(podKey))
+                .doOnNext(lastHolder -> requests.forEach(request -> request.result().tryEmitValue(lastHolder)))
+                .doOnError(e -> requests.forEach(request -> request.result().tryEmitError(e)))
+                .then()
+                .onErrorResume(e -> Mono.empty());
+    }
+
+    /**
+     * Read the pod from informer cache, or from API server if {@code fresh} is true, e.g. after the cached one failed a precondition. Pods
+     * not found in cache yet are read from API server as well.
+     */
+    private Pod readPod(Pod pod, boolean fresh) {
+        var namespace = pod.getMetadata().getNamespace();
+        var name = pod.getMetadata().getName();
+        if (!fresh) {
+            var cached = podPoolResources.queryPod(namespace, name);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+        }
+        return podPoolResources.getKubernetesClient().pods()
+                .inNamespace(namespace)
+                .withName(name)
+                .get();
+    }
+
+    private Retry conflictRetry() {
+        return Retry.max(MAX_CONFLICT_RETRIES)
+                .filter(e -> e instanceof KubernetesClientException kubernetesClientException && kubernetesClientException.getCode() == 409)
+                .doBeforeRetry(signal -> log.debug("Conflict on run accounting. Retries {} of {}.", signal.totalRetries() + 1, MAX_CONFLICT_RETRIES))
+                .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    /**
+     * Stop writing releases. Releases still queued are left to periodic cleanup of orphan pods.
+     */
+    @Override
+    public void close() {
+        releases.tryEmitComplete();
+        releaseSubscription.dispose();
+    }
+
+    private Mono<Void> patchAnnotations(Pod pod, String resourceVersion, Map<String, String> annotations) {
+        return Mono.<Void>fromRunnable(() -> patchAnnotationsSync(pod, resourceVersion, annotations))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Apply JSON merge patch to annotations. The patch fails with 409 if {@code resourceVersion} is given and the pod has been changed meanwhile.
+     * Annotations with null value are removed.
+     */
+    private void patchAnnotationsSync(Pod pod, String resourceVersion, Map<String, String> annotations) {
+        var client = podPoolResources.getKubernetesClient();
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("annotations", annotations);
+        if (resourceVersion != null) {
+            metadata.put("resourceVersion", resourceVersion);
+        }
+        client.pods()
+                .inNamespace(pod.getMetadata().getNamespace())
+                .withName(pod.getMetadata().getName())
+                .patch(PatchContext.of(PatchType.JSON_MERGE), client.getKubernetesSerialization().asJson(Map.of("metadata", metadata)));
+    }
+}
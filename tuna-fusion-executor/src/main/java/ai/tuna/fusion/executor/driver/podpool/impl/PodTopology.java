@@ -0,0 +1,143 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.executor.ExecutorProperties;
+import io.fabric8.kubernetes.api.model.Node;
+import io.fabric8.kubernetes.api.model.ObjectMeta;
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.api.model.PodSpec;
+import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.KubernetesClientException;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Strings;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Zones of this executor and of pods, which are used to prefer pods in the same zone, as traffic across zones costs latency and egress.
+ * <p>
+ * Zone of this executor is configured, or resolved from the node it runs on, whose name is given by downward API. Zones of pods are
+ * resolved from their nodes in background and cached, so that lookups never block callers. Nodes that cannot be resolved, e.g. without
+ * permission to get nodes, are taken as of unknown zone, and looked up again after {@link ExecutorProperties.Topology#getUnknownZoneTtl()}.
+ *
+ * @author robinqu
+ */
+@Slf4j
+public class PodTopology {
+    private static final String UNKNOWN_ZONE = "";
+
+    private final KubernetesClient kubernetesClient;
+    private final ExecutorProperties.Topology properties;
+
+    /**
+     * node name -> zone
+     */
+    private final Map<String, NodeZone> nodeZones;
+
+    /**
+     * Missing permission to get nodes is logged once, as it fails every lookup the same way.
+     */
+    private final AtomicBoolean forbiddenLogged;
+
+    /**
+     * Zone of a node, which is {@link #UNKNOWN_ZONE} if node has no zone label or cannot be read. Known zones never expire, as a node never
+     * moves between zones.
+     */
+    private record NodeZone(String zone, Instant expiresAt) {
+        boolean isExpired() {
+            return Instant.now().isAfter(expiresAt);
+        }
+    }
+
+    public PodTopology(KubernetesClient kubernetesClient, ExecutorProperties.Topology properties) {
+        this.kubernetesClient = kubernetesClient;
+        this.properties = properties;
+        this.nodeZones = new ConcurrentHashMap<>();
+        this.forbiddenLogged = new AtomicBoolean(false);
+    }
+
+    public void start() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        if (StringUtils.isBlank(properties.getZone()) && StringUtils.isNotBlank(properties.getNodeName())) {
+            nodeZones.put(properties.getNodeName(), toNodeZone(loadNodeZone(properties.getNodeName())));
+        }
+        log.info("[start] Topology-aware selection is enabled. zone={}, node={}", getLocalZone().orElse("unknown"), properties.getNodeName());
+    }
+
+    public Optional<String> getLocalZone() {
+        if (!properties.isEnabled()) {
+            return Optional.empty();
+        }
+        if (StringUtils.isNotBlank(properties.getZone())) {
+            return Optional.of(properties.getZone());
+        }
+        return Optional.ofNullable(properties.getNodeName())
+                .filter(StringUtils::isNotBlank)
+                .flatMap(this::zoneOfNode);
+    }
+
+    /**
+     * @return zone of the node that the pod runs on, or empty if it's unknown or not resolved yet
+     */
+    public Optional<String> zoneOf(Pod pod) {
+        return Optional.ofNullable(pod.getSpec())
+                .map(PodSpec::getNodeName)
+                .flatMap(this::zoneOfNode);
+    }
+
+    private Optional<String> zoneOfNode(String nodeName) {
+        var cached = nodeZones.get(nodeName);
+        if (cached != null && !cached.isExpired()) {
+            return Optional.of(cached.zone()).filter(StringUtils::isNotEmpty);
+        }
+        // placeholder prevents concurrent lookups of the same node
+        var placeholder = toNodeZone(UNKNOWN_ZONE);
+        var acquired = cached == null ? nodeZones.putIfAbsent(nodeName, placeholder) == null : nodeZones.replace(nodeName, cached, placeholder);
+        if (acquired) {
+            Mono.fromCallable(() -> loadNodeZone(nodeName))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .subscribe(loaded -> nodeZones.put(nodeName, toNodeZone(loaded)));
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * A pod is local if it's in the zone of this executor. All pods are local if zone of this executor is unknown, i.e. no preference.
+     */
+    public boolean isLocal(Pod pod) {
+        return getLocalZone()
+                .map(zone -> zoneOf(pod).filter(podZone -> Strings.CS.equals(podZone, zone)).isPresent())
+                .orElse(true);
+    }
+
+    private NodeZone toNodeZone(String zone) {
+        return new NodeZone(zone, zone.isEmpty() ? Instant.now().plus(properties.getUnknownZoneTtl()) : Instant.MAX);
+    }
+
+    private String loadNodeZone(String nodeName) {
+        try {
+            return Optional.ofNullable(kubernetesClient.nodes().withName(nodeName).get())
+                    .map(Node::getMetadata)
+                    .map(ObjectMeta::getLabels)
+                    .map(labels -> labels.get(properties.getZoneLabel()))
+                    .orElse(UNKNOWN_ZONE);
+        } catch (KubernetesClientException e) {
+            if (e.getCode() == 403) {
+                if (forbiddenLogged.compareAndSet(false, true)) {
+                    log.warn("[loadNodeZone] Not permitted to get nodes, so zones of pods are unknown. Grant get on nodes, or disable executor.topology.enabled. {}", e.getMessage());
+                }
+                return UNKNOWN_ZONE;
+            }
+            log.warn("[loadNodeZone] Failed to get zone of node {}. Retry in {}.", nodeName, properties.getUnknownZoneTtl(), e);
+            return UNKNOWN_ZONE;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.executor.driver.podpool.CountedPodAccess;
+import ai.tuna.fusion.metadata.crd.ResourceUtils;
+import ai.tuna.fusion.metadata.crd.podpool.PodFunction;
+import ai.tuna.fusion.metadata.crd.podpool.PodPool;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Keeps pods of a build warm, by specializing empty slots of its {@link PodLeasePool} and replacing pods that are no longer warm.
+ *
+ * @author robinqu
+ */
+@Slf4j
+class PodWarmer {
+
+    /**
+     * Fill an empty slot with a specialized pod.
+     */
+    @FunctionalInterface
+    interface SlotSpecializer {
+        Mono<CountedPodAccess> specialize(PodLeasePool leasePool, int idx, PodFunction function, PodPool podPool);
+    }
+
+    private final Predicate<CountedPodAccess> warm;
+    private final Consumer<CountedPodAccess> retirer;
+    private final SlotSpecializer slotSpecializer;
+
+    /**
+     * @param warm    true if the access can take runs, i.e. it's leasable and has runs left
+     * @param retirer retire pods that are no longer warm before their slots are specialized again
+     */
+    PodWarmer(Predicate<CountedPodAccess> warm, Consumer<CountedPodAccess> retirer, SlotSpecializer slotSpecializer) {
+        this.warm = warm;
+        this.retirer = retirer;
+        this.slotSpecializer = slotSpecializer;
+    }
+
+    int countWarm(PodLeasePool leasePool) {
+        return (int) leasePool.list().stream().filter(warm).count();
+    }
+
+    /**
+     * Specialize pods until {@code count} pods of the lease pool are warm, which is capped by number of slots. Failed specializations are
+     * logged and skipped.
+     * @return number of warm pods afterward
+     */
+    Mono<Integer> warm(PodLeasePool leasePool, PodFunction function, PodPool podPool, int count) {
+        return Mono.defer(() -> {
+            var target = Math.min(count, leasePool.size());
+            var warmCount = countWarm(leasePool);
+            List<Mono<CountedPodAccess>> loads = new ArrayList<>();
+            for (int idx = 0; idx < leasePool.size() && warmCount + loads.size() < target; idx++) {
+                var current = leasePool.get(idx);
+                if (current.isEmpty()) {
+                    loads.add(slotSpecializer.specialize(leasePool, idx, function, podPool));
+                } else if (!warm.test(current.get())) {
+                    retirer.accept(current.get());
+                    loads.add(slotSpecializer.specialize(leasePool, idx, function, podPool));
+                }
+            }
+            if (!loads.isEmpty()) {
+                log.info("[warm] Warming {} pods for fn={}, buildUid={}, warm={}, target={}", loads.size(), ResourceUtils.computeResourceMetaKey(function), leasePool.getBuildUid(), warmCount, target);
+            }
+            return Flux.fromIterable(loads)
+                    .flatMap(load -> load.onErrorResume(e -> {
+                        log.warn("[warm] Failed to specialize pod for fn={}", ResourceUtils.computeResourceMetaKey(function), e);
+                        return Mono.empty();
+                    }))
+                    .then(Mono.fromSupplier(() -> countWarm(leasePool)));
+        });
+    }
+}
@@ -0,0 +1,112 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Limits concurrent specializations of a PodPool. Callers beyond {@code maxConcurrent} wait in FIFO order for a running specialization
+ * to finish, and callers beyond {@code maxQueued} are rejected at once.
+ *
+ * @author robinqu
+ */
+@Slf4j
+public class SpecializationLimiter {
+    private final int maxConcurrent;
+    private final int maxQueued;
+    private final Deque<CompletableFuture<Void>> waiters;
+    private final AtomicLong rejectedCount;
+    private int active;
+
+    public SpecializationLimiter(int maxConcurrent, int maxQueued) {
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.maxQueued = Math.max(0, maxQueued);
+        this.waiters = new ArrayDeque<>();
+        this.rejectedCount = new AtomicLong();
+    }
+
+    /**
+     * Run given specialization once a permit is acquired. The permit is released when the specialization terminates or is cancelled.
+     */
+    public <T> Mono<T> run(Supplier<Mono<T>> specialization) {
+        return Mono.defer(() -> {
+            CompletableFuture<Void> permit;
+            synchronized (this) {
+                purgeCancelledWaiters();
+                if (active < maxConcurrent) {
+                    active++;
+                    permit = CompletableFuture.completedFuture(null);
+                } else if (waiters.size() < maxQueued) {
+                    permit = new CompletableFuture<>();
+                    waiters.addLast(permit);
+                } else {
+                    rejectedCount.incrementAndGet();
+                    return Mono.error(new SpecializationRejectedException(maxConcurrent, maxQueued));
+                }
+            }
+            return Mono.fromFuture(permit, true)
+                    .doFinally(signalType -> {
+                        // waiter is cancelled before a permit is handed to it
+                        if (signalType != SignalType.ON_COMPLETE && !permit.isDone()) {
+                            permit.cancel(false);
+                        }
+                        if (signalType != SignalType.ON_COMPLETE && permit.isDone() && !permit.isCancelled()) {
+                            release();
+                        }
+                    })
+                    .then(Mono.defer(specialization).doFinally(signalType -> release()));
+        });
+    }
+
+    /**
+     * Hand the permit to the oldest waiter, or return it. Waiters are completed outside the lock.
+     */
+    private void release() {
+        while (true) {
+            CompletableFuture<Void> waiter;
+            synchronized (this) {
+                waiter = waiters.pollFirst();
+                if (waiter == null) {
+                    active--;
+                    return;
+                }
+            }
+            if (waiter.complete(null)) {
+                return;
+            }
+        }
+    }
+
+    private void purgeCancelledWaiters() {
+        waiters.removeIf(CompletableFuture::isDone);
+    }
+
+    public synchronized int getActive() {
+        return active;
+    }
+
+    public synchronized int getQueued() {
+        purgeCancelledWaiters();
+        return waiters.size();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public static class SpecializationRejectedException extends RuntimeException {
+        public SpecializationRejectedException(int maxConcurrent, int maxQueued) {
+            super("Specialization limiter is saturated. maxConcurrent=%s, maxQueued=%s".formatted(maxConcurrent, maxQueued));
+        }
+    }
+}
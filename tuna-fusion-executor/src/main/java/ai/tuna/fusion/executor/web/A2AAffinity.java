@@ -0,0 +1,82 @@
+package ai.tuna.fusion.executor.web;
+
+import ai.tuna.fusion.executor.ExecutorProperties;
+import ai.tuna.fusion.executor.driver.podpool.CountedPodAccess;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Affinity of A2A contexts and tasks to pods. Task store and queue manager of A2A runtime are in memory of each pod, so that follow-up
+ * messages of a context, and {@code tasks/*} calls of a task, only work on the pod that created them.
+ * <p>
+ * IDs are extracted from JSON-RPC requests by {@link A2ARequest}, and from JSON or SSE responses of pods by {@link A2AResponseInspector}.
+ * Bindings are kept in a bounded map and expire if not accessed within TTL. Requests are routed to normal balancing if the bound pod is gone.
+ *
+ * @author robinqu
+ */
+@Slf4j
+public class A2AAffinity {
+    private final Cache<String, String> podNames;
+
+    /**
+     * IDs that a request refers to, or a response binds.
+     */
+    public record Ids(String contextId, String taskId) {
+        public static final Ids EMPTY = new Ids(null, null);
+
+        public boolean isEmpty() {
+            return contextId == null && taskId == null;
+        }
+    }
+
+    public A2AAffinity(ExecutorProperties.Affinity properties) {
+        this.podNames = CacheBuilder.newBuilder()
+                .maximumSize(properties.getMaxEntries())
+                .expireAfterAccess(properties.getTtl())
+                .build();
+    }
+
+    private static String contextKey(String scope, String contextId) {
+        return scope + "/contexts/" + contextId;
+    }
+
+    private static String taskKey(String scope, String taskId) {
+        return scope + "/tasks/" + taskId;
+    }
+
+    /**
+     * @param scope IDs are only unique in a scope, e.g. an agent deployment
+     * @return the pod that the task, or otherwise the context, is bound to
+     */
+    public Optional<String> lookup(String scope, Ids ids) {
+        return Optional.ofNullable(ids.taskId())
+                .map(taskId -> podNames.getIfPresent(taskKey(scope, taskId)))
+                .or(() -> Optional.ofNullable(ids.contextId()).map(contextId -> podNames.getIfPresent(contextKey(scope, contextId))));
+    }
+
+    public void bind(String scope, Ids ids, String podName) {
+        if (ids.contextId() != null) {
+            podNames.put(contextKey(scope, ids.contextId()), podName);
+        }
+        if (ids.taskId() != null) {
+            podNames.put(taskKey(scope, ids.taskId()), podName);
+        }
+    }
+
+    /**
+     * Bind IDs of the request to the pod of access.
+     * @return listener that binds IDs found in response of the pod, e.g. by {@link A2AResponseInspector}, to the same pod
+     */
+    public Consumer<Ids> binder(String scope, Ids requestIds, CountedPodAccess access) {
+        var podName = access.getPodAccess().getSelectedPod().getMetadata().getName();
+        bind(scope, requestIds, podName);
+        return ids -> {
+            bind(scope, ids, podName);
+            log.debug("[inspect] {} is bound to pod {}", ids, podName);
+        };
+    }
+}
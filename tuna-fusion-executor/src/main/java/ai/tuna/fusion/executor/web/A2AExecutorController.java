@@ -1,18 +1,23 @@
 package ai.tuna.fusion.executor.web;
 
+import ai.tuna.fusion.executor.ExecutorProperties;
 import ai.tuna.fusion.executor.driver.podpool.FunctionPodManager;
 import ai.tuna.fusion.metadata.crd.agent.AgentEnvironmentSpec;
 import ai.tuna.fusion.metadata.informer.AgentResources;
 import ai.tuna.fusion.metadata.informer.PodPoolResources;
 import com.google.common.base.Preconditions;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.Strings;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * @author robinqu
  */
@@ -24,15 +29,27 @@ public class A2AExecutorController {
 
     private final PodPoolResources podPoolResources;
     private final AgentResources agentResources;
+    private final A2AAffinity affinity;
+    private final ExecutorProperties.Proxy proxyProperties;
+    private final HedgeDelays hedgeDelays;
+    private final int maxInspectedBytes;
+    private final AbandonedRunCounters abandonedRunCounters;
 
     public A2AExecutorController(
             FunctionPodManager functionPodManager,
             PodPoolResources podPoolResources,
-            AgentResources agentResources
+            AgentResources agentResources,
+            ExecutorProperties executorProperties,
+            MeterRegistry meterRegistry
             ) {
         this.functionPodManager = functionPodManager;
         this.podPoolResources = podPoolResources;
         this.agentResources = agentResources;
+        this.affinity = executorProperties.getAffinity().isEnabled() ? new A2AAffinity(executorProperties.getAffinity()) : null;
+        this.proxyProperties = executorProperties.getProxy();
+        this.hedgeDelays = new HedgeDelays(proxyProperties);
+        this.maxInspectedBytes = executorProperties.getAffinity().getMaxInspectedBytes();
+        this.abandonedRunCounters = new AbandonedRunCounters(meterRegistry);
     }
 
     @RequestMapping("/a2a/namespaces/{namespace}/agents/{agentDeploymentName}/{*trailingPath}")
@@ -49,15 +66,45 @@ public class A2AExecutorController {
         var podPool = podPoolResources.queryPodPool(namespace, agentEnvironment.getStatus().getPodPool().getName()).orElseThrow();
         var podFunction = podPoolResources.queryPodFunction(namespace, agentDeployment.getStatus().getFunction().getFunctionName()).orElseThrow();
 
-        return HttpProxyUtils.forward(
-                functionPodManager,
-                podFunction,
-                podPool,
-                exchange,
-                trailingPath
-        );
-
-
+        var scope = namespace + "/" + agentDeploymentName;
+        // JSON-RPC body is read ahead to find the method and the context and task it refers to, and to replay it on retries. Bodies too large
+        // to be buffered are streamed without being inspected.
+        return HttpProxyUtils.readReplayableBody(exchange, proxyProperties.getMaxBufferedBodyBytes())
+                .flatMap(bufferedBody -> {
+                    var body = bufferedBody.orElse(null);
+                    var a2aRequest = bufferedBody.map(A2ARequest::parse).orElse(A2ARequest.EMPTY);
+                    var route = scope + " " + a2aRequest.method();
+                    var options = ProxyOptions.builder()
+                            .body(body)
+                            .maxRetries(proxyProperties.getMaxRetries())
+                            .hedgeDelay(a2aRequest.isSafe() ? hedgeDelays.delayOf(route).orElse(null) : null)
+                            .timeouts(ProxyTimeouts.resolve(proxyProperties, podFunction, a2aRequest.method(), exchange.getRequest().getHeaders()))
+                            .latencyListener(latency -> hedgeDelays.record(route, latency))
+                            .abandonedRuns(abandonedRunCounters.of(podFunction));
+                    // task of a streaming call is found in its response, if the call doesn't refer to one
+                    var taskId = new AtomicReference<>(a2aRequest.ids().taskId());
+                    var cancellable = proxyProperties.isCancelAbandonedTasks() && proxyProperties.getStreamingMethods().contains(a2aRequest.method());
+                    if (affinity != null) {
+                        options.preferredPodName(affinity.lookup(scope, a2aRequest.ids()).orElse(null));
+                    }
+                    if (affinity != null || cancellable) {
+                        options.responseTap((access, responseBody) -> {
+                            var listener = A2AResponseInspector.firstTaskListener(taskId);
+                            if (affinity != null) {
+                                listener = listener.andThen(affinity.binder(scope, a2aRequest.ids(), access));
+                            }
+                            return new A2AResponseInspector(maxInspectedBytes, listener).inspect(responseBody);
+                        });
+                    }
+                    if (cancellable) {
+                        options.abandonHandler(access -> Mono.justOrEmpty(taskId.get())
+                                .flatMap(id -> {
+                                    log.info("[forward] Cancel task {} of {} as its client went away", id, scope);
+                                    return HttpProxyUtils.send(access, trailingPath, MediaType.APPLICATION_JSON, A2ARequest.cancelTask(id));
+                                }));
+                    }
+                    return HttpProxyUtils.forward(functionPodManager, podFunction, podPool, exchange, trailingPath, options.build());
+                });
     }
 
 }
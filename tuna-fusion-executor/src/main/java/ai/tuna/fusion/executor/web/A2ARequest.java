@@ -0,0 +1,73 @@
+package ai.tuna.fusion.executor.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.Strings;
+
+import java.io.IOException;
+import java.util.UUID;
+
+/**
+ * JSON-RPC request of A2A protocol, as far as the executor needs to route it.
+ *
+ * @param method JSON-RPC method, or null if the body is not a JSON-RPC request, e.g. of agent card
+ * @param ids    context and task the request refers to
+ * @author robinqu
+ */
+@Slf4j
+public record A2ARequest(String method, A2AAffinity.Ids ids) {
+    public static final A2ARequest EMPTY = new A2ARequest(null, A2AAffinity.Ids.EMPTY);
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Parse method, and IDs in {@code params.message} of {@code message/*} calls or {@code params.id} of {@code tasks/*} calls.
+     */
+    public static A2ARequest parse(byte[] body) {
+        if (body.length == 0) {
+            return EMPTY;
+        }
+        try {
+            var request = OBJECT_MAPPER.readTree(body);
+            var method = textOrNull(request.path("method"));
+            var params = request.path("params");
+            if (Strings.CS.startsWith(method, "tasks/")) {
+                return new A2ARequest(method, new A2AAffinity.Ids(null, textOrNull(params.path("id"))));
+            }
+            var message = params.path("message");
+            return new A2ARequest(method, new A2AAffinity.Ids(textOrNull(message.path("contextId")), textOrNull(message.path("taskId"))));
+        } catch (IOException e) {
+            log.debug("[parse] Request body is not JSON", e);
+            return EMPTY;
+        }
+    }
+
+    /**
+     * JSON-RPC request of {@code tasks/cancel} for the task.
+     */
+    public static byte[] cancelTask(String taskId) {
+        var request = OBJECT_MAPPER.createObjectNode()
+                .put("jsonrpc", "2.0")
+                .put("id", UUID.randomUUID().toString())
+                .put("method", "tasks/cancel");
+        request.putObject("params").put("id", taskId);
+        try {
+            return OBJECT_MAPPER.writeValueAsBytes(request);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String textOrNull(JsonNode node) {
+        return node.isTextual() && !node.asText().isEmpty() ? node.asText() : null;
+    }
+
+    /**
+     * Calls that only read state of a task, which are safe to send to more than one pod.
+     */
+    public boolean isSafe() {
+        return Strings.CS.equals(method, "tasks/get");
+    }
+}
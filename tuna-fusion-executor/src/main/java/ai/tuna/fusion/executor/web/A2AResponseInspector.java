@@ -0,0 +1,145 @@
+package ai.tuna.fusion.executor.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.Strings;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * Inspector of a single JSON or SSE response of A2A runtime, which finds IDs of the context and task generated by the pod. SSE events are
+ * inspected as they arrive, so that a task is known before its stream ends. Inspection stops once both context and task are found, or
+ * {@code maxInspectedBytes} are seen.
+ * <p>
+ * Lines end with CRLF, LF or CR as SSE allows, e.g. sse-starlette ends them with CRLF, and events end with an empty line. Each line is
+ * decoded once it's complete, so that characters split between chunks are decoded correctly.
+ *
+ * @author robinqu
+ */
+@Slf4j
+public class A2AResponseInspector {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final String DATA_FIELD = "data:";
+
+    private final int maxInspectedBytes;
+    private final Consumer<A2AAffinity.Ids> listener;
+    private final ByteArrayOutputStream line = new ByteArrayOutputStream();
+    private final List<String> dataLines = new ArrayList<>();
+    private final StringBuilder otherLines = new StringBuilder();
+    private boolean afterCarriageReturn;
+    private int inspectedBytes;
+    private boolean contextFound;
+    private boolean taskFound;
+
+    /**
+     * @param listener called with IDs of each response or SSE event that has any
+     */
+    public A2AResponseInspector(int maxInspectedBytes, Consumer<A2AAffinity.Ids> listener) {
+        this.maxInspectedBytes = maxInspectedBytes;
+        this.listener = listener;
+    }
+
+    /**
+     * Extract IDs from {@code result} of JSON-RPC response, which is a Task, a Message, or an update event of a task.
+     */
+    private static A2AAffinity.Ids extractResultIds(JsonNode response) {
+        var result = response.path("result");
+        var taskId = Optional.ofNullable(A2ARequest.textOrNull(result.path("taskId")))
+                .orElseGet(() -> Strings.CS.equals(result.path("kind").asText(), "task") ? A2ARequest.textOrNull(result.path("id")) : null);
+        return new A2AAffinity.Ids(A2ARequest.textOrNull(result.path("contextId")), taskId);
+    }
+
+    /**
+     * Listener that keeps the first task found, e.g. the task created by a streaming call, which is cancelled if its client goes away.
+     */
+    public static Consumer<A2AAffinity.Ids> firstTaskListener(AtomicReference<String> taskId) {
+        return ids -> Optional.ofNullable(ids.taskId()).ifPresent(id -> taskId.compareAndSet(null, id));
+    }
+
+    public Flux<DataBuffer> inspect(Flux<DataBuffer> responseBody) {
+        return responseBody
+                .doOnNext(this::onChunk)
+                .doOnComplete(this::onComplete);
+    }
+
+    private boolean isDone() {
+        return (contextFound && taskFound) || inspectedBytes > maxInspectedBytes;
+    }
+
+    private void onChunk(DataBuffer chunk) {
+        var end = chunk.readPosition() + chunk.readableByteCount();
+        for (int i = chunk.readPosition(); i < end && !isDone(); i++) {
+            inspectedBytes++;
+            var b = chunk.getByte(i);
+            if (b == '\n' && afterCarriageReturn) {
+                // LF of CRLF, whose line is ended by CR already
+                afterCarriageReturn = false;
+                continue;
+            }
+            afterCarriageReturn = b == '\r';
+            if (b == '\r' || b == '\n') {
+                onLine(line.toString(StandardCharsets.UTF_8));
+                line.reset();
+            } else {
+                line.write(b);
+            }
+        }
+    }
+
+    private void onComplete() {
+        if (isDone()) {
+            return;
+        }
+        if (line.size() > 0) {
+            onLine(line.toString(StandardCharsets.UTF_8));
+            line.reset();
+        }
+        onEvent();
+    }
+
+    /**
+     * Collect a line of the event, which is ended by an empty line.
+     */
+    private void onLine(String text) {
+        if (text.isEmpty()) {
+            onEvent();
+        } else if (text.startsWith(DATA_FIELD)) {
+            dataLines.add(text.substring(DATA_FIELD.length()).trim());
+        } else {
+            otherLines.append(text).append('\n');
+        }
+    }
+
+    /**
+     * An SSE event with JSON-RPC response in {@code data} lines, or the whole JSON-RPC response.
+     */
+    private void onEvent() {
+        var json = dataLines.isEmpty() ? otherLines.toString().trim() : String.join("\n", dataLines);
+        dataLines.clear();
+        otherLines.setLength(0);
+        if (!json.startsWith("{")) {
+            return;
+        }
+        try {
+            var ids = extractResultIds(OBJECT_MAPPER.readTree(json));
+            if (ids.isEmpty()) {
+                return;
+            }
+            contextFound |= ids.contextId() != null;
+            taskFound |= ids.taskId() != null;
+            listener.accept(ids);
+        } catch (IOException e) {
+            log.debug("[inspect] Response is not JSON-RPC", e);
+        }
+    }
+}
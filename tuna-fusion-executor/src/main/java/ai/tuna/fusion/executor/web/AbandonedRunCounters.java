@@ -0,0 +1,36 @@
+package ai.tuna.fusion.executor.web;
+
+import ai.tuna.fusion.metadata.crd.ResourceUtils;
+import ai.tuna.fusion.metadata.crd.podpool.PodFunction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counters of runs that clients abandoned before the response is complete, which are not counted as failures of pods. The counter of a
+ * function is registered once and reused by its requests.
+ *
+ * @author robinqu
+ */
+public class AbandonedRunCounters {
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * function key -> counter
+     */
+    private final Map<String, Counter> counters;
+
+    public AbandonedRunCounters(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.counters = new ConcurrentHashMap<>();
+    }
+
+    public Counter of(PodFunction podFunction) {
+        return counters.computeIfAbsent(ResourceUtils.computeResourceMetaKey(podFunction), key -> Counter.builder("fusion.function.runs.abandoned")
+                .description("Number of runs whose client went away before the response is complete")
+                .tags("namespace", podFunction.getMetadata().getNamespace(), "function", podFunction.getMetadata().getName())
+                .register(meterRegistry));
+    }
+}
@@ -0,0 +1,60 @@
+package ai.tuna.fusion.executor.web;
+
+import ai.tuna.fusion.executor.ExecutorProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Optional;
+
+/**
+ * Guards endpoints under {@link #ADMIN_PATH_PREFIX} with the bearer token of {@link ExecutorProperties.Admin#getToken()}. They are not
+ * found if no token is configured.
+ *
+ * @author robinqu
+ */
+@Component
+@Slf4j
+public class AdminAccessFilter implements WebFilter {
+    public static final String ADMIN_PATH_PREFIX = "/admin";
+
+    /**
+     * expected value of Authorization header, or null if admin endpoints are disabled
+     */
+    private final byte[] authorization;
+
+    public AdminAccessFilter(ExecutorProperties executorProperties) {
+        this.authorization = Optional.ofNullable(executorProperties.getAdmin().getToken())
+                .filter(StringUtils::isNotBlank)
+                .map(token -> ("Bearer " + token).getBytes(StandardCharsets.UTF_8))
+                .orElse(null);
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        var path = exchange.getRequest().getPath().pathWithinApplication().value();
+        if (!path.equals(ADMIN_PATH_PREFIX) && !path.startsWith(ADMIN_PATH_PREFIX + "/")) {
+            return chain.filter(exchange);
+        }
+        if (authorization == null) {
+            exchange.getResponse().setStatusCode(HttpStatus.NOT_FOUND);
+            return exchange.getResponse().setComplete();
+        }
+        var given = exchange.getRequest().getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        // constant-time comparison, so that the token cannot be guessed by timing
+        if (given == null || !MessageDigest.isEqual(authorization, given.getBytes(StandardCharsets.UTF_8))) {
+            log.warn("[filter] Unauthorized admin request {} {} from {}", exchange.getRequest().getMethod(), path, exchange.getRequest().getRemoteAddress());
+            exchange.getResponse().setStatusCode(HttpStatus.UNAUTHORIZED);
+            return exchange.getResponse().setComplete();
+        }
+        return chain.filter(exchange);
+    }
+}
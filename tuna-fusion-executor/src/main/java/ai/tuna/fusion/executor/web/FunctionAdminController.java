@@ -0,0 +1,57 @@
+package ai.tuna.fusion.executor.web;
+
+import ai.tuna.fusion.executor.driver.podpool.FunctionPodManager;
+import ai.tuna.fusion.metadata.crd.ResourceUtils;
+import ai.tuna.fusion.metadata.crd.podpool.PodPool;
+import ai.tuna.fusion.metadata.informer.PodPoolResources;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Operations on pods of functions, which are kept off the proxy paths of functions and guarded by {@link AdminAccessFilter}.
+ *
+ * @author robinqu
+ */
+@RestController
+@RequestMapping(AdminAccessFilter.ADMIN_PATH_PREFIX)
+public class FunctionAdminController {
+
+    private final PodPoolResources podPoolResources;
+    private final FunctionPodManager functionPodManager;
+
+    public FunctionAdminController(PodPoolResources podPoolResources, FunctionPodManager functionPodManager) {
+        this.podPoolResources = podPoolResources;
+        this.functionPodManager = functionPodManager;
+    }
+
+    /**
+     * Pre-warm pods of the function, e.g. before known traffic spikes. Pods are retired as usual afterward, and only
+     * {@link ai.tuna.fusion.metadata.crd.podpool.PodFunctionSpec#getMinWarm()} pods are topped up.
+     */
+    @PostMapping("/namespaces/{namespace}/functions/{functionName}/warm")
+    public Mono<Map<String, Integer>> warm(
+            @PathVariable String namespace,
+            @PathVariable String functionName,
+            @RequestParam(defaultValue = "1") int count) {
+        var podFunction = podPoolResources.queryPodFunction(namespace, functionName).orElseThrow();
+        var podPool = ResourceUtils.getMatchedOwnerReferenceResourceName(podFunction, PodPool.class)
+                .flatMap(name -> podPoolResources.queryPodPool(namespace, name))
+                .orElseThrow();
+        return functionPodManager.warm(podFunction, podPool, count)
+                .map(warmCount -> Map.of("warm", warmCount));
+    }
+
+    @PostMapping("/namespaces/{namespace}/functions/{functionName}/drain")
+    public Mono<Map<String, Integer>> drain(
+            @PathVariable String namespace,
+            @PathVariable String functionName) {
+        var podFunction = podPoolResources.queryPodFunction(namespace, functionName).orElseThrow();
+        var podPool = ResourceUtils.getMatchedOwnerReferenceResourceName(podFunction, PodPool.class)
+                .flatMap(name -> podPoolResources.queryPodPool(namespace, name))
+                .orElseThrow();
+        return functionPodManager.drain(podFunction, podPool)
+                .map(drained -> Map.of("drained", drained));
+    }
+}
@@ -0,0 +1,80 @@
+package ai.tuna.fusion.executor.web;
+
+import ai.tuna.fusion.executor.ExecutorProperties;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Hedge delays of routes, e.g. a function or an A2A method of an agent, which are computed from a window of recent latencies of each route.
+ *
+ * @author robinqu
+ */
+public class HedgeDelays {
+    private static final long MAX_ROUTES = 10_000;
+
+    private final ExecutorProperties.Proxy properties;
+    private final Cache<String, LatencyWindow> windows;
+
+    public HedgeDelays(ExecutorProperties.Proxy properties) {
+        this.properties = properties;
+        this.windows = CacheBuilder.newBuilder()
+                .maximumSize(MAX_ROUTES)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+    }
+
+    public void record(String route, Duration latency) {
+        try {
+            windows.get(route, () -> new LatencyWindow(properties.getHedgeWindow())).record(latency.toNanos());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return hedge delay of the route, or empty if hedging is disabled or too few latencies are recorded
+     */
+    public Optional<Duration> delayOf(String route) {
+        if (!properties.isHedgingEnabled()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(windows.getIfPresent(route))
+                .flatMap(window -> window.percentile(properties.getHedgePercentile(), properties.getMinHedgeSamples()))
+                .map(Duration::ofNanos)
+                .map(delay -> delay.compareTo(properties.getMinHedgeDelay()) < 0 ? properties.getMinHedgeDelay() : delay);
+    }
+
+    /**
+     * Ring buffer of latencies in nanoseconds. It's small, so percentiles are computed by sorting a copy.
+     */
+    private static class LatencyWindow {
+        private final long[] samples;
+        private int count;
+        private int next;
+
+        LatencyWindow(int size) {
+            this.samples = new long[Math.max(1, size)];
+        }
+
+        synchronized void record(long nanos) {
+            samples[next] = nanos;
+            next = (next + 1) % samples.length;
+            count = Math.min(count + 1, samples.length);
+        }
+
+        synchronized Optional<Long> percentile(double percentile, int minSamples) {
+            if (count == 0 || count < minSamples) {
+                return Optional.empty();
+            }
+            var sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            var index = (int) Math.ceil(percentile * count) - 1;
+            return Optional.of(sorted[Math.min(count - 1, Math.max(0, index))]);
+        }
+    }
+}
@@ -1,23 +1,102 @@
 package ai.tuna.fusion.executor.web;
 
+import ai.tuna.fusion.executor.driver.podpool.CountedPodAccess;
 import ai.tuna.fusion.executor.driver.podpool.FunctionPodManager;
+import ai.tuna.fusion.executor.driver.podpool.FunctionPodSaturatedException;
+import ai.tuna.fusion.executor.driver.podpool.PodRun;
 import ai.tuna.fusion.metadata.crd.ResourceUtils;
 import ai.tuna.fusion.metadata.crd.podpool.PodFunction;
 import ai.tuna.fusion.metadata.crd.podpool.PodPool;
+import io.micrometer.core.instrument.Counter;
+import io.netty.channel.ChannelOption;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.server.ResponseStatusException;
 import org.springframework.web.server.ServerWebExchange;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
+ * Forward requests to pods of functions. Requests with a buffered body are replayable, so that they are retried on another pod if they fail
+ * before the pod processed them, and safe requests may be hedged to a second pod.
+ *
  * @author robinqu
  */
 @Slf4j
 public class HttpProxyUtils {
+    /**
+     * Set by runtime on 503 replies of pods that are not specialized, e.g. pods reset already, which never process the request.
+     */
+    public static final String UNSPECIALIZED_HEADER = "X-Fusion-Unspecialized";
+
+    /**
+     * Pods are in the same cluster, so connections that take longer are given up and retried on another pod.
+     */
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(3);
+
+    private static final Duration SEND_TIMEOUT = Duration.ofSeconds(5);
+
+    private static final WebClient webClient = WebClient.builder()
+            .clientConnector(new ReactorClientHttpConnector(HttpClient.create()
+                    .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) CONNECT_TIMEOUT.toMillis())))
+            .build();
+
+    /**
+     * Head or a body chunk of the response of a pod. Head is always the first part.
+     */
+    private sealed interface Part permits Head, Chunk {
+    }
+
+    private record Head(HttpStatusCode status, HttpHeaders headers) implements Part {
+    }
+
+    private record Chunk(DataBuffer buffer) implements Part {
+    }
 
-    private static final WebClient webClient = WebClient.create();
+    /**
+     * State of forwarding a single client request, which is shared by its attempts.
+     *
+     * @param startedAt {@link System#nanoTime()} when forwarding started
+     * @param abandoned set once the client goes away before the response is complete
+     */
+    private record Forwarding(ServerWebExchange exchange, String trailingPath, ProxyOptions options, long startedAt, AtomicBoolean abandoned) {
+    }
+
+    /**
+     * Request failed before the pod processed it, so it's safe to send it to another pod.
+     */
+    private static class PodUnavailableException extends RuntimeException {
+        PodUnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
 
     public static Mono<Void> forward(
             FunctionPodManager functionPodManager,
@@ -25,37 +104,344 @@ public class HttpProxyUtils {
             PodPool podPool,
             ServerWebExchange exchange,
             String trailingPath
-    ) throws Exception {
-        // this access is closed asynchronously, so we need to close it after we finish
-        var access = functionPodManager.requestAccess(podFunction, podPool);
-        var fullUrl = ResourceUtils.getPodUri(access.getPodAccess().getSelectedPod(), trailingPath);
-        log.debug("[forward] {} {}", exchange.getRequest().getMethod(), fullUrl);
-        var requestBody = exchange.getRequest().getBody();
+    ) {
+        return forward(functionPodManager, podFunction, podPool, exchange, trailingPath, ProxyOptions.builder().build());
+    }
+
+    public static Mono<Void> forward(
+            FunctionPodManager functionPodManager,
+            PodFunction podFunction,
+            PodPool podPool,
+            ServerWebExchange exchange,
+            String trailingPath,
+            ProxyOptions options
+    ) {
+        var forwarding = new Forwarding(exchange, trailingPath, options, System.nanoTime(), new AtomicBoolean());
+        var maxRetries = options.isReplayable() ? options.getMaxRetries() : 0;
+        var attempts = new AtomicInteger();
+        var parts = Flux.defer(() -> {
+                    // only the first attempt goes to preferred pod, which may be the one that just failed
+                    var accessRequest = attempts.getAndIncrement() == 0
+                            ? functionPodManager.requestAccessAsync(podFunction, podPool, options.getPreferredPodName())
+                            : functionPodManager.requestAccessAsync(podFunction, podPool);
+                    if (!options.isReplayable() || options.getHedgeDelay() == null) {
+                        return attempt(accessRequest, forwarding, podName -> {});
+                    }
+                    return hedge(accessRequest, excludedPodName -> functionPodManager.tryLeaseWarm(podFunction, podPool, excludedPodName), forwarding);
+                })
+                .retryWhen(Retry.max(maxRetries)
+                        .filter(PodUnavailableException.class::isInstance)
+                        .doBeforeRetry(signal -> log.debug("[forward] Retry {} of {} on another pod: {}", signal.totalRetries() + 1, maxRetries, signal.failure().getMessage()))
+                        .onRetryExhaustedThrow((spec, signal) -> signal.failure()));
         var response = exchange.getResponse();
+        return response.writeWith(parts.<DataBuffer>handle((part, sink) -> {
+                    switch (part) {
+                        case Head head -> {
+                            response.setStatusCode(head.status());
+                            response.getHeaders().putAll(head.headers());
+                        }
+                        case Chunk chunk -> sink.next(chunk.buffer());
+                    }
+                }).doOnCancel(() -> forwarding.abandoned().set(true)))
+                .onErrorResume(FunctionPodSaturatedException.class, e -> rejectSaturated(exchange, e))
+                .onErrorResume(PodUnavailableException.class, e -> rejectUnavailable(exchange, e))
+                .onErrorResume(TimeoutException.class, e -> rejectTimeout(exchange, e));
+    }
+
+    /**
+     * Read whole request body, which fails with 413 if it turns out to be larger than {@code maxBytes}, e.g. if the client sends more than
+     * its Content-Length.
+     */
+    private static Mono<byte[]> readBody(ServerWebExchange exchange, int maxBytes) {
+        return DataBufferUtils.join(exchange.getRequest().getBody(), maxBytes)
+                .onErrorMap(DataBufferLimitException.class, e -> new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, e.getMessage(), e))
+                .map(buffer -> {
+                    var bytes = new byte[buffer.readableByteCount()];
+                    buffer.read(bytes);
+                    DataBufferUtils.release(buffer);
+                    return bytes;
+                })
+                .defaultIfEmpty(new byte[0]);
+    }
+
+    /**
+     * Read request body ahead if it's known to be no larger than {@code maxBytes}, so that it can be replayed. A body with neither Content-Length
+     * nor Transfer-Encoding is not taken as empty, as HTTP/2 bodies may come without Content-Length. It's read up to {@code maxBytes}
+     * instead, which completes at once for requests without body, e.g. most GET requests, and fails with 413 if it's larger.
+     * @return the body, or empty if the body is too large or chunked, in which case it should be streamed
+     */
+    public static Mono<Optional<byte[]>> readReplayableBody(ServerWebExchange exchange, int maxBytes) {
         var headers = exchange.getRequest().getHeaders();
+        var contentLength = headers.getContentLength();
+        if (contentLength < 0 && !headers.containsKey(HttpHeaders.TRANSFER_ENCODING)) {
+            return readBody(exchange, maxBytes).map(Optional::of);
+        }
+        if (contentLength < 0 || contentLength > maxBytes) {
+            return Mono.just(Optional.empty());
+        }
+        return readBody(exchange, maxBytes).map(Optional::of);
+    }
+
+    /**
+     * Reply 429 at once if pods of the function are saturated, so that callers back off instead of piling up on the executor.
+     */
+    private static Mono<Void> rejectSaturated(ServerWebExchange exchange, FunctionPodSaturatedException e) {
+        log.debug("[forward] Request is rejected: {}", e.getMessage());
+        var response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())));
+        return response.setComplete();
+    }
+
+    /**
+     * Reply 503 if the request is not processed by any pod after retries, so that callers may safely send it again.
+     */
+    private static Mono<Void> rejectUnavailable(ServerWebExchange exchange, PodUnavailableException e) {
+        log.warn("[forward] Request is not processed by any pod: {}", e.getMessage());
+        var response = exchange.getResponse();
+        response.setStatusCode(HttpStatus.SERVICE_UNAVAILABLE);
+        response.getHeaders().set(HttpHeaders.RETRY_AFTER, "1");
+        return response.setComplete();
+    }
+
+    /**
+     * Reply 504 if the deadline fires before the response is committed. Otherwise the response is aborted, as its status is sent already.
+     */
+    private static Mono<Void> rejectTimeout(ServerWebExchange exchange, TimeoutException e) {
+        log.warn("[forward] Request timed out: {}", e.getMessage());
+        var response = exchange.getResponse();
+        if (response.isCommitted()) {
+            return Mono.error(e);
+        }
+        response.setStatusCode(HttpStatus.GATEWAY_TIMEOUT);
+        return response.setComplete();
+    }
+
+    /**
+     * Race the request with a hedged request to another pod, which starts after the hedge delay if the request has got a pod by then, and
+     * another warm pod can take a run right away. The hedge is skipped otherwise, so that hedges never queue for capacity or specialize pods.
+     * The first pod to reply wins, and the other exchange is cancelled and its access closed. Failures of the hedged request before it replies
+     * are ignored, so that the primary request goes on.
+     * @param hedgedRequest leases a run of a pod other than the given one of the primary request
+     */
+    private static Flux<Part> hedge(
+            Mono<PodRun> primaryRequest,
+            Function<String, Mono<PodRun>> hedgedRequest,
+            Forwarding forwarding
+    ) {
+        var primaryPodName = new AtomicReference<String>();
+        var hedgedReplied = new AtomicBoolean();
+        var primary = attempt(primaryRequest, forwarding, primaryPodName::set);
+        var hedged = Mono.delay(forwarding.options().getHedgeDelay())
+                .thenMany(Flux.defer(() -> {
+                    if (primaryPodName.get() == null) {
+                        return Flux.<Part>never();
+                    }
+                    return hedgedRequest.apply(primaryPodName.get())
+                            .doOnNext(run -> log.debug("[forward] Request to pod {} is hedged to pod {}", primaryPodName.get(), podName(run.getAccess())))
+                            .flatMapMany(run -> attempt(Mono.just(run), forwarding, podName -> {}))
+                            .switchIfEmpty(Flux.never());
+                }))
+                .doOnNext(part -> hedgedReplied.set(true))
+                .onErrorResume(e -> {
+                    if (hedgedReplied.get()) {
+                        return Flux.<Part>error(e);
+                    }
+                    log.debug("[forward] Hedged request failed: {}", e.getMessage());
+                    return Flux.<Part>never();
+                });
+        return Flux.firstWithSignal(primary, hedged);
+    }
+
+    private static Flux<Part> attempt(
+            Mono<PodRun> accessRequest,
+            Forwarding forwarding,
+            Consumer<String> podNameListener
+    ) {
+        // this run is closed asynchronously, so we need to close it after we finish
+        return Flux.usingWhen(
+                accessRequest,
+                run -> {
+                    podNameListener.accept(podName(run.getAccess()));
+                    return exchange(run.getAccess(), forwarding);
+                },
+                HttpProxyUtils::closeRun,
+                (run, e) -> closeRun(run),
+                run -> onCancel(run, forwarding)
+        );
+    }
+
+    /**
+     * Exchange with the pod is cancelled, as the client went away, or another pod won the hedge. Runs abandoned by clients are counted and
+     * handled, e.g. to cancel the task on the pod, while the run is closed at once to free its concurrency slot.
+     */
+    private static Mono<Void> onCancel(PodRun run, Forwarding forwarding) {
+        if (forwarding.abandoned().get()) {
+            var access = run.getAccess();
+            var podKey = ResourceUtils.computeResourceMetaKey(access.getPodAccess().getSelectedPod());
+            log.info("[forward] Client went away while pod {} is serving {}", podKey, forwarding.exchange().getRequest().getPath());
+            Optional.ofNullable(forwarding.options().getAbandonedRuns()).ifPresent(Counter::increment);
+            forwarding.options().getAbandonHandler().apply(access)
+                    .subscribe(null, e -> log.warn("[forward] Failed to handle abandoned run on pod {}", podKey, e));
+        }
+        return closeRun(run);
+    }
+
+    /**
+     * Send a request to the pod of access out of any client exchange, e.g. to cancel a task.
+     */
+    public static Mono<Void> send(CountedPodAccess access, String trailingPath, MediaType contentType, byte[] body) {
+        var fullUrl = ResourceUtils.getPodUri(access.getPodAccess().getSelectedPod(), trailingPath);
+        return webClient.post()
+                .uri(fullUrl)
+                .contentType(contentType)
+                .bodyValue(body)
+                .retrieve()
+                .toBodilessEntity()
+                .timeout(SEND_TIMEOUT)
+                .then();
+    }
+
+    private static Flux<Part> exchange(
+            CountedPodAccess access,
+            Forwarding forwarding
+    ) {
+        var request = forwarding.exchange().getRequest();
+        var options = forwarding.options();
+        var startedAt = forwarding.startedAt();
+        var timeouts = options.getTimeouts();
+        var podKey = ResourceUtils.computeResourceMetaKey(access.getPodAccess().getSelectedPod());
+        var fullUrl = ResourceUtils.getPodUri(access.getPodAccess().getSelectedPod(), forwarding.trailingPath());
+        log.debug("[forward] {} {}", request.getMethod(), fullUrl);
         HttpHeaders forwardHeaders = new HttpHeaders();
-        headers.entrySet().stream()
+        request.getHeaders().entrySet().stream()
                 .filter(entry -> !entry.getKey().equalsIgnoreCase("host"))
                 .filter(entry -> !entry.getKey().equalsIgnoreCase("content-length"))
+                .filter(entry -> !entry.getKey().equalsIgnoreCase(ProxyTimeouts.TIMEOUT_HEADER))
                 .forEach(entry -> forwardHeaders.put(entry.getKey(), entry.getValue()));
-        return webClient.post()
+        var remaining = timeouts.remaining(timeouts.streaming(), startedAt);
+        if (remaining != null) {
+            if (remaining.isZero()) {
+                return Flux.error(new TimeoutException("Deadline is exceeded before request is sent to pod " + podKey));
+            }
+            forwardHeaders.set(ProxyTimeouts.TIMEOUT_HEADER, String.valueOf(remaining.toMillis()));
+        }
+        var requestBody = options.isReplayable()
+                ? Flux.defer(() -> Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(options.getBody())))
+                : request.getBody();
+        var sentAt = System.nanoTime();
+        return webClient.method(request.getMethod())
                 .uri(fullUrl)
                 .headers(h -> h.addAll(forwardHeaders))
                 .body(requestBody, DataBuffer.class)
                 .exchangeToFlux(clientResponse -> {
-                    response.setStatusCode(clientResponse.statusCode());
-                    response.getHeaders().putAll(clientResponse.headers().asHttpHeaders());
-                    return clientResponse.bodyToFlux(DataBuffer.class);
-                })
-                .transform(response::writeWith)
-                .then().doFinally(signalType -> {
-                    try {
-                        access.close();
-                    } catch (Exception e) {
-                        log.warn("[forward] Ignored exception during closing CountedPodAccess: {}", access, e);
+                    if (isUnprocessed(access, clientResponse)) {
+                        if (clientResponse.headers().header(UNSPECIALIZED_HEADER).contains("true")) {
+                            access.getHealth().eject("not specialized");
+                        }
+                        return clientResponse.releaseBody()
+                                .thenMany(Flux.<Part>error(new PodUnavailableException("Pod %s replied 503 before processing the request".formatted(podKey), null)));
+                    }
+                    // time to response headers, so that long streams are counted by in-flight runs rather than latency
+                    var latency = Duration.ofNanos(System.nanoTime() - sentAt);
+                    access.recordLatency(latency);
+                    options.getLatencyListener().accept(latency);
+                    if (clientResponse.statusCode().is5xxServerError()) {
+                        recordFailure(access, "status " + clientResponse.statusCode().value());
+                    } else {
+                        access.getHealth().recordSuccess();
                     }
+                    return Flux.<Part>concat(
+                            Mono.just(new Head(clientResponse.statusCode(), clientResponse.headers().asHttpHeaders())),
+                            options.getResponseTap().apply(access, clientResponse.bodyToFlux(DataBuffer.class)).map(Chunk::new)
+                    );
+                })
+                .transform(parts -> withTimeouts(parts, timeouts, startedAt))
+                .onErrorMap(TimeoutException.class, e -> {
+                    recordFailure(access, "timeout");
+                    return new TimeoutException("Response of pod %s timed out. %s".formatted(podKey, timeouts));
+                })
+                .doOnError(e -> isConnectionFailure(e) && !isConnectFailure(e), e -> recordFailure(access, e.getClass().getSimpleName()))
+                .onErrorMap(HttpProxyUtils::isConnectFailure, e -> {
+                    access.getHealth().eject(e.getClass().getSimpleName());
+                    log.warn("[forward] Pod {} is ejected as it's not reachable. health={}", podKey, access.getHealth());
+                    return new PodUnavailableException("Failed to connect to pod " + podKey, e);
                 });
+    }
 
+    /**
+     * Apply the deadline, or idle timeout once the response turns out to be a stream. Upstream exchange is cancelled when a timeout fires,
+     * and the access is closed as the error propagates.
+     */
+    private static Flux<Part> withTimeouts(Flux<Part> parts, ProxyTimeouts timeouts, long startedAt) {
+        var streaming = new AtomicBoolean(timeouts.streaming());
+        return parts.timeout(
+                delayOf(timeouts.next(streaming.get(), startedAt)),
+                part -> {
+                    if (part instanceof Head head && isEventStream(head.headers())) {
+                        streaming.set(true);
+                    }
+                    return delayOf(timeouts.next(streaming.get(), startedAt));
+                }
+        );
+    }
+
+    private static Mono<Long> delayOf(Duration timeout) {
+        return timeout == null ? Mono.never() : Mono.delay(timeout);
+    }
+
+    private static boolean isEventStream(HttpHeaders headers) {
+        return Optional.ofNullable(headers.getContentType())
+                .map(MediaType.TEXT_EVENT_STREAM::isCompatibleWith)
+                .orElse(false);
+    }
+
+    /**
+     * A 503 of a pod that is draining, or of a runtime that is not specialized, means the request is not processed.
+     */
+    private static boolean isUnprocessed(CountedPodAccess access, ClientResponse clientResponse) {
+        return clientResponse.statusCode().value() == HttpStatus.SERVICE_UNAVAILABLE.value()
+                && (access.isDraining() || clientResponse.headers().header(UNSPECIALIZED_HEADER).contains("true"));
+    }
+
+    /**
+     * Failures of establishing connection to the pod, in which case nothing is sent to the pod.
+     */
+    private static boolean isConnectFailure(Throwable e) {
+        return e instanceof WebClientRequestException
+                && (ExceptionUtils.indexOfType(e, ConnectException.class) >= 0 || ExceptionUtils.indexOfType(e, UnknownHostException.class) >= 0);
+    }
+
+    private static String podName(CountedPodAccess access) {
+        return access.getPodAccess().getSelectedPod().getMetadata().getName();
+    }
+
+    /**
+     * Failures of connecting to the pod, or of the connection while response is being read, e.g. connection refused or reset.
+     */
+    private static boolean isConnectionFailure(Throwable e) {
+        return e instanceof WebClientRequestException || Exceptions.unwrap(e) instanceof IOException;
+    }
+
+    private static void recordFailure(CountedPodAccess access, String reason) {
+        if (access.getHealth().recordFailure(reason)) {
+            log.warn("[forward] Pod {} is ejected: {}. health={}", ResourceUtils.computeResourceMetaKey(access.getPodAccess().getSelectedPod()), reason, access.getHealth());
+        }
+    }
+
+    /**
+     * Closing a run never blocks, as pods are released and disposed asynchronously, so it's done on the calling thread.
+     */
+    private static Mono<Void> closeRun(PodRun run) {
+        return Mono.fromCallable(() -> {
+                    run.close();
+                    return run;
+                })
+                .onErrorResume(e -> {
+                    log.warn("[forward] Ignored exception during closing run: {}", run, e);
+                    return Mono.empty();
+                })
+                .then();
     }
 
 }
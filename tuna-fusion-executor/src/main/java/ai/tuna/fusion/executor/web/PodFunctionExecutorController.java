@@ -1,12 +1,16 @@
 package ai.tuna.fusion.executor.web;
 
+import ai.tuna.fusion.executor.ExecutorProperties;
 import ai.tuna.fusion.executor.driver.podpool.CountedPodAccess;
 import ai.tuna.fusion.executor.driver.podpool.FunctionPodManager;
 import ai.tuna.fusion.executor.web.entity.PodFunctionListItem;
 import ai.tuna.fusion.executor.web.entity.PagedContent;
 import ai.tuna.fusion.metadata.crd.ResourceUtils;
+import ai.tuna.fusion.metadata.crd.podpool.PodFunctionSpec;
 import ai.tuna.fusion.metadata.crd.podpool.PodPool;
 import ai.tuna.fusion.metadata.informer.PodPoolResources;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpMethod;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ServerWebExchange;
 import reactor.core.publisher.Mono;
@@ -22,10 +26,16 @@ public class PodFunctionExecutorController {
 
     private final PodPoolResources podPoolResources;
     private final FunctionPodManager functionPodManager;
+    private final ExecutorProperties.Proxy proxyProperties;
+    private final HedgeDelays hedgeDelays;
+    private final AbandonedRunCounters abandonedRunCounters;
 
-    public PodFunctionExecutorController(PodPoolResources podPoolResources, FunctionPodManager functionPodManager) {
+    public PodFunctionExecutorController(PodPoolResources podPoolResources, FunctionPodManager functionPodManager, ExecutorProperties executorProperties, MeterRegistry meterRegistry) {
         this.podPoolResources = podPoolResources;
         this.functionPodManager = functionPodManager;
+        this.proxyProperties = executorProperties.getProxy();
+        this.hedgeDelays = new HedgeDelays(proxyProperties);
+        this.abandonedRunCounters = new AbandonedRunCounters(meterRegistry);
     }
 
 
@@ -64,7 +74,18 @@ public class PodFunctionExecutorController {
         var podPool = ResourceUtils.getMatchedOwnerReferenceResourceName(podFunction, PodPool.class)
                 .flatMap(name -> podPoolResources.queryPodPool(namespace, name))
                 .orElseThrow();
-        return HttpProxyUtils.forward(functionPodManager, podFunction, podPool, exchange, trailingPath);
+        var method = exchange.getRequest().getMethod();
+        var route = ResourceUtils.computeResourceMetaKey(podFunction) + " " + method;
+        var safe = podFunction.getSpec().getAppType() == PodFunctionSpec.AppType.WebApp && (method == HttpMethod.GET || method == HttpMethod.HEAD);
+        return HttpProxyUtils.readReplayableBody(exchange, proxyProperties.getMaxBufferedBodyBytes())
+                .flatMap(body -> HttpProxyUtils.forward(functionPodManager, podFunction, podPool, exchange, trailingPath, ProxyOptions.builder()
+                        .body(body.orElse(null))
+                        .maxRetries(proxyProperties.getMaxRetries())
+                        .hedgeDelay(safe ? hedgeDelays.delayOf(route).orElse(null) : null)
+                        .timeouts(ProxyTimeouts.resolve(proxyProperties, podFunction, null, exchange.getRequest().getHeaders()))
+                        .latencyListener(latency -> hedgeDelays.record(route, latency))
+                        .abandonedRuns(abandonedRunCounters.of(podFunction))
+                        .build()));
     }
 
 }
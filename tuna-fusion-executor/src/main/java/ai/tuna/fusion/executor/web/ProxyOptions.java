@@ -0,0 +1,75 @@
+package ai.tuna.fusion.executor.web;
+
+import ai.tuna.fusion.executor.driver.podpool.CountedPodAccess;
+import io.micrometer.core.instrument.Counter;
+import lombok.Builder;
+import lombok.Getter;
+import org.springframework.core.io.buffer.DataBuffer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Options of forwarding a request to pods of a function.
+ *
+ * @author robinqu
+ */
+@Getter
+@Builder
+public class ProxyOptions {
+    /**
+     * Request body read ahead, which is replayed on retries and hedged requests. If null, body is streamed from the exchange and the request
+     * is sent only once.
+     */
+    private final byte[] body;
+
+    /**
+     * Pod tried first, e.g. the pod holding an A2A task. Retries and hedged requests go to other pods.
+     */
+    private final String preferredPodName;
+
+    /**
+     * Retries on another pod of requests that fail before they are processed. Only requests with a buffered body are retried.
+     */
+    private final int maxRetries;
+
+    /**
+     * Delay after which the request is also sent to a second pod, or null if the request is not hedged.
+     */
+    private final Duration hedgeDelay;
+
+    @Builder.Default
+    private final ProxyTimeouts timeouts = ProxyTimeouts.NONE;
+
+    /**
+     * Called with time to response headers of each exchange with a pod.
+     */
+    @Builder.Default
+    private final Consumer<Duration> latencyListener = latency -> {};
+
+    /**
+     * Applied to response body of the pod before it's written, e.g. to inspect response chunks.
+     */
+    @Builder.Default
+    private final BiFunction<CountedPodAccess, Flux<DataBuffer>, Flux<DataBuffer>> responseTap = (access, responseBody) -> responseBody;
+
+    /**
+     * Called when the client goes away while a pod is serving the request, e.g. to cancel the task on the pod. Access of the pod is closed
+     * at once rather than after the returned publisher completes.
+     */
+    @Builder.Default
+    private final Function<CountedPodAccess, Mono<Void>> abandonHandler = access -> Mono.empty();
+
+    /**
+     * Counter of runs abandoned by clients, or null if they are not counted.
+     */
+    private final Counter abandonedRuns;
+
+    public boolean isReplayable() {
+        return body != null;
+    }
+}
@@ -0,0 +1,96 @@
+package ai.tuna.fusion.executor.web;
+
+import ai.tuna.fusion.executor.ExecutorProperties;
+import ai.tuna.fusion.metadata.crd.podpool.PodFunction;
+import ai.tuna.fusion.metadata.crd.podpool.PodFunctionSpec;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Timeouts of a proxied request. Unary requests have a deadline until their response is complete. Streaming responses have an idle timeout
+ * between chunks, and no deadline unless the client sets one in {@link #TIMEOUT_HEADER}.
+ * <p>
+ * Deadlines of unary requests are resolved in the order of method timeouts of the function, request timeout of the function, method timeouts
+ * of executor and request timeout of executor, and are capped by the client timeout.
+ *
+ * @param requestTimeout deadline of the request if it's unary, or null if there is none
+ * @param clientTimeout  deadline set by the client, or null if there is none
+ * @param idleTimeout    timeout between chunks of a streaming response, or null if there is none
+ * @param streaming      true if the response is known to be a stream before it arrives, e.g. of A2A {@code message/stream}
+ * @author robinqu
+ */
+@Slf4j
+public record ProxyTimeouts(Duration requestTimeout, Duration clientTimeout, Duration idleTimeout, boolean streaming) {
+    /**
+     * Remaining milliseconds of the request. It's read from clients, and set on requests to pods, so that pods may give up in time.
+     */
+    public static final String TIMEOUT_HEADER = "X-Fusion-Timeout-Ms";
+
+    public static final ProxyTimeouts NONE = new ProxyTimeouts(null, null, null, false);
+
+    /**
+     * @param method A2A JSON-RPC method, or null if the request is not an A2A call
+     */
+    public static ProxyTimeouts resolve(ExecutorProperties.Proxy properties, PodFunction podFunction, String method, HttpHeaders requestHeaders) {
+        var functionTimeouts = Optional.ofNullable(podFunction.getSpec().getTimeouts());
+        var clientTimeout = clientTimeout(requestHeaders).orElse(null);
+        var idleTimeout = functionTimeouts.map(PodFunctionSpec.Timeouts::getStreamIdleSeconds)
+                .map(Duration::ofSeconds)
+                .orElse(properties.getStreamIdleTimeout());
+        if (method != null && properties.getStreamingMethods().contains(method)) {
+            return new ProxyTimeouts(null, clientTimeout, idleTimeout, true);
+        }
+        var requestTimeout = functionTimeouts.map(PodFunctionSpec.Timeouts::getMethodSeconds)
+                .filter(methodSeconds -> method != null)
+                .map(methodSeconds -> methodSeconds.get(method))
+                .or(() -> functionTimeouts.map(PodFunctionSpec.Timeouts::getRequestSeconds))
+                .map(Duration::ofSeconds)
+                .or(() -> Optional.ofNullable(method).map(properties.getMethodTimeouts()::get))
+                .orElse(properties.getRequestTimeout());
+        return new ProxyTimeouts(min(requestTimeout, clientTimeout), clientTimeout, idleTimeout, false);
+    }
+
+    private static Optional<Duration> clientTimeout(HttpHeaders requestHeaders) {
+        return Optional.ofNullable(requestHeaders.getFirst(TIMEOUT_HEADER))
+                .flatMap(value -> {
+                    try {
+                        return Optional.of(Duration.ofMillis(Long.parseLong(value.trim())));
+                    } catch (NumberFormatException e) {
+                        log.debug("[clientTimeout] Invalid {} header: {}", TIMEOUT_HEADER, value);
+                        return Optional.empty();
+                    }
+                })
+                .filter(timeout -> !timeout.isNegative());
+    }
+
+    private static Duration min(Duration a, Duration b) {
+        if (a == null || b == null) {
+            return a == null ? b : a;
+        }
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    /**
+     * @param streaming   true if the response is a stream
+     * @param startedAt   {@link System#nanoTime()} when the request arrived
+     * @return remaining time of the deadline, or null if there is none
+     */
+    public Duration remaining(boolean streaming, long startedAt) {
+        var deadline = streaming ? clientTimeout : requestTimeout;
+        if (deadline == null) {
+            return null;
+        }
+        var remaining = deadline.minusNanos(System.nanoTime() - startedAt);
+        return remaining.isNegative() ? Duration.ZERO : remaining;
+    }
+
+    /**
+     * @return timeout of the next part of the response, or null if there is none
+     */
+    public Duration next(boolean streaming, long startedAt) {
+        return min(streaming ? idleTimeout : null, remaining(streaming, startedAt));
+    }
+}
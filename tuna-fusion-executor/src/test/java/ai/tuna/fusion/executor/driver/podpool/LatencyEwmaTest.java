@@ -0,0 +1,50 @@
+package ai.tuna.fusion.executor.driver.podpool;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author robinqu
+ */
+public class LatencyEwmaTest {
+
+    @Test
+    void testNothingRecorded() {
+        assertEquals(0, new LatencyEwma(Duration.ofSeconds(10)).getMillis());
+    }
+
+    @Test
+    void testFirstSampleIsTakenAsIs() {
+        var latency = new LatencyEwma(Duration.ofSeconds(10));
+        latency.record(Duration.ofMillis(200));
+        assertEquals(200, latency.getMillis(), 0.001);
+    }
+
+    @Test
+    void testSamplesAreWeightedByTime() throws InterruptedException {
+        // weight of previous samples is kept if they are recent
+        var slow = new LatencyEwma(Duration.ofDays(1));
+        slow.record(Duration.ofMillis(100));
+        slow.record(Duration.ofMillis(500));
+        assertEquals(100, slow.getMillis(), 1);
+
+        // and is gone if they are old
+        var fast = new LatencyEwma(Duration.ofNanos(1));
+        fast.record(Duration.ofMillis(100));
+        Thread.sleep(1);
+        fast.record(Duration.ofMillis(500));
+        assertEquals(500, fast.getMillis(), 1);
+    }
+
+    @Test
+    void testAverageIsBetweenSamples() throws InterruptedException {
+        var latency = new LatencyEwma(Duration.ofMillis(20));
+        latency.record(Duration.ofMillis(100));
+        Thread.sleep(20);
+        latency.record(Duration.ofMillis(500));
+        assertTrue(latency.getMillis() > 100 && latency.getMillis() < 500, "average " + latency.getMillis());
+    }
+}
@@ -0,0 +1,64 @@
+package ai.tuna.fusion.executor.driver.podpool;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author robinqu
+ */
+public class PodHealthTest {
+
+    @Test
+    void testPodIsEjectedOnConsecutiveFailures() {
+        var health = new PodHealth(3, Duration.ofMinutes(1), 3);
+        assertFalse(health.recordFailure("502"));
+        assertFalse(health.recordFailure("502"));
+        health.recordSuccess();
+        assertFalse(health.recordFailure("502"));
+        assertFalse(health.recordFailure("502"));
+        assertTrue(health.recordFailure("connection reset"));
+        assertEquals(PodHealth.State.EJECTED, health.getState());
+        assertEquals("connection reset", health.getLastFailure());
+        // failures while ejected don't eject the pod again
+        assertFalse(health.recordFailure("502"));
+        assertEquals(1, health.getEjections());
+    }
+
+    @Test
+    void testSingleFailureOnProbationEjectsPodAgain() {
+        // ejection window is over at once
+        var health = new PodHealth(3, Duration.ZERO, 3);
+        health.eject("latency outlier");
+        assertEquals(PodHealth.State.PROBATION, health.getState());
+        assertTrue(health.recordFailure("502"));
+        assertEquals(2, health.getEjections());
+
+        health.recordSuccess();
+        assertEquals(PodHealth.State.HEALTHY, health.getState());
+        assertFalse(health.recordFailure("502"));
+    }
+
+    @Test
+    void testEjectionWindowGrowsWithEjections() {
+        var health = new PodHealth(1, Duration.ofMinutes(1), 5);
+        health.eject("latency outlier");
+        assertTrue(health.getEjectedUntil().isBefore(Instant.now().plus(Duration.ofSeconds(61))));
+        health.eject("latency outlier");
+        assertTrue(health.getEjectedUntil().isAfter(Instant.now().plus(Duration.ofSeconds(119))));
+        assertTrue(health.isEjected());
+    }
+
+    @Test
+    void testPodIsUnhealthyAfterMaxEjections() {
+        var health = new PodHealth(1, Duration.ZERO, 2);
+        assertTrue(health.recordFailure("502"));
+        assertFalse(health.isUnhealthy());
+        assertTrue(health.recordFailure("502"));
+        assertTrue(health.isUnhealthy());
+        assertEquals(PodHealth.State.UNHEALTHY, health.getState());
+    }
+}
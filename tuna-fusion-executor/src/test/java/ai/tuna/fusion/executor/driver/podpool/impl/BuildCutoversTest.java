@@ -0,0 +1,106 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.metadata.crd.podpool.PodFunctionStatus;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author robinqu
+ */
+public class BuildCutoversTest {
+
+    private static final String FUNCTION_KEY = "ns/fn";
+
+    private static PodFunctionStatus.BuildInfo build(String uid) {
+        var build = new PodFunctionStatus.BuildInfo();
+        build.setName("build-" + uid);
+        build.setUid(uid);
+        return build;
+    }
+
+    @Test
+    void testRequestsAreRoutedToPreviousBuildUntilEnoughPodsAreWarm() {
+        var cutovers = new BuildCutovers(Duration.ofMinutes(2));
+        var v1 = build("v1");
+        var v2 = build("v2");
+        assertTrue(cutovers.start(FUNCTION_KEY, Optional.of(v1), v2, uid -> uid.equals("v1") ? 3 : 0, 1));
+        assertEquals(3, cutovers.get(FUNCTION_KEY).orElseThrow().target());
+        assertEquals(v1, cutovers.routedBuild(FUNCTION_KEY, v2));
+        assertTrue(cutovers.isSource(FUNCTION_KEY, "v1"));
+
+        var cutover = cutovers.get(FUNCTION_KEY).orElseThrow();
+        assertFalse(cutovers.complete(FUNCTION_KEY, cutover, 2));
+        assertEquals(v1, cutovers.routedBuild(FUNCTION_KEY, v2));
+        assertTrue(cutovers.complete(FUNCTION_KEY, cutover, 3));
+        assertEquals(v2, cutovers.routedBuild(FUNCTION_KEY, v2));
+        assertFalse(cutovers.isSource(FUNCTION_KEY, "v1"));
+    }
+
+    @Test
+    void testTargetIsAtLeastMinWarm() {
+        var cutovers = new BuildCutovers(Duration.ofMinutes(2));
+        assertTrue(cutovers.start(FUNCTION_KEY, Optional.of(build("v1")), build("v2"), uid -> 1, 4));
+        assertEquals(4, cutovers.get(FUNCTION_KEY).orElseThrow().target());
+    }
+
+    @Test
+    void testNoCutoverWithoutWarmPods() {
+        var cutovers = new BuildCutovers(Duration.ofMinutes(2));
+        var v2 = build("v2");
+        assertFalse(cutovers.start(FUNCTION_KEY, Optional.of(build("v1")), v2, uid -> 0, 1));
+        assertFalse(cutovers.start(FUNCTION_KEY, Optional.empty(), v2, uid -> 3, 1));
+        assertTrue(cutovers.get(FUNCTION_KEY).isEmpty());
+        assertEquals(v2, cutovers.routedBuild(FUNCTION_KEY, v2));
+    }
+
+    @Test
+    void testCutoverIsSwitchedOnTimeout() throws InterruptedException {
+        var cutovers = new BuildCutovers(Duration.ZERO);
+        cutovers.start(FUNCTION_KEY, Optional.of(build("v1")), build("v2"), uid -> 3, 1);
+        Thread.sleep(5);
+        assertTrue(cutovers.complete(FUNCTION_KEY, cutovers.get(FUNCTION_KEY).orElseThrow(), 0));
+        assertTrue(cutovers.get(FUNCTION_KEY).isEmpty());
+    }
+
+    @Test
+    void testRollbackToRoutedBuildDropsCutover() {
+        var cutovers = new BuildCutovers(Duration.ofMinutes(2));
+        var v1 = build("v1");
+        var v2 = build("v2");
+        cutovers.start(FUNCTION_KEY, Optional.of(v1), v2, uid -> 3, 1);
+        // effective build is changed back from v2 to v1
+        assertFalse(cutovers.start(FUNCTION_KEY, Optional.of(v2), v1, uid -> 3, 1));
+        assertTrue(cutovers.get(FUNCTION_KEY).isEmpty());
+        assertEquals(v1, cutovers.routedBuild(FUNCTION_KEY, v1));
+    }
+
+    @Test
+    void testCutoverKeepsRoutedBuildWhenEffectiveBuildChangesAgain() {
+        var cutovers = new BuildCutovers(Duration.ofMinutes(2));
+        var v1 = build("v1");
+        var v3 = build("v3");
+        cutovers.start(FUNCTION_KEY, Optional.of(v1), build("v2"), uid -> 3, 1);
+        // pods of v2 are not warm yet, so requests keep going to v1 until v3 is warm
+        assertTrue(cutovers.start(FUNCTION_KEY, Optional.of(build("v2")), v3, uid -> uid.equals("v1") ? 3 : 0, 1));
+        assertEquals(v1, cutovers.get(FUNCTION_KEY).orElseThrow().from());
+        assertEquals(v1, cutovers.routedBuild(FUNCTION_KEY, v3));
+        // same build again is ignored
+        assertFalse(cutovers.start(FUNCTION_KEY, Optional.of(build("v2")), v3, uid -> 3, 1));
+    }
+
+    @Test
+    void testStaleCutoverIsNotCancelled() {
+        var cutovers = new BuildCutovers(Duration.ofMinutes(2));
+        cutovers.start(FUNCTION_KEY, Optional.of(build("v1")), build("v2"), uid -> 3, 1);
+        var stale = cutovers.get(FUNCTION_KEY).orElseThrow();
+        cutovers.start(FUNCTION_KEY, Optional.of(build("v2")), build("v3"), uid -> 3, 1);
+        cutovers.cancel(FUNCTION_KEY, stale);
+        assertEquals("v3", cutovers.get(FUNCTION_KEY).orElseThrow().to().getUid());
+        cutovers.cancel(FUNCTION_KEY);
+        assertTrue(cutovers.get(FUNCTION_KEY).isEmpty());
+    }
+}
@@ -0,0 +1,77 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author robinqu
+ */
+public class ConsistentHashRingTest {
+
+    private static final int VIRTUAL_NODES = 128;
+    private static final int KEY_COUNT = 10_000;
+
+    private static Map<String, String> owners(ConsistentHashRing ring) {
+        Map<String, String> owners = new HashMap<>();
+        for (int i = 0; i < KEY_COUNT; i++) {
+            var key = "ns/pod-" + i;
+            owners.put(key, ring.owner(key).orElseThrow());
+        }
+        return owners;
+    }
+
+    @Test
+    void testEmptyRing() {
+        var ring = new ConsistentHashRing(List.of(), VIRTUAL_NODES);
+        assertTrue(ring.isEmpty());
+        assertEquals(Optional.empty(), ring.owner("ns/pod-1"));
+    }
+
+    @Test
+    void testOwnersDoNotDependOnOrderOfMembers() {
+        var owners = owners(new ConsistentHashRing(List.of("executor-a", "executor-b", "executor-c"), VIRTUAL_NODES));
+        assertEquals(owners, owners(new ConsistentHashRing(List.of("executor-c", "executor-a", "executor-b"), VIRTUAL_NODES)));
+    }
+
+    @Test
+    void testKeysAreSpreadEvenly() {
+        var members = List.of("executor-a", "executor-b", "executor-c", "executor-d");
+        var owners = owners(new ConsistentHashRing(members, VIRTUAL_NODES));
+        for (var member : members) {
+            var owned = owners.values().stream().filter(member::equals).count();
+            assertTrue(owned > KEY_COUNT * 0.15 && owned < KEY_COUNT * 0.35, member + " owns " + owned);
+        }
+    }
+
+    @Test
+    void testOnlyKeysOfJoiningMemberAreMoved() {
+        var before = owners(new ConsistentHashRing(List.of("executor-a", "executor-b", "executor-c"), VIRTUAL_NODES));
+        var after = owners(new ConsistentHashRing(List.of("executor-a", "executor-b", "executor-c", "executor-d"), VIRTUAL_NODES));
+        var moved = 0;
+        for (var entry : before.entrySet()) {
+            var owner = after.get(entry.getKey());
+            if (!owner.equals(entry.getValue())) {
+                assertEquals("executor-d", owner, entry.getKey());
+                moved++;
+            }
+        }
+        assertTrue(moved > KEY_COUNT * 0.15 && moved < KEY_COUNT * 0.35, "moved " + moved);
+    }
+
+    @Test
+    void testOnlyKeysOfLeavingMemberAreMoved() {
+        var before = owners(new ConsistentHashRing(List.of("executor-a", "executor-b", "executor-c"), VIRTUAL_NODES));
+        var after = owners(new ConsistentHashRing(List.of("executor-a", "executor-b"), VIRTUAL_NODES));
+        for (var entry : before.entrySet()) {
+            if (!entry.getValue().equals("executor-c")) {
+                assertEquals(entry.getValue(), after.get(entry.getKey()), entry.getKey());
+            }
+        }
+    }
+}
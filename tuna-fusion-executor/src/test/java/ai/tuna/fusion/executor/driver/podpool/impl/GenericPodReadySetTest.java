@@ -0,0 +1,92 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author robinqu
+ */
+public class GenericPodReadySetTest {
+
+    @Test
+    void testPodsAreTakenInInsertionOrder() {
+        var readySet = new GenericPodReadySet();
+        assertTrue(readySet.offer("ns/pod-1"));
+        assertTrue(readySet.offer("ns/pod-2"));
+        assertFalse(readySet.offer("ns/pod-1"));
+        assertEquals(2, readySet.size());
+        assertEquals(Optional.of("ns/pod-1"), readySet.poll());
+        assertEquals(Optional.of("ns/pod-2"), readySet.poll());
+        assertEquals(Optional.empty(), readySet.poll());
+    }
+
+    @Test
+    void testPreferredPodsAreTakenFirst() {
+        var readySet = new GenericPodReadySet(podKey -> podKey.endsWith("-local"));
+        readySet.offer("ns/pod-1-remote");
+        readySet.offer("ns/pod-2-local");
+        readySet.offer("ns/pod-3-remote");
+        readySet.offer("ns/pod-4-local");
+        assertEquals(Optional.of("ns/pod-2-local"), readySet.poll());
+        assertEquals("ns/pod-4-local", readySet.acquire().join());
+        assertEquals(Optional.of("ns/pod-1-remote"), readySet.poll());
+        assertEquals(Optional.of("ns/pod-3-remote"), readySet.poll());
+    }
+
+    @Test
+    void testRemove() {
+        var readySet = new GenericPodReadySet(podKey -> podKey.endsWith("-local"));
+        readySet.offer("ns/pod-1-local");
+        readySet.offer("ns/pod-2-remote");
+        assertTrue(readySet.remove("ns/pod-1-local"));
+        assertTrue(readySet.remove("ns/pod-2-remote"));
+        assertFalse(readySet.remove("ns/pod-2-remote"));
+        assertFalse(readySet.contains("ns/pod-1-local"));
+        assertEquals(0, readySet.size());
+    }
+
+    @Test
+    void testWaitersAreHandedPodsInFifoOrder() {
+        var readySet = new GenericPodReadySet();
+        var first = readySet.acquire();
+        var second = readySet.acquire();
+        assertFalse(first.isDone());
+        assertEquals(2, readySet.waiterCount());
+
+        assertTrue(readySet.offer("ns/pod-1"));
+        assertEquals("ns/pod-1", first.getNow(null));
+        assertFalse(second.isDone());
+        // handed pods are not kept in the set
+        assertEquals(0, readySet.size());
+
+        readySet.offer("ns/pod-2");
+        assertEquals("ns/pod-2", second.getNow(null));
+        assertEquals(0, readySet.waiterCount());
+    }
+
+    @Test
+    void testReleasedWaiterIsSkipped() {
+        var readySet = new GenericPodReadySet();
+        var first = readySet.acquire();
+        var second = readySet.acquire();
+        readySet.release(first);
+        assertTrue(first.isCancelled());
+        readySet.offer("ns/pod-1");
+        assertEquals("ns/pod-1", second.getNow(null));
+    }
+
+    @Test
+    void testPodHandedToReleasedWaiterIsPutBack() {
+        var readySet = new GenericPodReadySet();
+        var waiter = readySet.acquire();
+        readySet.offer("ns/pod-1");
+        assertTrue(waiter.isDone());
+        // e.g. the requester timed out while the pod is being handed over
+        readySet.release(waiter);
+        assertTrue(readySet.contains("ns/pod-1"));
+        assertEquals(Optional.of("ns/pod-1"), readySet.poll());
+    }
+}
@@ -0,0 +1,74 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.executor.ExecutorProperties;
+import ai.tuna.fusion.executor.driver.podpool.CountedPodAccess;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author robinqu
+ */
+public class OutlierDetectorTest {
+
+    private static CountedPodAccess access(String podName, OutlierDetector detector, Duration latency) {
+        var access = PodLeasePoolTest.access(podName, 10, 0).toBuilder().health(detector.newHealth()).build();
+        if (!latency.isZero()) {
+            access.recordLatency(latency);
+        }
+        return access;
+    }
+
+    @Test
+    void testSlowPodIsEjected() {
+        var detector = new OutlierDetector(new ExecutorProperties.OutlierDetection());
+        var fast1 = access("pod-1", detector, Duration.ofMillis(800));
+        var fast2 = access("pod-2", detector, Duration.ofMillis(900));
+        var slow = access("pod-3", detector, Duration.ofSeconds(10));
+        assertEquals(List.of(), detector.detect(List.of(fast1, fast2, slow)));
+        assertTrue(slow.getHealth().isEjected());
+        assertFalse(fast1.getHealth().isEjected());
+        assertFalse(fast2.getHealth().isEjected());
+
+        // ejected pod is not ejected again until its window is over
+        detector.detect(List.of(fast1, fast2, slow));
+        assertEquals(1, slow.getHealth().getEjections());
+    }
+
+    @Test
+    void testFastPodsAreNeverOutliers() {
+        var detector = new OutlierDetector(new ExecutorProperties.OutlierDetection());
+        var fast1 = access("pod-1", detector, Duration.ofMillis(10));
+        var fast2 = access("pod-2", detector, Duration.ofMillis(10));
+        var slower = access("pod-3", detector, Duration.ofMillis(500));
+        detector.detect(List.of(fast1, fast2, slower));
+        assertFalse(slower.getHealth().isEjected());
+    }
+
+    @Test
+    void testTooFewPodsToCompare() {
+        var detector = new OutlierDetector(new ExecutorProperties.OutlierDetection());
+        var fast = access("pod-1", detector, Duration.ofMillis(800));
+        var slow = access("pod-2", detector, Duration.ofSeconds(10));
+        var unsampled = access("pod-3", detector, Duration.ZERO);
+        detector.detect(List.of(fast, slow, unsampled));
+        assertFalse(slow.getHealth().isEjected());
+    }
+
+    @Test
+    void testUnhealthyPodsAreReported() {
+        var outlierDetection = new ExecutorProperties.OutlierDetection();
+        outlierDetection.setMaxEjections(1);
+        var detector = new OutlierDetector(outlierDetection);
+        var fast1 = access("pod-1", detector, Duration.ofMillis(800));
+        var fast2 = access("pod-2", detector, Duration.ofMillis(900));
+        var slow = access("pod-3", detector, Duration.ofSeconds(10));
+        var draining = access("pod-4", detector, Duration.ZERO);
+        draining.getHealth().eject("502");
+        draining.markDraining();
+        assertEquals(List.of(slow), detector.detect(List.of(fast1, fast2, slow, draining)));
+    }
+}
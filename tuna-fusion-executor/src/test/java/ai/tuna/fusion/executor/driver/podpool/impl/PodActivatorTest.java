@@ -0,0 +1,71 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author robinqu
+ */
+public class PodActivatorTest {
+
+    @Test
+    void testWaitersAreWokenInFifoOrder() {
+        var activator = new PodActivator(10, Duration.ofMinutes(1), Duration.ofSeconds(1), buffered -> {});
+        var first = new AtomicBoolean(false);
+        var second = new AtomicBoolean(false);
+        activator.await().subscribe(null, null, () -> first.set(true));
+        activator.await().subscribe(null, null, () -> second.set(true));
+        assertEquals(2, activator.getBuffered());
+
+        activator.onPodReady();
+        assertTrue(first.get());
+        assertFalse(second.get());
+        assertEquals(1, activator.getBuffered());
+
+        activator.onPodReady();
+        assertTrue(second.get());
+        assertEquals(0, activator.getBuffered());
+    }
+
+    @Test
+    void testCancelledWaiterIsSkipped() {
+        var activator = new PodActivator(10, Duration.ofMinutes(1), Duration.ofSeconds(1), buffered -> {});
+        var woken = new AtomicBoolean(false);
+        activator.await().subscribe().dispose();
+        activator.await().subscribe(null, null, () -> woken.set(true));
+        assertEquals(1, activator.getBuffered());
+        activator.onPodReady();
+        assertTrue(woken.get());
+    }
+
+    @Test
+    void testRequestsBeyondBufferAreRejected() {
+        var activator = new PodActivator(1, Duration.ofMinutes(1), Duration.ofSeconds(1), buffered -> {});
+        activator.await().subscribe();
+        assertThrows(PodActivator.ActivationRejectedException.class, () -> activator.await().block());
+        assertEquals(1, activator.getRejectedCount());
+    }
+
+    @Test
+    void testRequestsWaitingTooLongAreRejected() {
+        var activator = new PodActivator(1, Duration.ofMillis(50), Duration.ofSeconds(1), buffered -> {});
+        assertThrows(PodActivator.ActivationRejectedException.class, () -> activator.await().block());
+        assertEquals(1, activator.getRejectedCount());
+        assertEquals(0, activator.getBuffered());
+    }
+
+    @Test
+    void testDemandIsSignalledOncePerInterval() {
+        List<Integer> signals = new ArrayList<>();
+        var activator = new PodActivator(10, Duration.ofMinutes(1), Duration.ofHours(1), signals::add);
+        activator.await().subscribe();
+        activator.await().subscribe();
+        assertEquals(List.of(1), signals);
+    }
+}
@@ -0,0 +1,76 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.executor.driver.podpool.CountedPodAccess;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ai.tuna.fusion.executor.driver.podpool.impl.PodLeasePoolTest.access;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author robinqu
+ */
+public class PodDrainerTest {
+
+    @Test
+    void testIdleAccessIsReleasedAtOnce() {
+        Map<CountedPodAccess, Boolean> released = new LinkedHashMap<>();
+        var drainer = new PodDrainer(Duration.ofMinutes(5), released::put);
+        var access = access("pod-1", 10, 0);
+        drainer.drain(access);
+        assertTrue(access.isDraining());
+        assertEquals(Map.of(access, true), released);
+        assertFalse(drainer.isDraining(access.getPodAccess().getSelectedPod()));
+    }
+
+    @Test
+    void testAccessIsReleasedOnceAfterLastRun() {
+        Map<CountedPodAccess, Boolean> released = new LinkedHashMap<>();
+        var drainer = new PodDrainer(Duration.ofMinutes(5), released::put);
+        var inFlight = new AtomicInteger(0);
+        var access = access("pod-1", 10, 0).toBuilder().inFlightCount(inFlight).build();
+        assertTrue(access.tryReserve());
+        drainer.drain(access);
+        assertTrue(drainer.isDraining(access.getPodAccess().getSelectedPod()));
+        assertFalse(access.tryReserve());
+        drainer.drain(access);
+        assertTrue(released.isEmpty());
+
+        // the run is closed, and the access is drained again
+        inFlight.decrementAndGet();
+        drainer.drain(access);
+        assertEquals(Map.of(access, true), released);
+        drainer.drain(access);
+        assertEquals(1, released.size());
+    }
+
+    @Test
+    void testUnhealthyPodIsNotRecycled() {
+        Map<CountedPodAccess, Boolean> released = new LinkedHashMap<>();
+        var drainer = new PodDrainer(Duration.ofMinutes(5), released::put);
+        var access = access("pod-1", 10, 0);
+        for (int i = 0; i < 3; i++) {
+            access.getHealth().eject("502");
+        }
+        drainer.drain(access);
+        assertEquals(Map.of(access, false), released);
+    }
+
+    @Test
+    void testOverdueAccessIsReleased() throws InterruptedException {
+        Map<CountedPodAccess, Boolean> released = new LinkedHashMap<>();
+        var drainer = new PodDrainer(Duration.ZERO, released::put);
+        var access = access("pod-1", 10, 0);
+        assertTrue(access.tryReserve());
+        drainer.drain(access);
+        assertTrue(released.isEmpty());
+        Thread.sleep(5);
+        drainer.releaseOverdue();
+        assertEquals(Map.of(access, false), released);
+        assertFalse(drainer.isDraining(access.getPodAccess().getSelectedPod()));
+    }
+}
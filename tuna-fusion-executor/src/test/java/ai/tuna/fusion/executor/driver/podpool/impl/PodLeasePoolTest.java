@@ -0,0 +1,247 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.executor.driver.podpool.CountedPodAccess;
+import ai.tuna.fusion.executor.driver.podpool.PodAccess;
+import ai.tuna.fusion.executor.driver.podpool.PodHealth;
+import io.fabric8.kubernetes.api.model.PodBuilder;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author robinqu
+ */
+public class PodLeasePoolTest {
+
+    static CountedPodAccess access(String podName, int runs, int maxConcurrency) {
+        var pod = new PodBuilder()
+                .withNewMetadata().withNamespace("ns").withName(podName).endMetadata()
+                .build();
+        return CountedPodAccess.builder()
+                .podAccess(PodAccess.builder().namespace("ns").selectedPod(pod).functionBuildUid("build-uid").build())
+                .maxUsageCount(runs)
+                .maxConcurrency(maxConcurrency)
+                .health(new PodHealth(5, Duration.ofSeconds(30), 3))
+                .usageCount(new AtomicInteger(0))
+                .allowance(new AtomicInteger(runs))
+                .build();
+    }
+
+    private static PodLeasePool leasePool(int slotCount) {
+        return new PodLeasePool("ns", "fn", "build", "build-uid", slotCount);
+    }
+
+    private static int reserve(CountedPodAccess access, int times) {
+        var reserved = 0;
+        for (int i = 0; i < times; i++) {
+            if (access.tryReserve()) {
+                reserved++;
+            }
+        }
+        return reserved;
+    }
+
+    @Test
+    void testReservationsNeverOvershootRuns() throws InterruptedException {
+        var access = access("pod-1", 100, 0);
+        var reserved = new AtomicInteger();
+        var start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                reserved.addAndGet(reserve(access, 50));
+            }));
+        }
+        start.countDown();
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertEquals(100, reserved.get());
+        assertEquals(100, access.getUsageCount().get());
+        assertEquals(100, access.getInFlight());
+        assertEquals(0, access.getRemaining());
+    }
+
+    @Test
+    void testNoReservationAfterDraining() throws InterruptedException {
+        var access = access("pod-1", 1_000_000, 0);
+        var reserved = new AtomicInteger();
+        var reservedAfterDraining = new AtomicBoolean(false);
+        var start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            threads.add(Thread.ofPlatform().start(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                while (!access.isDraining()) {
+                    if (access.tryReserve()) {
+                        reserved.incrementAndGet();
+                    }
+                }
+                if (access.tryReserve()) {
+                    reservedAfterDraining.set(true);
+                }
+            }));
+        }
+        start.countDown();
+        Thread.sleep(10);
+        assertTrue(access.markDraining());
+        assertFalse(access.markDraining());
+        for (var thread : threads) {
+            thread.join();
+        }
+        assertFalse(reservedAfterDraining.get());
+        // rejected reservations give their in-flight slot back, so the drainer waits for exactly the runs that are reserved
+        assertEquals(reserved.get(), access.getInFlight());
+        assertEquals(reserved.get(), access.getUsageCount().get());
+    }
+
+    @Test
+    void testConcurrencyIsLimited() {
+        var access = access("pod-1", 10, 2);
+        assertEquals(2, reserve(access, 3));
+        assertTrue(access.isSaturated());
+        assertEquals(2, access.getInFlight());
+        assertEquals(2, access.getUsageCount().get());
+        assertEquals(8, access.getRemaining());
+    }
+
+    @Test
+    void testRunsAreLimitedByAllowance() {
+        var access = access("pod-1", 10, 0).toBuilder().allowance(new AtomicInteger(3)).build();
+        assertEquals(3, reserve(access, 5));
+        access.grant(2);
+        assertEquals(2, access.getRemaining());
+        assertEquals(2, reserve(access, 5));
+    }
+
+    @Test
+    void testCapacityWaitersAreWokenInFifoOrder() {
+        var leasePool = leasePool(1);
+        var first = leasePool.enqueueCapacityWaiter(3).orElseThrow();
+        var second = leasePool.enqueueCapacityWaiter(3).orElseThrow();
+        var third = leasePool.enqueueCapacityWaiter(3).orElseThrow();
+        assertTrue(leasePool.enqueueCapacityWaiter(3).isEmpty());
+        assertEquals(3, leasePool.getQueuedCount());
+
+        leasePool.signalCapacity();
+        assertTrue(first.isDone());
+        assertFalse(second.isDone());
+        assertFalse(third.isDone());
+
+        // cancelled waiters are skipped, so that the signal is not lost
+        second.cancel(false);
+        leasePool.signalCapacity();
+        assertTrue(third.isDone());
+        assertFalse(third.isCancelled());
+        assertEquals(0, leasePool.getQueuedCount());
+
+        // signals without waiters are not kept
+        leasePool.signalCapacity();
+        assertFalse(leasePool.enqueueCapacityWaiter(3).orElseThrow().isDone());
+    }
+
+    @Test
+    void testLessLoadedPodIsLeased() {
+        var leasePool = leasePool(2);
+        var busy = access("pod-busy", 100, 0);
+        var idle = access("pod-idle", 100, 0);
+        assertEquals(5, reserve(busy, 5));
+        assertTrue(leasePool.fill(0, busy));
+        assertTrue(leasePool.fill(1, idle));
+        for (int i = 0; i < 3; i++) {
+            // with two candidates, both are sampled and the less loaded one wins
+            assertSame(idle, leasePool.tryLeaseLeastLoaded(access -> true, access -> false).orElseThrow());
+        }
+        assertEquals(3, idle.getInFlight());
+    }
+
+    @Test
+    void testPreferredPodIsLeasedFirst() {
+        var leasePool = leasePool(2);
+        var local = access("pod-local", 100, 0);
+        var remote = access("pod-remote", 100, 0);
+        assertEquals(5, reserve(local, 5));
+        assertTrue(leasePool.fill(0, local));
+        assertTrue(leasePool.fill(1, remote));
+        assertSame(local, leasePool.tryLeaseLeastLoaded(access -> true, access -> access == local).orElseThrow());
+    }
+
+    @Test
+    void testOtherPodIsLeasedIfPreferredPodIsSaturated() {
+        var leasePool = leasePool(2);
+        var local = access("pod-local", 100, 1);
+        var remote = access("pod-remote", 100, 1);
+        assertTrue(local.tryReserve());
+        assertTrue(leasePool.fill(0, local));
+        assertTrue(leasePool.fill(1, remote));
+        assertSame(remote, leasePool.tryLeaseLeastLoaded(access -> true, access -> access == local).orElseThrow());
+        assertTrue(leasePool.tryLeaseLeastLoaded(access -> true, access -> access == local).isEmpty());
+    }
+
+    @Test
+    void testUnusablePodIsNotLeased() {
+        var leasePool = leasePool(2);
+        var usable = access("pod-1", 100, 0);
+        var ejected = access("pod-2", 100, 0);
+        assertTrue(leasePool.fill(0, usable));
+        assertTrue(leasePool.fill(1, ejected));
+        for (int i = 0; i < 5; i++) {
+            assertSame(usable, leasePool.tryLeaseLeastLoaded(access -> access != ejected, access -> false).orElseThrow());
+        }
+        assertEquals(0, ejected.getInFlight());
+    }
+
+    @Test
+    void testSlots() {
+        var leasePool = leasePool(2);
+        var access = access("pod-1", 100, 0);
+        assertTrue(leasePool.isEmpty());
+        assertTrue(leasePool.fill(1, access));
+        assertFalse(leasePool.fill(1, access("pod-2", 100, 0)));
+        assertSame(access, leasePool.findByPodName("pod-1").orElseThrow());
+        assertEquals(0, leasePool.findIdleSlot(1).orElseThrow());
+        assertTrue(leasePool.evict(access));
+        assertFalse(leasePool.evict(access));
+        assertTrue(leasePool.findByPodName("pod-1").isEmpty());
+        assertTrue(leasePool.isEmpty());
+    }
+
+    @Test
+    void testSpecializationOfSlotIsShared() {
+        var leasePool = leasePool(2);
+        var access = access("pod-1", 100, 0);
+        var started = new AtomicInteger();
+        var first = leasePool.specialize(0, () -> {
+            started.incrementAndGet();
+            return Mono.just(access);
+        });
+        var second = leasePool.specialize(0, () -> {
+            started.incrementAndGet();
+            return Mono.just(access("pod-2", 100, 0));
+        });
+        // slot being specialized is not idle
+        assertEquals(1, leasePool.findIdleSlot(0).orElseThrow());
+        assertEquals(1, leasePool.listPendingSpecializations().size());
+        assertSame(access, first.block());
+        assertSame(access, second.block());
+        assertEquals(1, started.get());
+        assertTrue(leasePool.listPendingSpecializations().isEmpty());
+    }
+}
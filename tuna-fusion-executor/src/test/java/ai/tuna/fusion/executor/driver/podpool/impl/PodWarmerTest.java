@@ -0,0 +1,87 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import ai.tuna.fusion.executor.driver.podpool.CountedPodAccess;
+import ai.tuna.fusion.metadata.crd.podpool.PodFunction;
+import ai.tuna.fusion.metadata.crd.podpool.PodPool;
+import io.fabric8.kubernetes.api.model.ObjectMetaBuilder;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static ai.tuna.fusion.executor.driver.podpool.impl.PodLeasePoolTest.access;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author robinqu
+ */
+public class PodWarmerTest {
+
+    private final AtomicInteger specialized = new AtomicInteger();
+    private final List<CountedPodAccess> retired = new ArrayList<>();
+
+    private static PodFunction function() {
+        var function = new PodFunction();
+        function.setMetadata(new ObjectMetaBuilder().withNamespace("ns").withName("fn").build());
+        return function;
+    }
+
+    private PodWarmer warmer(PodLeasePool leasePool, PodWarmer.SlotSpecializer slotSpecializer) {
+        return new PodWarmer(access -> !access.isDraining(), access -> {
+            retired.add(access);
+            leasePool.evict(access);
+            access.markDraining();
+        }, slotSpecializer);
+    }
+
+    private Mono<CountedPodAccess> specialize(PodLeasePool leasePool, int idx) {
+        return Mono.fromSupplier(() -> {
+            var access = access("pod-" + specialized.incrementAndGet(), 10, 0);
+            assertTrue(leasePool.fill(idx, access));
+            return access;
+        });
+    }
+
+    @Test
+    void testEmptySlotsAreSpecialized() {
+        var leasePool = new PodLeasePool("ns", "fn", "build", "build-uid", 3);
+        var warmer = warmer(leasePool, (pool, idx, function, podPool) -> specialize(pool, idx));
+        assertEquals(2, warmer.warm(leasePool, function(), new PodPool(), 2).block());
+        assertEquals(2, specialized.get());
+        // warm pods are kept
+        assertEquals(2, warmer.warm(leasePool, function(), new PodPool(), 2).block());
+        assertEquals(2, specialized.get());
+    }
+
+    @Test
+    void testWarmPodsAreCappedBySlots() {
+        var leasePool = new PodLeasePool("ns", "fn", "build", "build-uid", 2);
+        var warmer = warmer(leasePool, (pool, idx, function, podPool) -> specialize(pool, idx));
+        assertEquals(2, warmer.warm(leasePool, function(), new PodPool(), 5).block());
+    }
+
+    @Test
+    void testPodsThatAreNotWarmAreReplaced() {
+        var leasePool = new PodLeasePool("ns", "fn", "build", "build-uid", 1);
+        var stale = access("pod-stale", 10, 0);
+        stale.markDraining();
+        assertTrue(leasePool.fill(0, stale));
+        var warmer = warmer(leasePool, (pool, idx, function, podPool) -> specialize(pool, idx));
+        assertEquals(1, warmer.warm(leasePool, function(), new PodPool(), 1).block());
+        assertEquals(List.of(stale), retired);
+        assertNotSame(stale, leasePool.get(0).orElseThrow());
+    }
+
+    @Test
+    void testFailedSpecializationIsSkipped() {
+        var leasePool = new PodLeasePool("ns", "fn", "build", "build-uid", 2);
+        var attempts = new AtomicInteger();
+        var warmer = warmer(leasePool, (pool, idx, function, podPool) -> attempts.incrementAndGet() == 1
+                ? Mono.<CountedPodAccess>error(new IllegalStateException("no generic pod"))
+                : specialize(pool, idx));
+        assertEquals(1, warmer.warm(leasePool, function(), new PodPool(), 2).block());
+        assertEquals(2, attempts.get());
+    }
+}
@@ -0,0 +1,98 @@
+package ai.tuna.fusion.executor.driver.podpool.impl;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author robinqu
+ */
+public class SpecializationLimiterTest {
+
+    /**
+     * Specialization that runs until it's completed by the test.
+     */
+    private static class Specialization implements Supplier<Mono<String>> {
+        private final Sinks.One<String> result = Sinks.one();
+        private boolean started;
+
+        @Override
+        public Mono<String> get() {
+            started = true;
+            return result.asMono();
+        }
+
+        void complete(String value) {
+            result.tryEmitValue(value);
+        }
+    }
+
+    @Test
+    void testSpecializationsBeyondLimitAreQueuedInFifoOrder() {
+        var limiter = new SpecializationLimiter(1, 2);
+        var first = new Specialization();
+        var second = new Specialization();
+        var third = new Specialization();
+        List<String> results = new ArrayList<>();
+        limiter.run(first).subscribe(results::add);
+        limiter.run(second).subscribe(results::add);
+        limiter.run(third).subscribe(results::add);
+        assertTrue(first.started);
+        assertFalse(second.started);
+        assertEquals(1, limiter.getActive());
+        assertEquals(2, limiter.getQueued());
+
+        first.complete("pod-1");
+        assertTrue(second.started);
+        assertFalse(third.started);
+        assertEquals(1, limiter.getActive());
+
+        second.complete("pod-2");
+        third.complete("pod-3");
+        assertEquals(List.of("pod-1", "pod-2", "pod-3"), results);
+        assertEquals(0, limiter.getActive());
+        assertEquals(0, limiter.getQueued());
+    }
+
+    @Test
+    void testSpecializationsBeyondQueueAreRejected() {
+        var limiter = new SpecializationLimiter(1, 1);
+        limiter.run(new Specialization()).subscribe();
+        limiter.run(new Specialization()).subscribe();
+        assertThrows(SpecializationLimiter.SpecializationRejectedException.class, () -> limiter.run(new Specialization()).block());
+        assertEquals(1, limiter.getRejectedCount());
+    }
+
+    @Test
+    void testCancelledWaiterGivesUpItsPlace() {
+        var limiter = new SpecializationLimiter(1, 1);
+        var first = new Specialization();
+        var cancelled = new Specialization();
+        var third = new Specialization();
+        limiter.run(first).subscribe();
+        var subscription = limiter.run(cancelled).subscribe();
+        subscription.dispose();
+        assertEquals(0, limiter.getQueued());
+
+        limiter.run(third).subscribe();
+        first.complete("pod-1");
+        assertFalse(cancelled.started);
+        assertTrue(third.started);
+    }
+
+    @Test
+    void testPermitIsReleasedOnError() {
+        var limiter = new SpecializationLimiter(1, 1);
+        assertThrows(IllegalStateException.class, () -> limiter.run(() -> Mono.error(new IllegalStateException("failed"))).block());
+        assertEquals(0, limiter.getActive());
+        var next = new Specialization();
+        limiter.run(next).subscribe();
+        assertTrue(next.started);
+    }
+}
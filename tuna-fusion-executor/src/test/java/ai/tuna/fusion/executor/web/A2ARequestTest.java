@@ -0,0 +1,54 @@
+package ai.tuna.fusion.executor.web;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author robinqu
+ */
+public class A2ARequestTest {
+
+    private static A2ARequest parse(String body) {
+        return A2ARequest.parse(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void testMessageRequest() {
+        var request = parse("{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"method\":\"message/send\",\"params\":{\"message\":{\"contextId\":\"ctx-1\",\"taskId\":\"task-1\",\"messageId\":\"m-1\",\"role\":\"user\",\"parts\":[]}}}");
+        assertEquals("message/send", request.method());
+        assertEquals(new A2AAffinity.Ids("ctx-1", "task-1"), request.ids());
+        assertFalse(request.isSafe());
+    }
+
+    @Test
+    void testMessageOfNewConversation() {
+        var request = parse("{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"method\":\"message/stream\",\"params\":{\"message\":{\"contextId\":\"\",\"messageId\":\"m-1\",\"role\":\"user\",\"parts\":[]}}}");
+        assertEquals("message/stream", request.method());
+        assertEquals(new A2AAffinity.Ids(null, null), request.ids());
+    }
+
+    @Test
+    void testTaskRequest() {
+        var request = parse("{\"jsonrpc\":\"2.0\",\"id\":\"1\",\"method\":\"tasks/get\",\"params\":{\"id\":\"task-1\",\"historyLength\":10}}");
+        assertEquals("tasks/get", request.method());
+        assertEquals(new A2AAffinity.Ids(null, "task-1"), request.ids());
+        assertTrue(request.isSafe());
+    }
+
+    @Test
+    void testRequestThatIsNotJson() {
+        assertSame(A2ARequest.EMPTY, parse(""));
+        assertSame(A2ARequest.EMPTY, parse("method=message/send"));
+        assertNull(parse("[1, 2]").method());
+    }
+
+    @Test
+    void testCancelTask() {
+        var request = A2ARequest.parse(A2ARequest.cancelTask("task-1"));
+        assertEquals("tasks/cancel", request.method());
+        assertEquals(new A2AAffinity.Ids(null, "task-1"), request.ids());
+    }
+}
@@ -0,0 +1,108 @@
+package ai.tuna.fusion.executor.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author robinqu
+ */
+public class A2AResponseInspectorTest {
+
+    /**
+     * Response of {@code message/stream} as written by sse-starlette for a2a-sdk, whose lines end with CRLF and which is kept alive by ping
+     * comments.
+     */
+    private static final String STARLETTE_STREAM = String.join("",
+            ": ping - 2025-06-01 08:00:00.000000+00:00\r\n\r\n",
+            "data: {\"id\":\"1\",\"jsonrpc\":\"2.0\",\"result\":{\"contextId\":\"ctx-1\",\"history\":[{\"kind\":\"message\",\"messageId\":\"m-1\",\"parts\":[{\"kind\":\"text\",\"text\":\"hello\"}],\"role\":\"user\"}],\"id\":\"task-1\",\"kind\":\"task\",\"status\":{\"state\":\"submitted\"}}}\r\n\r\n",
+            "data: {\"id\":\"1\",\"jsonrpc\":\"2.0\",\"result\":{\"contextId\":\"ctx-1\",\"final\":false,\"kind\":\"status-update\",\"status\":{\"state\":\"working\"},\"taskId\":\"task-1\"}}\r\n\r\n",
+            "data: {\"id\":\"1\",\"jsonrpc\":\"2.0\",\"result\":{\"contextId\":\"ctx-1\",\"final\":true,\"kind\":\"status-update\",\"status\":{\"state\":\"completed\"},\"taskId\":\"task-1\"}}\r\n\r\n"
+    );
+
+    private static List<A2AAffinity.Ids> inspect(int maxInspectedBytes, List<byte[]> chunks) {
+        List<A2AAffinity.Ids> found = new ArrayList<>();
+        var inspector = new A2AResponseInspector(maxInspectedBytes, found::add);
+        Flux<DataBuffer> body = Flux.fromIterable(chunks).map(DefaultDataBufferFactory.sharedInstance::wrap);
+        inspector.inspect(body).collectList().block();
+        return found;
+    }
+
+    /**
+     * Split bytes into chunks of given size, so that lines, CRLF and characters are split between chunks.
+     */
+    private static List<byte[]> chunks(byte[] bytes, int size) {
+        List<byte[]> chunks = new ArrayList<>();
+        for (int i = 0; i < bytes.length; i += size) {
+            chunks.add(Arrays.copyOfRange(bytes, i, Math.min(bytes.length, i + size)));
+        }
+        return chunks;
+    }
+
+    @Test
+    void testStarletteStream() {
+        var bytes = STARLETTE_STREAM.getBytes(StandardCharsets.UTF_8);
+        for (var size : List.of(1, 2, 3, 7, 64, bytes.length)) {
+            var found = inspect(64 * 1024, chunks(bytes, size));
+            assertEquals(List.of(new A2AAffinity.Ids("ctx-1", "task-1")), found, "chunk size " + size);
+        }
+    }
+
+    @Test
+    void testTaskIdOfStreamedMessageIsCaptured() {
+        var taskId = new AtomicReference<String>();
+        var inspector = new A2AResponseInspector(64 * 1024, A2AResponseInspector.firstTaskListener(taskId));
+        var chunks = chunks(STARLETTE_STREAM.getBytes(StandardCharsets.UTF_8), 5);
+        // the stream is still open, so the task must be known from the events received so far, for tasks/cancel to be sent if the client goes away
+        var received = chunks.subList(0, chunks.size() / 2);
+        inspector.inspect(Flux.fromIterable(received).<DataBuffer>map(DefaultDataBufferFactory.sharedInstance::wrap).concatWith(Flux.never()))
+                .take(received.size())
+                .collectList()
+                .block();
+        assertEquals("task-1", taskId.get());
+    }
+
+    @Test
+    void testMultiByteCharactersSplitBetweenChunks() {
+        var stream = "data: {\"jsonrpc\":\"2.0\",\"result\":{\"contextId\":\"会话-1\",\"kind\":\"status-update\",\"taskId\":\"任务-1\"}}\r\n\r\n";
+        var found = inspect(64 * 1024, chunks(stream.getBytes(StandardCharsets.UTF_8), 1));
+        assertEquals(List.of(new A2AAffinity.Ids("会话-1", "任务-1")), found);
+    }
+
+    @Test
+    void testLineFeedStream() {
+        var stream = STARLETTE_STREAM.replace("\r\n", "\n");
+        var found = inspect(64 * 1024, chunks(stream.getBytes(StandardCharsets.UTF_8), 3));
+        assertEquals(List.of(new A2AAffinity.Ids("ctx-1", "task-1")), found);
+    }
+
+    @Test
+    void testJsonResponse() {
+        var response = "{\"id\":\"1\",\"jsonrpc\":\"2.0\",\"result\":{\"contextId\":\"ctx-2\",\"id\":\"task-2\",\"kind\":\"task\",\"status\":{\"state\":\"completed\"}}}";
+        var found = inspect(64 * 1024, chunks(response.getBytes(StandardCharsets.UTF_8), 10));
+        assertEquals(List.of(new A2AAffinity.Ids("ctx-2", "task-2")), found);
+    }
+
+    @Test
+    void testMessageWithoutTask() {
+        var stream = "data: {\"jsonrpc\":\"2.0\",\"result\":{\"contextId\":\"ctx-3\",\"kind\":\"message\",\"messageId\":\"m-1\",\"role\":\"agent\"}}\r\n\r\n";
+        var found = inspect(64 * 1024, chunks(stream.getBytes(StandardCharsets.UTF_8), 4));
+        assertEquals(List.of(new A2AAffinity.Ids("ctx-3", null)), found);
+    }
+
+    @Test
+    void testInspectionStopsAtLimit() {
+        var padding = ": " + "x".repeat(200) + "\r\n\r\n";
+        var found = inspect(100, chunks((padding + STARLETTE_STREAM).getBytes(StandardCharsets.UTF_8), 16));
+        assertTrue(found.isEmpty());
+    }
+}
@@ -0,0 +1,74 @@
+package ai.tuna.fusion.executor.web;
+
+import ai.tuna.fusion.executor.ExecutorProperties;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author robinqu
+ */
+public class HedgeDelaysTest {
+
+    private static ExecutorProperties.Proxy properties() {
+        var properties = new ExecutorProperties.Proxy();
+        properties.setHedgingEnabled(true);
+        properties.setHedgePercentile(0.9);
+        properties.setMinHedgeSamples(10);
+        properties.setMinHedgeDelay(Duration.ofMillis(5));
+        properties.setHedgeWindow(10);
+        return properties;
+    }
+
+    private static void record(HedgeDelays hedgeDelays, String route, int fromMillis, int toMillis) {
+        for (int millis = fromMillis; millis <= toMillis; millis++) {
+            hedgeDelays.record(route, Duration.ofMillis(millis));
+        }
+    }
+
+    @Test
+    void testDelayIsPercentileOfRoute() {
+        var hedgeDelays = new HedgeDelays(properties());
+        record(hedgeDelays, "fn-1", 11, 20);
+        assertEquals(Optional.of(Duration.ofMillis(19)), hedgeDelays.delayOf("fn-1"));
+        assertEquals(Optional.empty(), hedgeDelays.delayOf("fn-2"));
+    }
+
+    @Test
+    void testNoDelayUntilEnoughSamples() {
+        var hedgeDelays = new HedgeDelays(properties());
+        record(hedgeDelays, "fn-1", 11, 19);
+        assertEquals(Optional.empty(), hedgeDelays.delayOf("fn-1"));
+        record(hedgeDelays, "fn-1", 20, 20);
+        assertTrue(hedgeDelays.delayOf("fn-1").isPresent());
+    }
+
+    @Test
+    void testOldSamplesLeaveWindow() {
+        var hedgeDelays = new HedgeDelays(properties());
+        record(hedgeDelays, "fn-1", 1000, 1009);
+        record(hedgeDelays, "fn-1", 11, 20);
+        assertEquals(Optional.of(Duration.ofMillis(19)), hedgeDelays.delayOf("fn-1"));
+    }
+
+    @Test
+    void testDelayIsAtLeastMinDelay() {
+        var properties = properties();
+        properties.setMinHedgeDelay(Duration.ofMillis(50));
+        var hedgeDelays = new HedgeDelays(properties);
+        record(hedgeDelays, "fn-1", 1, 10);
+        assertEquals(Optional.of(Duration.ofMillis(50)), hedgeDelays.delayOf("fn-1"));
+    }
+
+    @Test
+    void testNoDelayIfHedgingIsDisabled() {
+        var properties = properties();
+        properties.setHedgingEnabled(false);
+        var hedgeDelays = new HedgeDelays(properties);
+        record(hedgeDelays, "fn-1", 11, 20);
+        assertEquals(Optional.empty(), hedgeDelays.delayOf("fn-1"));
+    }
+}
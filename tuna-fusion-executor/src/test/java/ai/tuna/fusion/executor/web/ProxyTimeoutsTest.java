@@ -0,0 +1,99 @@
+package ai.tuna.fusion.executor.web;
+
+import ai.tuna.fusion.executor.ExecutorProperties;
+import ai.tuna.fusion.metadata.crd.podpool.PodFunction;
+import ai.tuna.fusion.metadata.crd.podpool.PodFunctionSpec;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * @author robinqu
+ */
+public class ProxyTimeoutsTest {
+
+    private static PodFunction podFunction(PodFunctionSpec.Timeouts timeouts) {
+        var spec = new PodFunctionSpec();
+        spec.setTimeouts(timeouts);
+        var podFunction = new PodFunction();
+        podFunction.setSpec(spec);
+        return podFunction;
+    }
+
+    private static HttpHeaders clientTimeout(String value) {
+        var headers = new HttpHeaders();
+        headers.set(ProxyTimeouts.TIMEOUT_HEADER, value);
+        return headers;
+    }
+
+    @Test
+    void testExecutorDefaults() {
+        var properties = new ExecutorProperties.Proxy();
+        var timeouts = ProxyTimeouts.resolve(properties, podFunction(null), null, new HttpHeaders());
+        assertEquals(properties.getRequestTimeout(), timeouts.requestTimeout());
+        assertEquals(properties.getStreamIdleTimeout(), timeouts.idleTimeout());
+        assertNull(timeouts.clientTimeout());
+        assertFalse(timeouts.streaming());
+
+        var tasksGet = ProxyTimeouts.resolve(properties, podFunction(null), "tasks/get", new HttpHeaders());
+        assertEquals(Duration.ofSeconds(10), tasksGet.requestTimeout());
+    }
+
+    @Test
+    void testFunctionTimeoutsTakePrecedence() {
+        var properties = new ExecutorProperties.Proxy();
+        var function = podFunction(PodFunctionSpec.Timeouts.builder()
+                .requestSeconds(30)
+                .streamIdleSeconds(15)
+                .methodSeconds(Map.of("tasks/get", 3))
+                .build());
+        assertEquals(Duration.ofSeconds(30), ProxyTimeouts.resolve(properties, function, null, new HttpHeaders()).requestTimeout());
+        // request timeout of the function comes before method timeouts of executor
+        assertEquals(Duration.ofSeconds(30), ProxyTimeouts.resolve(properties, function, "message/send", new HttpHeaders()).requestTimeout());
+        var tasksGet = ProxyTimeouts.resolve(properties, function, "tasks/get", new HttpHeaders());
+        assertEquals(Duration.ofSeconds(3), tasksGet.requestTimeout());
+        assertEquals(Duration.ofSeconds(15), tasksGet.idleTimeout());
+    }
+
+    @Test
+    void testClientTimeoutCapsDeadline() {
+        var properties = new ExecutorProperties.Proxy();
+        var timeouts = ProxyTimeouts.resolve(properties, podFunction(null), null, clientTimeout("1500"));
+        assertEquals(Duration.ofMillis(1500), timeouts.requestTimeout());
+        assertEquals(Duration.ofMillis(1500), timeouts.clientTimeout());
+
+        var longer = ProxyTimeouts.resolve(properties, podFunction(null), null, clientTimeout("3600000"));
+        assertEquals(properties.getRequestTimeout(), longer.requestTimeout());
+    }
+
+    @Test
+    void testInvalidClientTimeoutIsIgnored() {
+        var properties = new ExecutorProperties.Proxy();
+        assertNull(ProxyTimeouts.resolve(properties, podFunction(null), null, clientTimeout("soon")).clientTimeout());
+        assertNull(ProxyTimeouts.resolve(properties, podFunction(null), null, clientTimeout("-1")).clientTimeout());
+    }
+
+    @Test
+    void testStreamsHaveNoDeadlineUnlessClientSetsOne() {
+        var properties = new ExecutorProperties.Proxy();
+        var timeouts = ProxyTimeouts.resolve(properties, podFunction(null), "message/stream", new HttpHeaders());
+        assertTrue(timeouts.streaming());
+        assertNull(timeouts.requestTimeout());
+        assertNull(timeouts.remaining(true, System.nanoTime()));
+        assertEquals(properties.getStreamIdleTimeout(), timeouts.next(true, System.nanoTime()));
+
+        var withClientTimeout = ProxyTimeouts.resolve(properties, podFunction(null), "message/stream", clientTimeout("1000"));
+        var next = withClientTimeout.next(true, System.nanoTime());
+        assertTrue(next.compareTo(Duration.ofMillis(1000)) <= 0 && next.compareTo(Duration.ofMillis(500)) > 0, "next " + next);
+    }
+
+    @Test
+    void testRemainingTimeIsNeverNegative() {
+        var timeouts = new ProxyTimeouts(Duration.ofMillis(10), null, null, false);
+        assertEquals(Duration.ZERO, timeouts.remaining(false, System.nanoTime() - Duration.ofSeconds(1).toNanos()));
+    }
+}
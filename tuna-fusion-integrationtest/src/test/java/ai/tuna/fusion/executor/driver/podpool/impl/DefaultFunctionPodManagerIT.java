@@ -48,7 +48,8 @@ public class DefaultFunctionPodManagerIT extends IntegrationTest {
         Pod selectedPod = null;
         Set<String> podNamesSet = new HashSet<>();
         while (count++<maxCount) {
-            try(var access = functionPodManager.requestAccess(fn1, podPool)) {
+            try(var run = functionPodManager.requestAccess(fn1, podPool)) {
+                var access = run.getAccess();
                 selectedPod = access.getPodAccess().getSelectedPod();
                 log.info("Selected pod {}", ResourceUtils.computeResourceMetaKey(selectedPod));
                 assertThat(selectedPod).isNotNull();
@@ -62,18 +63,21 @@ public class DefaultFunctionPodManagerIT extends IntegrationTest {
             }
         }
         assertThat(selectedPod).isNotNull();
-        var checkedPod = ResourceUtils.getPod(kubernetesClient,
-                selectedPod.getMetadata().getNamespace(),
-                selectedPod.getMetadata().getName());
-        log.info("after max access. pod={}", checkedPod);
-        var deleted = checkedPod
-                .map(pod -> StringUtils.isNoneBlank(pod.getMetadata().getDeletionTimestamp()))
-                .orElse(true);
-        assertThat(deleted).isTrue();
+        // pods are deleted by disposer in background
+        var exhaustedPod = selectedPod;
+        context.awaitFor(() -> {
+            var checkedPod = ResourceUtils.getPod(kubernetesClient,
+                    exhaustedPod.getMetadata().getNamespace(),
+                    exhaustedPod.getMetadata().getName());
+            log.info("after max access. pod={}", checkedPod);
+            return checkedPod
+                    .map(pod -> StringUtils.isNoneBlank(pod.getMetadata().getDeletionTimestamp()))
+                    .orElse(true);
+        });
 
         // another access would trigger rotation of selected pod
-        try(var access = functionPodManager.requestAccess(fn1, podPool)) {
-            var selectedPod2 = access.getPodAccess().getSelectedPod();
+        try(var run = functionPodManager.requestAccess(fn1, podPool)) {
+            var selectedPod2 = run.getAccess().getPodAccess().getSelectedPod();
             log.info("Selected pod {}", ResourceUtils.computeResourceMetaKey(selectedPod2));
             assertThat(selectedPod2).isNotNull();
             assertThat(podNamesSet.add(selectedPod2.getMetadata().getName()))
@@ -11,10 +11,14 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Strings;
+import org.apache.commons.lang3.math.NumberUtils;
 
+import java.time.Instant;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static ai.tuna.fusion.metadata.crd.podpool.PodPool.*;
 
@@ -35,6 +39,79 @@ public class PodPoolResourceUtils {
         );
     }
 
+    /**
+     * Demand signalled by an executor in {@link PodPool#DEMAND_ANNOTATION_PREFIX} annotation.
+     *
+     * @param buffered    number of requests buffered by the executor
+     * @param signalledAt when the demand is signalled
+     */
+    public record ExecutorDemand(long buffered, Instant signalledAt) {
+        public static Optional<ExecutorDemand> parse(String value) {
+            var parts = StringUtils.split(value, '@');
+            if (parts == null || parts.length != 2 || !NumberUtils.isDigits(parts[0]) || !NumberUtils.isDigits(parts[1])) {
+                return Optional.empty();
+            }
+            return Optional.of(new ExecutorDemand(NumberUtils.toLong(parts[0]), Instant.ofEpochSecond(NumberUtils.toLong(parts[1]))));
+        }
+
+        public String format() {
+            return buffered + "@" + signalledAt.getEpochSecond();
+        }
+    }
+
+    /**
+     * @return annotation name -> demand, of all executors that signalled demand
+     */
+    public static Map<String, ExecutorDemand> listExecutorDemands(PodPool resource) {
+        return Optional.ofNullable(resource.getMetadata().getAnnotations())
+                .orElse(Map.of())
+                .entrySet()
+                .stream()
+                .filter(entry -> Strings.CS.startsWith(entry.getKey(), DEMAND_ANNOTATION_PREFIX))
+                .flatMap(entry -> ExecutorDemand.parse(entry.getValue()).map(demand -> Map.entry(entry.getKey(), demand)).stream())
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+    private static long scaleDownDelaySeconds(PodPool resource) {
+        return Optional.ofNullable(resource.getSpec().getScaleDownDelaySeconds()).orElse(DEFAULT_SCALE_DOWN_DELAY_SECONDS);
+    }
+
+    /**
+     * @return true if the demand is no longer active, in which case its annotation may be removed
+     */
+    public static boolean isDemandExpired(PodPool resource, ExecutorDemand demand, Instant now) {
+        return !now.isBefore(demand.signalledAt().plusSeconds(scaleDownDelaySeconds(resource)));
+    }
+
+    /**
+     * Time until which demand signalled by any executor is active, or empty if no demand is signalled.
+     */
+    public static Optional<Instant> computeDemandExpiry(PodPool resource) {
+        var scaleDownDelaySeconds = scaleDownDelaySeconds(resource);
+        return listExecutorDemands(resource).values().stream()
+                .map(ExecutorDemand::signalledAt)
+                .max(Comparator.naturalOrder())
+                .map(signalledAt -> signalledAt.plusSeconds(scaleDownDelaySeconds));
+    }
+
+    /**
+     * Number of generic pods of the pool. While demand of any executor is active, the pool grows to the number of requests buffered by all
+     * executors with active demand, but no less than 1 and no more than {@code maxPoolSize}. Otherwise, it's {@code poolSize}, which may be 0.
+     */
+    public static int computeDesiredPoolSize(PodPool resource, Instant now) {
+        var poolSize = Optional.ofNullable(resource.getSpec().getPoolSize()).orElse(DEFAULT_POOL_SIZE);
+        var activeDemands = listExecutorDemands(resource).values().stream()
+                .filter(demand -> !isDemandExpired(resource, demand, now))
+                .toList();
+        if (activeDemands.isEmpty()) {
+            return poolSize;
+        }
+        var minSize = Math.max(poolSize, 1);
+        var maxSize = Math.max(Optional.ofNullable(resource.getSpec().getMaxPoolSize()).orElse(minSize), minSize);
+        var demand = activeDemands.stream().mapToLong(ExecutorDemand::buffered).sum();
+        return Math.clamp(demand, minSize, maxSize);
+    }
+
     public static List<Pod> listSpecializedPods(PodPool resource, KubernetesClient kubernetesClient) {
         return kubernetesClient.resources(Pod.class)
                 .inNamespace(resource.getMetadata().getNamespace())
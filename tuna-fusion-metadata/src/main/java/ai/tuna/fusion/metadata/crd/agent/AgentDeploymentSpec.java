@@ -2,8 +2,10 @@ package ai.tuna.fusion.metadata.crd.agent;
 
 import ai.tuna.fusion.metadata.a2a.AgentCard;
 import ai.tuna.fusion.metadata.crd.podpool.PodFunction;
+import ai.tuna.fusion.metadata.crd.podpool.PodFunctionSpec;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import io.fabric8.generator.annotation.Default;
+import io.fabric8.generator.annotation.Min;
 import io.fabric8.generator.annotation.Required;
 import io.fabric8.generator.annotation.ValidationRule;
 import io.fabric8.generator.annotation.ValidationRules;
@@ -149,4 +151,15 @@ public class AgentDeploymentSpec {
     private String entrypoint;
 
     private List<PodFunction.FileAsset> fileAssets;
+
+    /**
+     * Passed to {@link ai.tuna.fusion.metadata.crd.podpool.PodFunctionSpec#getMinWarm()} of the generated PodFunction.
+     */
+    @Min(0)
+    private Integer minWarm;
+
+    /**
+     * Passed to {@link ai.tuna.fusion.metadata.crd.podpool.PodFunctionSpec#getTimeouts()} of the generated PodFunction.
+     */
+    private PodFunctionSpec.Timeouts timeouts;
 }
@@ -1,11 +1,13 @@
 package ai.tuna.fusion.metadata.crd.podpool;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import io.fabric8.generator.annotation.Min;
 import io.fabric8.generator.annotation.Required;
 import io.fabric8.generator.annotation.ValidationRule;
 import lombok.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * @author robinqu
@@ -51,4 +53,38 @@ public class PodFunctionSpec {
     private List<ConfigmapReference> configmaps;
     private List<SecretReference> secrets;
 
+    /**
+     * The number of specialized and idle pods that each executor keeps for the effective build, so that requests don't wait for specialization.
+     */
+    @Min(0)
+    private Integer minWarm = 0;
+
+    /**
+     * Timeouts of requests that executors proxy to pods of the function. Executor defaults apply to fields that are not set.
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Builder
+    public static class Timeouts {
+        /**
+         * Seconds a unary request may take until its response is complete.
+         */
+        @Min(1)
+        private Integer requestSeconds;
+
+        /**
+         * Seconds a streaming response may be idle between chunks.
+         */
+        @Min(1)
+        private Integer streamIdleSeconds;
+
+        /**
+         * Seconds of unary requests by A2A JSON-RPC method, e.g. {@code tasks/get}, which take precedence over {@code requestSeconds}.
+         */
+        private Map<String, Integer> methodSeconds;
+    }
+
+    private Timeouts timeouts;
+
 }
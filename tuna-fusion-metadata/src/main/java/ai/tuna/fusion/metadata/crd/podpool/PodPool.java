@@ -23,10 +23,22 @@ public class PodPool extends CustomResource<PodPoolSpec, PodPoolStatus> implemen
     public static final String SPECIALIZED_POD_FUNCTION_NAME_LABEL_VALUE = "fusion.tuna.ai/specialized-function-name";
     public static final String SPECIALIZED_POD_FUNCTION_BUILD_ID_LABEL_VALUE = "fusion.tuna.ai/specialized-function-build-id";
     public static final String POD_POOL_NAME_LABEL_NAME = "fusion.tuna.ai/pool-name";
+    public static final String RESERVED_BY_LABEL_NAME = "fusion.tuna.ai/reserved-by";
+    public static final String RESERVED_AT_LABEL_NAME = "fusion.tuna.ai/reserved-at";
+    public static final String RUN_COUNT_ANNOTATION_NAME = "fusion.tuna.ai/run-count";
+    public static final String RUN_LEASE_ANNOTATION_PREFIX = "run-lease.fusion.tuna.ai/";
+    public static final String RECYCLE_COUNT_LABEL_NAME = "fusion.tuna.ai/recycle-count";
+    /**
+     * Followed by executor identity, demand of that executor, which is patched by executors in activator mode. Its value is
+     * {@code {buffered}@{epochSeconds}}, i.e. number of requests that the executor buffers as no generic pod is ready, and when it's signalled
+     * last time. Each executor writes its own annotation, so that demands of executors are summed rather than overwritten by each other.
+     */
+    public static final String DEMAND_ANNOTATION_PREFIX = "demand.fusion.tuna.ai/";
     public static final int DEFAULT_RUNTIME_SERVICE_PORT = 8888;
     public static final String DR_SELECTOR = "fusion.tuna.ai/managed-by-pp";
     public static final long TTL_IN_SECONDS_FOR_SPECIALIZED_POD = 60 * 60 * 24;
     public static final int DEFAULT_RUN_PER_POD = 10;
     public static final int DEFAULT_POOL_SIZE = 5;
+    public static final long DEFAULT_SCALE_DOWN_DELAY_SECONDS = 300;
     public static final int POD_ACCESS_PER_BUILD = 3;
 }
@@ -26,14 +26,54 @@ public class PodPoolSpec {
     private String builderImage;
 
     /**
-     * The size of the pool.
+     * The size of the pool. A pool of size 0 has no generic pods until executors signal demand, see {@link PodPool#DEMAND_ANNOTATION_PREFIX}.
      */
-    @Min(1)
+    @Min(0)
     private Integer poolSize = DEFAULT_POOL_SIZE;
 
+    /**
+     * The size that the pool may grow to while executors signal demand. It defaults to {@code poolSize}, or 1 if {@code poolSize} is 0.
+     */
+    @Min(1)
+    private Integer maxPoolSize;
+
+    /**
+     * The pool is scaled back to {@code poolSize} after no demand is signalled for this number of seconds.
+     */
+    @Min(0)
+    private Long scaleDownDelaySeconds = DEFAULT_SCALE_DOWN_DELAY_SECONDS;
+
     @Min(1)
     private Integer runPerPod = DEFAULT_RUN_PER_POD;
 
+    /**
+     * The number of concurrent runs that an executor sends to each specialized pod. Concurrency is not limited if 0.
+     */
+    @Min(0)
+    private Integer maxConcurrencyPerPod = 0;
+
+    /**
+     * The number of specialized pods that an executor keeps for each function build.
+     */
+    @Min(1)
+    private Integer podAccessPerBuild = POD_ACCESS_PER_BUILD;
+
+    /**
+     * The number of times a retired specialized pod is reset and returned to generic pods before it's deleted. Recycling is disabled if 0.
+     * <p>
+     * A recycled pod may be specialized for any function of the pool next. Reset unloads modules of user code, but not what that code left
+     * in the process or on disk, e.g. threads, state of shared libraries and temporary files. Enable recycling only if functions of the
+     * pool trust each other.
+     */
+    @Min(0)
+    private Integer recyclesPerPod = 0;
+
+    /**
+     * The number of generic pods that each executor claims ahead of requests, so that cold requests only need specialization.
+     */
+    @Min(0)
+    private Integer reservedPodsPerExecutor = 0;
+
     /**
      * The time to live of each pod in seconds.
      */
@@ -67,6 +67,10 @@ public class AgentDeploymentPodFunctionDependentResource extends CRUDKubernetesD
         podFunctionSpec.setEntrypoint(primary.getSpec().getEntrypoint());
         podFunctionSpec.setConfigmaps(Collections.singletonList(AgentResourceUtils.computeConfigMapRef(primary)));
         podFunctionSpec.setSecrets(Collections.singletonList(AgentResourceUtils.computeSecretRef(primary)));
+        Optional.ofNullable(primary.getSpec().getMinWarm())
+                .ifPresent(podFunctionSpec::setMinWarm);
+        Optional.ofNullable(primary.getSpec().getTimeouts())
+                .ifPresent(podFunctionSpec::setTimeouts);
         podFunction.setSpec(podFunctionSpec);
         return podFunction;
     }
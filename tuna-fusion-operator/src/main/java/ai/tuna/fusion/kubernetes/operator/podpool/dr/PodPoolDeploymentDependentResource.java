@@ -13,13 +13,15 @@ import io.javaoperatorsdk.operator.processing.dependent.kubernetes.CRUDKubernete
 import io.javaoperatorsdk.operator.processing.dependent.kubernetes.KubernetesDependent;
 import lombok.extern.slf4j.Slf4j;
 
+import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static ai.tuna.fusion.metadata.crd.PodPoolResourceUtils.computeGenericPodSelectors;
 import static ai.tuna.fusion.metadata.crd.PodPoolResourceUtils.computePodPoolDeploymentName;
-import static ai.tuna.fusion.metadata.crd.podpool.PodPool.DEFAULT_POOL_SIZE;
 
 /**
  * @author robinqu
@@ -27,14 +29,15 @@ import static ai.tuna.fusion.metadata.crd.podpool.PodPool.DEFAULT_POOL_SIZE;
 @Slf4j
 @KubernetesDependent(informer = @Informer(labelSelector = PodPool.DR_SELECTOR))
 public class PodPoolDeploymentDependentResource extends CRUDKubernetesDependentResource<Deployment, PodPool> {
+    private static final String ZONE_TOPOLOGY_KEY = "topology.kubernetes.io/zone";
 
     @Override
     protected Deployment desired(PodPool primary, Context<PodPool> context) {
         log.debug("[desired Configure Deployment for PodPool: {}/{}", primary.getMetadata().getNamespace(), primary.getMetadata().getName());
         var selectorLabels = computeGenericPodSelectors(primary);
         var deployLabels = PodPoolResourceUtils.computeDeployLabels(primary);
-        var poolSize = Optional.ofNullable(primary.getSpec().getPoolSize())
-                .orElse(DEFAULT_POOL_SIZE);
+        // grows from poolSize, which may be 0, while executors signal demand
+        var poolSize = PodPoolResourceUtils.computeDesiredPoolSize(primary, Instant.now());
 
         var givenEnvs = Optional.ofNullable(primary.getSpec().getRuntimePodSpec()).map(ps -> ps.getContainers().getFirst()).map(Container::getEnv).orElse(Collections.emptyList());
 
@@ -104,6 +107,7 @@ public class PodPoolDeploymentDependentResource extends CRUDKubernetesDependentR
                                 .build()
                 )
                 .withSubdomain(PodPoolResourceUtils.computePodPoolServiceName(primary))
+                .withTopologySpreadConstraints(topologySpreadConstraints(primary, selectorLabels))
                 .build();
 
         return new DeploymentBuilder()
@@ -136,6 +140,24 @@ public class PodPoolDeploymentDependentResource extends CRUDKubernetesDependentR
                 .build();
     }
 
+    /**
+     * Spread generic pods across zones, so that executors in every zone find warm pods nearby. Pods are still scheduled if zones are
+     * unbalanced, e.g. in single-zone clusters. Constraints given in runtime pod spec take precedence.
+     */
+    private List<TopologySpreadConstraint> topologySpreadConstraints(PodPool podPool, Map<String, String> selectorLabels) {
+        return Optional.ofNullable(podPool.getSpec().getRuntimePodSpec())
+                .map(PodSpec::getTopologySpreadConstraints)
+                .filter(constraints -> !constraints.isEmpty())
+                .orElseGet(() -> List.of(new TopologySpreadConstraintBuilder()
+                        .withMaxSkew(1)
+                        .withTopologyKey(ZONE_TOPOLOGY_KEY)
+                        .withWhenUnsatisfiable("ScheduleAnyway")
+                        .withNewLabelSelector()
+                        .addToMatchLabels(selectorLabels)
+                        .endLabelSelector()
+                        .build()));
+    }
+
     /**
      * Get the service account name to use for the pod pool
      */
@@ -8,27 +8,48 @@ import ai.tuna.fusion.metadata.crd.podpool.PodPool;
 import ai.tuna.fusion.metadata.crd.podpool.PodPoolStatus;
 import com.google.common.base.Preconditions;
 import io.fabric8.kubernetes.api.model.Pod;
+import io.javaoperatorsdk.operator.api.config.informer.Informer;
 import io.javaoperatorsdk.operator.api.reconciler.*;
 import io.javaoperatorsdk.operator.api.reconciler.dependent.Dependent;
+import io.javaoperatorsdk.operator.processing.event.source.filter.OnUpdateFilter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 /**
+ * Events of changes to demand are processed as well as those of spec, as executors signal demand in annotations of PodPool, see
+ * {@link PodPool#DEMAND_ANNOTATION_PREFIX}. Other updates, e.g. of status, are filtered out by {@link SpecOrDemandChangeFilter}.
+ *
  * @author robinqu
  */
 @Component
 @Slf4j
-@ControllerConfiguration(name = "podPoolReconciler")
+@ControllerConfiguration(
+        name = "podPoolReconciler",
+        generationAwareEventProcessing = false,
+        informer = @Informer(onUpdateFilter = PodPoolReconciler.SpecOrDemandChangeFilter.class))
 @Workflow(dependents = {
         @Dependent(type = PodPoolDeploymentDependentResource.class),
         @Dependent(type = PodPoolServiceDependentResource.class)
 })
 public class PodPoolReconciler implements Reconciler<PodPool>, Cleaner<PodPool> {
 
+    /**
+     * Accept updates that change spec or demand of executors.
+     */
+    public static class SpecOrDemandChangeFilter implements OnUpdateFilter<PodPool> {
+        @Override
+        public boolean accept(PodPool newResource, PodPool oldResource) {
+            return !Objects.equals(newResource.getMetadata().getGeneration(), oldResource.getMetadata().getGeneration())
+                    || !Objects.equals(PodPoolResourceUtils.listExecutorDemands(newResource), PodPoolResourceUtils.listExecutorDemands(oldResource));
+        }
+    }
+
     @Override
     public DeleteControl cleanup(PodPool resource, Context<PodPool> context)  {
         return DeleteControl.defaultDelete();
@@ -47,11 +68,22 @@ public class PodPoolReconciler implements Reconciler<PodPool>, Cleaner<PodPool>
         podPoolStatus.setGenericPodSelectors(PodPoolResourceUtils.computeGenericPodSelectors(resource));
         podPoolStatus.setAvailablePods(Optional.ofNullable(deployment.getStatus().getAvailableReplicas()).orElse(0));
         podPoolStatus.setHeadlessServiceName(PodPoolResourceUtils.computePodPoolServiceName(resource));
-        var podPoolUpdate = new PodPool();
-        podPoolUpdate.setStatus(podPoolStatus);
-        podPoolUpdate.getMetadata().setName(resource.getMetadata().getName());
-        podPoolUpdate.getMetadata().setNamespace(resource.getMetadata().getNamespace());
-        return UpdateControl.patchStatus(podPoolUpdate);
+        UpdateControl<PodPool> update;
+        if (podPoolStatus.equals(resource.getStatus())) {
+            update = UpdateControl.noUpdate();
+        } else {
+            var podPoolUpdate = new PodPool();
+            podPoolUpdate.setStatus(podPoolStatus);
+            podPoolUpdate.getMetadata().setName(resource.getMetadata().getName());
+            podPoolUpdate.getMetadata().setNamespace(resource.getMetadata().getNamespace());
+            update = UpdateControl.patchStatus(podPoolUpdate);
+        }
+        // reconcile again once demand expires, so that the pool is scaled down to poolSize
+        PodPoolResourceUtils.computeDemandExpiry(resource)
+                .map(expiry -> Duration.between(Instant.now(), expiry))
+                .filter(delay -> !delay.isNegative())
+                .ifPresent(delay -> update.rescheduleAfter(delay.plusSeconds(1)));
+        return update;
     }
 
 }